@@ -0,0 +1,170 @@
+package benchmarks;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.text.NumberFormat;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Acesso às classes do relatório, que estão no pacote padrão e por isso não podem ser
+ * importadas daqui (e o JMH não aceita benchmarks no pacote padrão). Cada operação é
+ * um MethodHandle resolvido uma única vez; os objetos do relatório circulam como Object.
+ *
+ * Métodos não públicos do gráfico e do PDF (GraficosRelatorio e RelatorioPdf) são
+ * abertos por reflexão: o benchmark mede exatamente o código que o relatório executa,
+ * sem cópia. Cada um é procurado com os tipos exatos dos parâmetros, para que uma
+ * assinatura que mudou falhe já na preparação, não no meio da medição.
+ */
+final class Aplicacao {
+    private static final MethodHandle NOVO_ACUMULADOR;
+    private static final MethodHandle NOVA_AGREGACAO;
+    private static final MethodHandle NOVAS_COLUNAS;
+    private static final MethodHandle GET_ACUMULADOR;
+    private static final MethodHandle GET_COLUNAS;
+    private static final MethodHandle LER_SEQUENCIAL;
+    private static final MethodHandle LER_PARALELO;
+    private static final MethodHandle LER_CACHE;
+    private static final MethodHandle GRAVAR_CACHE;
+    private static final MethodHandle LER_CENTAVOS;
+    private static final MethodHandle CARREGAR_TOTAIS;
+    private static final MethodHandle CALCULAR_RESUMO;
+    private static final MethodHandle[] GETTERS_RESUMO;
+    private static final MethodHandle GRAFICO_ECONOMIA;
+    private static final MethodHandle RELATORIO_PDF;
+    private static final Object VARIANTES;
+    private static final Object GERAL;
+    private static final Object METRICAS;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            Class<?> variante = classe("Variante");
+            Class<?> acumulador = classe("AcumuladorLotes");
+            Class<?> agregacao = classe("Agregacao");
+            Class<?> colunas = classe("ColunasLote");
+            Class<?> cubo = classe("CuboAgregacao");
+            Class<?> consumidor = classe("ConsumidorLinha");
+            Class<?> particionavel = classe("ConsumidorParticionavel");
+            Class<?> totais = classe("TotaisOficiais");
+            Class<?> resumo = classe("ResumoLotes");
+            Class<?> graficos = classe("GraficosRelatorio");
+            Class<?> relatorioPdf = classe("RelatorioPdf");
+
+            Object[] valores = variante.getEnumConstants();
+            VARIANTES = Array.newInstance(variante, valores.length);
+            System.arraycopy(valores, 0, VARIANTES, 0, valores.length);
+            GERAL = valores[0]; // Variante.GERAL
+
+            NOVO_ACUMULADOR = lookup.unreflectConstructor(acumulador.getConstructor(VARIANTES.getClass()));
+            NOVA_AGREGACAO = lookup.unreflectConstructor(agregacao.getConstructor(acumulador, colunas, cubo));
+            NOVAS_COLUNAS = lookup.unreflectConstructor(aberto(colunas.getDeclaredConstructor()));
+            GET_ACUMULADOR = lookup.unreflect(agregacao.getMethod("getAcumulador"));
+            GET_COLUNAS = lookup.unreflect(agregacao.getMethod("getColunas"));
+            LER_SEQUENCIAL = lookup.unreflect(classe("DecodificadorCsv").getMethod("lerArquivo", Path.class, consumidor));
+            LER_PARALELO = lookup.unreflect(classe("IngestaoParalela").getMethod("ler", Path.class, particionavel));
+            LER_CACHE = lookup.unreflect(colunas.getMethod("lerCache", Path.class, consumidor));
+            GRAVAR_CACHE = lookup.unreflect(colunas.getMethod("gravarCache", Path.class, classe("ContagemLinhas")));
+            LER_CENTAVOS = lookup.unreflect(classe("Centavos").getMethod("ler", ByteBuffer.class, int.class, int.class));
+            CARREGAR_TOTAIS = lookup.unreflect(totais.getMethod("carregar", File.class));
+            CALCULAR_RESUMO = lookup.unreflect(resumo.getMethod("calcular", variante, totais, acumulador));
+            String[] getters = {"getLotes", "getTotais", "getDesbloqueados", "getValorRetido", "getValorBloqueados",
+                    "getTotalDesbloq", "getTotalValor", "getTotalValorBloqueados", "getTotalGeral"};
+            GETTERS_RESUMO = new MethodHandle[getters.length];
+            for (int i = 0; i < getters.length; i++) {
+                GETTERS_RESUMO[i] = lookup.unreflect(resumo.getMethod(getters[i]));
+            }
+            GRAFICO_ECONOMIA = lookup.unreflect(aberto(graficos.getDeclaredMethod("gerarGraficoEconomiaLotes",
+                    int[].class, long[].class, NumberFormat.class, boolean.class)));
+            // A entrada que o Main chama para o PDF de uma variante
+            RELATORIO_PDF = lookup.unreflect(aberto(relatorioPdf.getDeclaredMethod("gerar", resumo, NumberFormat.class,
+                    variante, classe("ProcessamentoIncremental$Resultado"), List.class, classe("DuplicidadeCpf"),
+                    Path.class, String.class, classe("MetricasExecucao"))));
+            METRICAS = classe("MetricasExecucao").getMethod("desligada").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Aplicacao() {
+    }
+
+    private static Class<?> classe(String nome) throws ClassNotFoundException {
+        return Class.forName(nome, true, Aplicacao.class.getClassLoader());
+    }
+
+    private static <T extends java.lang.reflect.AccessibleObject> T aberto(T membro) {
+        membro.setAccessible(true);
+        return membro;
+    }
+
+    /** Agregação de todas as variantes, sem cubo; com colunas se for para gravar o cache. */
+    static Object novaAgregacao(boolean comColunas) throws Throwable {
+        Object acumulador = NOVO_ACUMULADOR.invoke(VARIANTES);
+        return NOVA_AGREGACAO.invoke(acumulador, comColunas ? NOVAS_COLUNAS.invoke() : null, null);
+    }
+
+    static Object acumulador(Object agregacao) throws Throwable {
+        return GET_ACUMULADOR.invoke(agregacao);
+    }
+
+    /** Retorna a ContagemLinhas da leitura. */
+    static Object lerSequencial(Path csv, Object agregacao) throws Throwable {
+        return LER_SEQUENCIAL.invoke(csv, agregacao);
+    }
+
+    static Object lerParalelo(Path csv, Object agregacao) throws Throwable {
+        return LER_PARALELO.invoke(csv, agregacao);
+    }
+
+    static boolean lerCache(Path csv, Object agregacao) throws Throwable {
+        return (boolean) LER_CACHE.invoke(csv, agregacao);
+    }
+
+    /** Lê o csv e grava o cache em colunas ao lado dele. */
+    static void gravarCache(Path csv) throws Throwable {
+        Object agregacao = novaAgregacao(true);
+        Object contagem = lerSequencial(csv, agregacao);
+        GRAVAR_CACHE.invoke(GET_COLUNAS.invoke(agregacao), csv, contagem);
+    }
+
+    static long lerCentavos(ByteBuffer buf, int a, int z) throws Throwable {
+        return (long) LER_CENTAVOS.invoke(buf, a, z);
+    }
+
+    static Object carregarTotais(File arquivo) throws Throwable {
+        return CARREGAR_TOTAIS.invoke(arquivo);
+    }
+
+    /** Resumo por lote da variante geral, o que o relatório do dia mostra. */
+    static Object resumo(Object totais, Object acumulador) throws Throwable {
+        return CALCULAR_RESUMO.invoke(GERAL, totais, acumulador);
+    }
+
+    static int[] lotes(Object resumo) throws Throwable {
+        return (int[]) GETTERS_RESUMO[0].invoke(resumo);
+    }
+
+    static long[] valorBloqueados(Object resumo) throws Throwable {
+        return (long[]) GETTERS_RESUMO[4].invoke(resumo);
+    }
+
+    /** O JFreeChart do gráfico de economia, ainda não desenhado. */
+    static Object graficoEconomia(Object resumo, NumberFormat nf) throws Throwable {
+        return GRAFICO_ECONOMIA.invoke(lotes(resumo), valorBloqueados(resumo), nf, false);
+    }
+
+    /**
+     * Gera relatorio_cearaprev.pdf no diretório de saída (user.dir) pelo RelatorioPdf.gerar,
+     * sem fatias, duplicados nem anexo e com as métricas desligadas. O gráfico vem do
+     * CacheGraficos: desenhado na primeira chamada e reaproveitado nas seguintes.
+     */
+    static void relatorioPdf(Object resumo, NumberFormat nf, String dataHora) throws Throwable {
+        List<Object> fatias = Collections.emptyList();
+        RELATORIO_PDF.invoke(resumo, nf, GERAL, null, fatias, null, null, dataHora, METRICAS);
+    }
+}
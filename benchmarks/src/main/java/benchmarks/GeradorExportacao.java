@@ -0,0 +1,219 @@
+package benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.SplittableRandom;
+
+/**
+ * Gera exportações de lotes sintéticas, com as mesmas colunas, BOM e distribuições da
+ * exportação real (todos os lotes, 12/2025): proporção de lotes, vínculos, prova de vida
+ * por vínculo, recadastro, órgãos, faixas de valor, CPFs repetidos e matrículas com X.
+ *
+ * A semente é fixa: o mesmo número de linhas gera sempre o mesmo arquivo, byte a byte,
+ * para que medições de antes e depois de uma mudança leiam exatamente os mesmos dados.
+ *
+ * Uso: java -cp benchmarks.jar benchmarks.GeradorExportacao linhas arquivo.csv
+ */
+public final class GeradorExportacao {
+    private static final long SEMENTE = 20251205L;
+    private static final String CABECALHO =
+            "status_cearaprev;status_recadastro;status_vinculo;cpf;nome;matricula;nome;valor;data_bloqueio;lote_suspensao;;;";
+
+    // Lotes 1 a 4, em ordem, com a data de bloqueio de cada um
+    private static final int[] PESO_LOTE = {360, 527, 892, 6165};
+    private static final String[] DATA_LOTE = {"18/08/2025", "15/09/2025", "28/10/2025", "25/11/2025"};
+
+    private static final String[] VINCULO = {
+            "PENSIONISTA", "ATIVO", "APOSENTADO", "PENSIONISTA_NAO_PREVIDENCIARIO", "AGUARDANDO_APOSENTADORIA"};
+    private static final int[] PESO_VINCULO = {2687, 2559, 2345, 269, 84};
+    // Prova de vida realizada, em milésimos, por vínculo
+    private static final int[] PROVA_POR_VINCULO = {185, 809, 164, 71, 429};
+    private static final int PRESENCIAL = 32;       // milésimos das provas realizadas
+    private static final int RECADASTRO = 289;      // milésimos
+    private static final int CPF_REPETIDO = 23;     // milésimos das linhas
+    private static final int MATRICULA_COM_X = 83;  // milésimos
+    private static final int VIRGULA_DECIMAL = 1;   // milésimos: "1234,56" em vez de "1234.56"
+
+    private static final String[] ORGAO = {
+            "POLÍCIA MILITAR DO CEARÁ", "SECRETARIA DA EDUCAÇÃO", "SUPSEC PENSIONISTAS", "SECRETARIA DA SAÚDE",
+            "SEFAZ - PENSIONISTAS", "SECRETARIA DE ADMINISTRAÇÃO PENITENCIÁRIA", "SUPERINTENDÊNCIA DA POLÍCIA CIVIL",
+            "INSTITUTO DE PREVIDÊNCIA DO ESTADO DO CEARÁ - PENSIONISTAS", "SUPERINTENDENCIA DE OBRAS PUBLICAS",
+            "ASSEMBLÉIA LEGISLATIVA", "FUNDAÇÃO UNIVERSIDADE ESTADUAL DO CEARÁ",
+            "SECRETARIA DE PROTEÇÃO SOCIAL, JUSTIÇA, CIDADANIA, MULHERES E DIREITOS HUMANOS"};
+    private static final int[] PESO_ORGAO = {2646, 1885, 1295, 804, 269, 256, 229, 158, 60, 59, 44, 38};
+    // O restante das linhas se espalha por órgãos menores
+    private static final int ORGAOS_MENORES = 24;
+    private static final int PESO_ORGAOS_MENORES = 201;
+
+    // Dígitos da parte inteira do valor (0 = valor zero), com o peso de cada faixa
+    private static final int[] DIGITOS_VALOR = {0, 1, 2, 3, 4, 5, 6, 7};
+    private static final int[] PESO_VALOR = {14, 310, 732, 1582, 2621, 165, 2031, 498};
+
+    private static final String[] PRENOMES = {"MARIA", "JOSE", "ANTONIA", "FRANCISCO", "ANA", "JOAO", "FRANCISCA",
+            "ANTONIO", "RAIMUNDA", "PEDRO", "LUCIA", "PAULO", "RAIMUNDO", "CARLOS", "TEREZINHA", "MANOEL"};
+    private static final String[] SOBRENOMES = {"SILVA", "SOUSA", "OLIVEIRA", "LIMA", "PEREIRA", "FERREIRA", "COSTA",
+            "RODRIGUES", "ALVES", "NASCIMENTO", "MOREIRA", "ARAUJO", "BARBOSA", "CAVALCANTE", "GOMES", "MARQUES"};
+
+    private final SplittableRandom aleatorio = new SplittableRandom(SEMENTE);
+    private final StringBuilder sb = new StringBuilder(256);
+    private long ultimoCpf = -1;
+
+    private GeradorExportacao() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Uso: GeradorExportacao linhas arquivo.csv");
+            return;
+        }
+        Path destino = Paths.get(args[1]);
+        gerar(Long.parseLong(args[0]), destino);
+        System.out.println(destino + ": " + Files.size(destino) + " bytes");
+    }
+
+    /** Onde os benchmarks guardam as exportações geradas (-Dbenchmarks.dados=...). */
+    public static Path diretorioDados() {
+        return Paths.get(System.getProperty("benchmarks.dados", "target/dados"));
+    }
+
+    /**
+     * Arquivo com a exportação de n linhas em dir, gerado só se ainda não existir.
+     * Um arquivo pela metade (geração interrompida) nunca fica com o nome final.
+     */
+    public static Path arquivo(Path dir, long linhas) throws IOException {
+        Path destino = dir.resolve("lotes_" + linhas + ".csv");
+        if (!Files.exists(destino)) {
+            Files.createDirectories(dir);
+            gerar(linhas, destino);
+        }
+        return destino;
+    }
+
+    public static void gerar(long linhas, Path destino) throws IOException {
+        Path temporario = destino.resolveSibling(destino.getFileName() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporario), 1 << 20)) {
+            new GeradorExportacao().escrever(linhas, out);
+        }
+        try {
+            Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void escrever(long linhas, OutputStream out) throws IOException {
+        out.write(new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF});
+        out.write((CABECALHO + "\n").getBytes(StandardCharsets.UTF_8));
+        // Como na exportação real, as linhas vêm agrupadas por lote
+        long pesoTotal = soma(PESO_LOTE);
+        long escritas = 0;
+        long acumulado = 0;
+        for (int l = 0; l < PESO_LOTE.length; l++) {
+            acumulado += PESO_LOTE[l];
+            long ate = l == PESO_LOTE.length - 1 ? linhas : linhas * acumulado / pesoTotal;
+            for (; escritas < ate; escritas++) {
+                out.write(linha(l).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private String linha(int l) {
+        int v = sortear(PESO_VINCULO);
+        boolean prova = aleatorio.nextInt(1000) < PROVA_POR_VINCULO[v];
+        sb.setLength(0);
+        if (!prova) {
+            sb.append("PROVA_DE_VIDA_NAO_REALIZADA");
+        } else if (aleatorio.nextInt(1000) < PRESENCIAL) {
+            sb.append("PROVA_DE_VIDA_REALIZADA_PRESENCIAL");
+        } else {
+            sb.append("PROVA_DE_VIDA_REALIZADA");
+        }
+        sb.append(aleatorio.nextInt(1000) < RECADASTRO ? ";RECADASTRO_REALIZADO;" : ";RECADASTRO_NAO_REALIZADO;");
+        sb.append(VINCULO[v]).append(';');
+
+        // CPF sem zeros à esquerda, como sai da exportação; alguns repetem o da linha anterior
+        if (ultimoCpf < 0 || aleatorio.nextInt(1000) >= CPF_REPETIDO) {
+            ultimoCpf = 1 + aleatorio.nextLong(99_999_999_999L);
+        }
+        sb.append(ultimoCpf).append(';');
+
+        sb.append(PRENOMES[aleatorio.nextInt(PRENOMES.length)]).append(' ')
+                .append(SOBRENOMES[aleatorio.nextInt(SOBRENOMES.length)]).append(' ')
+                .append(SOBRENOMES[aleatorio.nextInt(SOBRENOMES.length)]).append(';');
+
+        int digitosMatricula = 3 + aleatorio.nextInt(6);
+        for (int i = 0; i < digitosMatricula; i++) {
+            sb.append((char) ('0' + aleatorio.nextInt(10)));
+        }
+        if (aleatorio.nextInt(1000) < MATRICULA_COM_X) {
+            sb.append('X');
+        }
+        sb.append(';');
+
+        int o = sortear(PESO_ORGAO, PESO_ORGAOS_MENORES);
+        if (o < ORGAO.length) {
+            sb.append(ORGAO[o]);
+        } else {
+            sb.append("ÓRGÃO ").append(1 + aleatorio.nextInt(ORGAOS_MENORES));
+        }
+        sb.append(';');
+
+        int digitos = DIGITOS_VALOR[sortear(PESO_VALOR)];
+        if (digitos == 0) {
+            sb.append("0.00");
+        } else {
+            long minimo = digitos == 1 ? 0 : potencia10(digitos - 1);
+            sb.append(minimo + aleatorio.nextLong(potencia10(digitos) - minimo));
+            sb.append(aleatorio.nextInt(1000) < VIRGULA_DECIMAL ? ',' : '.');
+            int centavos = aleatorio.nextInt(100);
+            sb.append((char) ('0' + centavos / 10)).append((char) ('0' + centavos % 10));
+        }
+        sb.append(';');
+
+        sb.append(DATA_LOTE[l]).append(' ');
+        int hora = 8 + aleatorio.nextInt(10);
+        int minuto = aleatorio.nextInt(60);
+        sb.append(hora < 10 ? "0" : "").append(hora).append(':').append(minuto < 10 ? "0" : "").append(minuto);
+        sb.append(';').append(l + 1).append(";;;\n");
+        return sb.toString();
+    }
+
+    /** Índice sorteado com probabilidade proporcional ao peso; pesoExtra é um índice a mais no fim. */
+    private int sortear(int[] pesos, int pesoExtra) {
+        int r = aleatorio.nextInt((int) soma(pesos) + pesoExtra);
+        for (int i = 0; i < pesos.length; i++) {
+            r -= pesos[i];
+            if (r < 0) {
+                return i;
+            }
+        }
+        return pesos.length;
+    }
+
+    private int sortear(int[] pesos) {
+        return sortear(pesos, 0);
+    }
+
+    private static long soma(int[] pesos) {
+        long s = 0;
+        for (int p : pesos) {
+            s += p;
+        }
+        return s;
+    }
+
+    private static long potencia10(int n) {
+        long p = 1;
+        for (int i = 0; i < n; i++) {
+            p *= 10;
+        }
+        return p;
+    }
+}
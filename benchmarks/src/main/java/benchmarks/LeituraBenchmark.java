@@ -0,0 +1,71 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leitura e agregação do CSV, o laço principal do relatório: leitura sequencial,
+ * paralela (o caminho padrão do Main) e a partir do cache em colunas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djava.awt.headless=true"})
+public class LeituraBenchmark {
+    @Param({"10000", "1000000", "10000000"})
+    public long linhas;
+
+    private Path csv;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Throwable {
+        csv = GeradorExportacao.arquivo(GeradorExportacao.diretorioDados(), linhas);
+        Aplicacao.gravarCache(csv);
+    }
+
+    @Benchmark
+    public Object sequencial() throws Throwable {
+        Object agregacao = Aplicacao.novaAgregacao(false);
+        Aplicacao.lerSequencial(csv, agregacao);
+        return Aplicacao.acumulador(agregacao);
+    }
+
+    @Benchmark
+    public Object paralela() throws Throwable {
+        Object agregacao = Aplicacao.novaAgregacao(false);
+        Aplicacao.lerParalelo(csv, agregacao);
+        return Aplicacao.acumulador(agregacao);
+    }
+
+    @Benchmark
+    public Object cacheEmColunas() throws Throwable {
+        Object agregacao = Aplicacao.novaAgregacao(false);
+        if (!Aplicacao.lerCache(csv, agregacao)) {
+            throw new IllegalStateException("Cache em colunas inválido para " + csv);
+        }
+        return Aplicacao.acumulador(agregacao);
+    }
+
+    /** Leitura que ainda monta as colunas, como na primeira execução sobre um CSV novo. */
+    @Benchmark
+    public Object sequencialComColunas() throws Throwable {
+        Object agregacao = Aplicacao.novaAgregacao(true);
+        Aplicacao.lerSequencial(csv, agregacao);
+        return agregacao;
+    }
+}
@@ -0,0 +1,79 @@
+package benchmarks;
+
+import org.jfree.chart.ChartUtils;
+import org.jfree.chart.JFreeChart;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saída do relatório a partir dos números já agregados: o gráfico de economia (montagem,
+ * desenho e PNG) e o PDF completo. Não dependem do tamanho do CSV, só dos lotes.
+ *
+ * O PDF é gravado em saida/ dentro do diretório dos dados, apontado como user.dir, que é
+ * onde o Main grava as saídas; as mensagens que o Main imprime são descartadas. O PDF sai
+ * pelo RelatorioPdf.gerar, como no Main; o gráfico fica no cache de gráficos desde o
+ * aquecimento, então relatorioPdf mede só a montagem do documento.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RelatorioBenchmark {
+    private Object resumo;
+    private NumberFormat nf;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Throwable {
+        Object agregacao = Aplicacao.novaAgregacao(false);
+        Aplicacao.lerSequencial(GeradorExportacao.arquivo(GeradorExportacao.diretorioDados(), 10000), agregacao);
+        // Sem totais oficiais: os totais da remessa são as contagens do CSV
+        Object totais = Aplicacao.carregarTotais(new File("nao_existe", "totais_oficiais.csv"));
+        resumo = Aplicacao.resumo(totais, Aplicacao.acumulador(agregacao));
+        nf = NumberFormat.getInstance(new Locale("pt", "BR"));
+        nf.setMaximumFractionDigits(2);
+        File saida = Files.createDirectories(GeradorExportacao.diretorioDados().resolve("saida")).toFile();
+        System.setProperty("user.dir", saida.getAbsolutePath());
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+    }
+
+    @Benchmark
+    public BufferedImage graficoEconomia() throws Throwable {
+        JFreeChart grafico = (JFreeChart) Aplicacao.graficoEconomia(resumo, nf);
+        return grafico.createBufferedImage(800, 600);
+    }
+
+    @Benchmark
+    public byte[] graficoEconomiaPng() throws Throwable {
+        JFreeChart grafico = (JFreeChart) Aplicacao.graficoEconomia(resumo, nf);
+        return ChartUtils.encodeAsPNG(grafico.createBufferedImage(800, 600));
+    }
+
+    @Benchmark
+    public void relatorioPdf() throws Throwable {
+        Aplicacao.relatorioPdf(resumo, nf, "01/01/2026 00:00:00");
+    }
+}
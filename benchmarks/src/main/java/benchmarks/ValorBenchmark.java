@@ -0,0 +1,88 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Normalização do campo valor, por campo: a leitura atual em centavos direto dos bytes
+ * e, como referência, o caminho antigo (String, replace e Double.parseDouble).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValorBenchmark {
+    private static final int CAMPOS = 10000;
+    private static final int COLUNA_VALOR = 7;
+
+    private ByteBuffer buf;
+    private int[] inicio;
+    private int[] fim;
+    private String[] textos;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        Path csv = GeradorExportacao.arquivo(GeradorExportacao.diretorioDados(), CAMPOS);
+        List<String> linhas = Files.readAllLines(csv, StandardCharsets.UTF_8);
+        textos = new String[linhas.size() - 1];
+        for (int i = 1; i < linhas.size(); i++) {
+            textos[i - 1] = linhas.get(i).split(";", -1)[COLUNA_VALOR];
+        }
+        // Os campos lado a lado num buffer, como ficam na janela de leitura do CSV
+        byte[] bytes = String.join(";", Arrays.asList(textos)).getBytes(StandardCharsets.US_ASCII);
+        buf = ByteBuffer.wrap(bytes);
+        inicio = new int[textos.length];
+        fim = new int[textos.length];
+        int pos = 0;
+        for (int i = 0; i < textos.length; i++) {
+            inicio[i] = pos;
+            fim[i] = pos + textos[i].length();
+            pos = fim[i] + 1;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CAMPOS)
+    public long centavos() throws Throwable {
+        long soma = 0;
+        for (int i = 0; i < inicio.length; i++) {
+            soma += Aplicacao.lerCentavos(buf, inicio[i], fim[i]);
+        }
+        return soma;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CAMPOS)
+    public double textoLegado() {
+        double soma = 0;
+        for (String campo : textos) {
+            String normalizado = campo.trim().replace(".", "").replace(",", ".");
+            try {
+                soma += normalizado.isEmpty() ? 0 : Double.parseDouble(normalizado);
+            } catch (NumberFormatException e) {
+                // o relatório antigo somava zero
+            }
+        }
+        return soma;
+    }
+}
@@ -1,8 +1,5 @@
 @echo off
 cd /d "%~dp0"
-java -jar "target\cearaprev-report-jar-with-dependencies.jar"
-echo.
-echo.
-java -jar "target\cearaprev-report-jar-with-dependencies.jar" inativos
+java -jar "target\cearaprev-report-jar-with-dependencies.jar" todos
 echo.
 echo CONCLUIDO!
@@ -0,0 +1,18 @@
+@echo off
+cd /d "%~dp0"
+rem So os numeros, sem grafico nem PDF: "resumo" imprime as tabelas, "resumo --json" o JSON
+rem (o mesmo de /resumo do modo vigia). Ex.: resumo.bat todos --json > resumo.json
+rem
+rem A primeira execucao grava em target\resumo.jsa as classes carregadas (Java 13 ou mais
+rem novo); as seguintes partem desse arquivo de CDS, sem ler nem verificar as classes de
+rem novo. O mvn package apaga o arquivo, que e refeito na execucao seguinte.
+rem Avisos da JVM (ex.: arquivo de CDS de outro Java) vao para a saida de erro.
+set JAR=target\cearaprev-report-jar-with-dependencies.jar
+set CDS=target\resumo.jsa
+set MODO=--console
+echo %* | find /i "--json" >nul && set MODO=
+if exist "%CDS%" (
+    java -XX:SharedArchiveFile="%CDS%" -XX:TieredStopAtLevel=1 -Xlog:disable -Xlog:all=warning:stderr -jar "%JAR%" %* %MODO%
+) else (
+    java -XX:+IgnoreUnrecognizedVMOptions -XX:ArchiveClassesAtExit="%CDS%" -jar "%JAR%" %* %MODO%
+)
@@ -0,0 +1,168 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Acumuladores por lote de todas as variantes pedidas, preenchidos linha a linha.
+ *
+ * Tudo é guardado em arrays primitivos indexados pela posição do lote no
+ * {@link RegistroLotes}, que cresce conforme aparecem lotes novos. Os valores ficam em
+ * centavos (long), de forma que acumuladores parciais de pedaços diferentes do arquivo
+ * possam ser somados em qualquer ordem e dar exatamente o mesmo resultado da leitura
+ * sequencial.
+ */
+public final class AcumuladorLotes implements ConsumidorParticionavel<AcumuladorLotes> {
+    private final Variante[] variantes;
+    private final RegistroLotes lotes = new RegistroLotes();
+    // [variante.ordinal()][slot do lote]
+    private long[][] linhas;
+    private long[][] desbloqueados;
+    private long[][] valorRetidoCentavos;
+    // Total de inativos contados do CSV, independente da variante
+    private long[] totalInativosPorLote;
+
+    // As linhas costumam vir agrupadas por lote; evita consultar o mapa a cada linha
+    private int ultimoLote = -1;
+    private int ultimoSlot = -1;
+
+    public AcumuladorLotes(Variante[] variantes) {
+        this.variantes = variantes;
+        int nVariantes = Variante.values().length;
+        this.linhas = new long[nVariantes][8];
+        this.desbloqueados = new long[nVariantes][8];
+        this.valorRetidoCentavos = new long[nVariantes][8];
+        this.totalInativosPorLote = new long[8];
+    }
+
+    /** Acumulador vazio para as mesmas variantes, usado por cada pedaço da leitura paralela. */
+    @Override
+    public AcumuladorLotes novoParcial() {
+        return new AcumuladorLotes(variantes);
+    }
+
+    @Override
+    public void aceitar(LinhaLote linha) {
+        aplicar(linha, 1);
+    }
+
+    /** Desfaz a contribuição de uma linha aceita antes (processamento incremental). */
+    public void remover(LinhaLote linha) {
+        aplicar(linha, -1);
+    }
+
+    private void aplicar(LinhaLote linha, int sinal) {
+        int lote = linha.getLote();
+        if (lote < 1) return;
+
+        int slot = lote == ultimoLote ? ultimoSlot : slotDoLote(lote);
+
+        boolean isInativo = linha.isInativo();
+        if (isInativo) {
+            totalInativosPorLote[slot] += sinal;
+        }
+
+        boolean desbloq = linha.isDesbloqueado();
+        long valor = linha.getValorCentavos();
+
+        // Cada variante pedida acumula as linhas que lhe interessam
+        for (Variante v : variantes) {
+            if (!v.aceita(isInativo)) {
+                continue;
+            }
+            int iv = v.ordinal();
+            linhas[iv][slot] += sinal;
+            if (desbloq) {
+                desbloqueados[iv][slot] += sinal;
+            }
+            valorRetidoCentavos[iv][slot] += sinal * valor;
+        }
+    }
+
+    private int slotDoLote(int lote) {
+        int slot = lotes.slot(lote);
+        if (slot >= totalInativosPorLote.length) {
+            int capacidade = totalInativosPorLote.length * 2;
+            for (int v = 0; v < desbloqueados.length; v++) {
+                linhas[v] = Arrays.copyOf(linhas[v], capacidade);
+                desbloqueados[v] = Arrays.copyOf(desbloqueados[v], capacidade);
+                valorRetidoCentavos[v] = Arrays.copyOf(valorRetidoCentavos[v], capacidade);
+            }
+            totalInativosPorLote = Arrays.copyOf(totalInativosPorLote, capacidade);
+        }
+        ultimoLote = lote;
+        ultimoSlot = slot;
+        return slot;
+    }
+
+    /** Soma os acumuladores de outro pedaço do arquivo neste. */
+    @Override
+    public void somar(AcumuladorLotes outro) {
+        for (int s = 0; s < outro.lotes.size(); s++) {
+            int slot = slotDoLote(outro.lotes.lote(s));
+            for (int v = 0; v < desbloqueados.length; v++) {
+                linhas[v][slot] += outro.linhas[v][s];
+                desbloqueados[v][slot] += outro.desbloqueados[v][s];
+                valorRetidoCentavos[v][slot] += outro.valorRetidoCentavos[v][s];
+            }
+            totalInativosPorLote[slot] += outro.totalInativosPorLote[s];
+        }
+    }
+
+    /** Grava os acumuladores de todas as variantes, para continuar numa próxima execução. */
+    public void gravar(DataOutput out) throws IOException {
+        out.writeInt(lotes.size());
+        for (int s = 0; s < lotes.size(); s++) {
+            out.writeInt(lotes.lote(s));
+            out.writeLong(totalInativosPorLote[s]);
+            for (int v = 0; v < desbloqueados.length; v++) {
+                out.writeLong(linhas[v][s]);
+                out.writeLong(desbloqueados[v][s]);
+                out.writeLong(valorRetidoCentavos[v][s]);
+            }
+        }
+    }
+
+    /** Lê acumuladores gravados por {@link #gravar}; todas as variantes precisam estar lá. */
+    public static AcumuladorLotes ler(DataInput in, Variante[] variantes) throws IOException {
+        AcumuladorLotes acumulador = new AcumuladorLotes(variantes);
+        int n = in.readInt();
+        for (int i = 0; i < n; i++) {
+            int slot = acumulador.slotDoLote(in.readInt());
+            acumulador.totalInativosPorLote[slot] = in.readLong();
+            for (int v = 0; v < acumulador.desbloqueados.length; v++) {
+                acumulador.linhas[v][slot] = in.readLong();
+                acumulador.desbloqueados[v][slot] = in.readLong();
+                acumulador.valorRetidoCentavos[v][slot] = in.readLong();
+            }
+        }
+        return acumulador;
+    }
+
+    /** Lotes que apareceram no CSV, em ordem crescente. */
+    public int[] getLotes() {
+        return lotes.lotesOrdenados();
+    }
+
+    /** Linhas do CSV que entraram na variante para o lote. */
+    public long getLinhas(Variante v, int lote) {
+        int slot = lotes.slotExistente(lote);
+        return slot < 0 ? 0 : linhas[v.ordinal()][slot];
+    }
+
+    public long getDesbloqueados(Variante v, int lote) {
+        int slot = lotes.slotExistente(lote);
+        return slot < 0 ? 0 : desbloqueados[v.ordinal()][slot];
+    }
+
+    /** Valor retido do lote, em centavos. */
+    public long getValorRetidoCentavos(Variante v, int lote) {
+        int slot = lotes.slotExistente(lote);
+        return slot < 0 ? 0 : valorRetidoCentavos[v.ordinal()][slot];
+    }
+
+    public long getTotalInativos(int lote) {
+        int slot = lotes.slotExistente(lote);
+        return slot < 0 ? 0 : totalInativosPorLote[slot];
+    }
+}
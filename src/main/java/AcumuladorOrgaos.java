@@ -0,0 +1,83 @@
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Acumuladores por lote de cada órgão, preenchidos na mesma leitura do CSV que os do
+ * relatório geral (--por-orgao).
+ *
+ * Há um {@link AcumuladorLotes} por código do órgão no {@link Dicionario} global da
+ * dimensão, criado quando o órgão aparece pela primeira vez. Como o código é o mesmo em
+ * qualquer pedaço do arquivo, os parciais da leitura paralela são somados órgão a órgão,
+ * sem tradução.
+ */
+public final class AcumuladorOrgaos implements ConsumidorParticionavel<AcumuladorOrgaos> {
+    private final Variante[] variantes;
+    // Por código do órgão; null enquanto o órgão não apareceu
+    private AcumuladorLotes[] porOrgao = new AcumuladorLotes[32];
+
+    public AcumuladorOrgaos(Variante[] variantes) {
+        this.variantes = variantes;
+    }
+
+    @Override
+    public void aceitar(LinhaLote linha) {
+        if (linha.getLote() < 1) {
+            return;
+        }
+        acumuladorDoCodigo(linha.getCodigo(Dimensao.ORGAO)).aceitar(linha);
+    }
+
+    private AcumuladorLotes acumuladorDoCodigo(int codigo) {
+        if (codigo >= porOrgao.length) {
+            porOrgao = Arrays.copyOf(porOrgao, Math.max(codigo + 1, porOrgao.length * 2));
+        }
+        AcumuladorLotes acumulador = porOrgao[codigo];
+        if (acumulador == null) {
+            acumulador = new AcumuladorLotes(variantes);
+            porOrgao[codigo] = acumulador;
+        }
+        return acumulador;
+    }
+
+    @Override
+    public AcumuladorOrgaos novoParcial() {
+        return new AcumuladorOrgaos(variantes);
+    }
+
+    @Override
+    public void somar(AcumuladorOrgaos outro) {
+        for (int codigo = 0; codigo < outro.porOrgao.length; codigo++) {
+            if (outro.porOrgao[codigo] != null) {
+                acumuladorDoCodigo(codigo).somar(outro.porOrgao[codigo]);
+            }
+        }
+    }
+
+    /** Códigos dos órgãos que apareceram no CSV, em ordem alfabética do nome. */
+    public int[] getOrgaos() {
+        Integer[] codigos = new Integer[porOrgao.length];
+        int n = 0;
+        for (int codigo = 0; codigo < porOrgao.length; codigo++) {
+            if (porOrgao[codigo] != null) {
+                codigos[n++] = codigo;
+            }
+        }
+        Dicionario dicionario = Dimensao.ORGAO.getDicionario();
+        Arrays.sort(codigos, 0, n, Comparator.comparing(dicionario::nome));
+        int[] ordenados = new int[n];
+        for (int i = 0; i < n; i++) {
+            ordenados[i] = codigos[i];
+        }
+        return ordenados;
+    }
+
+    /** Nome do órgão como está no CSV (com a grafia reparada pelo dicionário). */
+    public String getNome(int codigo) {
+        return Dimensao.ORGAO.getDicionario().nome(codigo);
+    }
+
+    /** Acumuladores do órgão; só faz sentido para um código de {@link #getOrgaos()}. */
+    public AcumuladorLotes getAcumulador(int codigo) {
+        return porOrgao[codigo];
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Tudo o que a leitura do CSV alimenta numa única passada: os acumuladores por lote,
+ * o cubo dos recortes pedidos, os acumuladores por órgão (--por-orgao) e, quando o cache
+ * ainda não existe, as colunas que vão para ele.
+ *
+ * Com a verificação de CPFs repetidos, as colunas do cache recebem todas as linhas e os
+ * demais só as que a {@link DuplicidadeCpf} mantém.
+ */
+public final class Agregacao implements ConsumidorParticionavel<Agregacao> {
+    private final AcumuladorLotes acumulador;
+    private final ColunasLote colunas;
+    private final CuboAgregacao cubo;
+    private final AcumuladorOrgaos orgaos;
+    private final DuplicidadeCpf duplicidade;
+
+    /** colunas e cubo podem ser null quando não há cache a gravar ou recorte pedido. */
+    public Agregacao(AcumuladorLotes acumulador, ColunasLote colunas, CuboAgregacao cubo) {
+        this(acumulador, colunas, cubo, null);
+    }
+
+    /** orgaos pode ser null quando não há relatório por órgão pedido. */
+    public Agregacao(AcumuladorLotes acumulador, ColunasLote colunas, CuboAgregacao cubo, AcumuladorOrgaos orgaos) {
+        this(acumulador, colunas, cubo, orgaos, null);
+    }
+
+    /** duplicidade pode ser null quando as linhas não passam pela verificação de CPFs repetidos. */
+    public Agregacao(AcumuladorLotes acumulador, ColunasLote colunas, CuboAgregacao cubo, AcumuladorOrgaos orgaos,
+                     DuplicidadeCpf duplicidade) {
+        this.acumulador = acumulador;
+        this.colunas = colunas;
+        this.cubo = cubo;
+        this.orgaos = orgaos;
+        this.duplicidade = duplicidade;
+    }
+
+    @Override
+    public void aceitar(LinhaLote linha) {
+        if (colunas != null) {
+            colunas.aceitar(linha);
+        }
+        if (duplicidade != null && !duplicidade.manter(linha)) {
+            return;
+        }
+        acumulador.aceitar(linha);
+        if (cubo != null) {
+            cubo.aceitar(linha);
+        }
+        if (orgaos != null) {
+            orgaos.aceitar(linha);
+        }
+    }
+
+    @Override
+    public Agregacao novoParcial() {
+        return new Agregacao(acumulador.novoParcial(), colunas == null ? null : colunas.novoParcial(),
+                cubo == null ? null : cubo.novoParcial(), orgaos == null ? null : orgaos.novoParcial(),
+                duplicidade == null ? null : duplicidade.novoParcial());
+    }
+
+    @Override
+    public void somar(Agregacao outro) {
+        acumulador.somar(outro.acumulador);
+        if (colunas != null) {
+            colunas.somar(outro.colunas);
+        }
+        if (cubo != null) {
+            cubo.somar(outro.cubo);
+        }
+        if (orgaos != null) {
+            orgaos.somar(outro.orgaos);
+        }
+        if (duplicidade != null) {
+            duplicidade.somar(outro.duplicidade);
+        }
+    }
+
+    public AcumuladorLotes getAcumulador() {
+        return acumulador;
+    }
+
+    public ColunasLote getColunas() {
+        return colunas;
+    }
+
+    public CuboAgregacao getCubo() {
+        return cubo;
+    }
+
+    public AcumuladorOrgaos getOrgaos() {
+        return orgaos;
+    }
+
+    public DuplicidadeCpf getDuplicidade() {
+        return duplicidade;
+    }
+}
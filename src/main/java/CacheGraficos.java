@@ -0,0 +1,102 @@
+import com.itextpdf.io.image.ImageData;
+import com.itextpdf.io.image.ImageDataFactory;
+import org.jfree.chart.ChartUtils;
+import org.jfree.chart.JFreeChart;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Gráficos dos relatórios desenhados em memória e entregues ao PDF como imagem, sem
+ * arquivo intermediário no disco.
+ *
+ * Cada gráfico é identificado por um hash dos dados que ele mostra (e do tamanho): se os
+ * números não mudaram, a imagem já pronta é reaproveitada e o JFreeChart nem é montado.
+ * Guarda só os últimos {@link #CAPACIDADE} gráficos.
+ *
+ * Os PDFs por órgão pedem gráficos de várias threads ao mesmo tempo: só o acesso ao mapa
+ * é sincronizado, e cada thread desenha o seu gráfico fora dele. Dois pedidos simultâneos
+ * do mesmo gráfico podem desenhá-lo duas vezes, com o mesmo resultado.
+ */
+final class CacheGraficos {
+    private static final int CAPACIDADE = 16;
+    private static final long FNV_INICIO = 0xcbf29ce484222325L;
+    private static final long FNV_PRIMO = 0x100000001b3L;
+
+    private static final Map<Long, ImageData> IMAGENS = new LinkedHashMap<Long, ImageData>(CAPACIDADE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, ImageData> maisAntiga) {
+            return size() > CAPACIDADE;
+        }
+    };
+
+    private CacheGraficos() {
+    }
+
+    /**
+     * Imagem do gráfico cujos dados têm o hash dado, montando-o com fabrica só se ele
+     * ainda não estiver no cache.
+     */
+    static ImageData imagem(Hash dados, int largura, int altura, Supplier<JFreeChart> fabrica)
+            throws IOException {
+        Long chave = dados.mais(largura).mais(altura).valor();
+        ImageData imagem;
+        synchronized (IMAGENS) {
+            imagem = IMAGENS.get(chave);
+        }
+        if (imagem == null) {
+            // PNG em memória: o iText copia os dados comprimidos direto para o PDF
+            byte[] png = ChartUtils.encodeAsPNG(fabrica.get().createBufferedImage(largura, altura));
+            imagem = ImageDataFactory.create(png);
+            synchronized (IMAGENS) {
+                IMAGENS.put(chave, imagem);
+            }
+        }
+        return imagem;
+    }
+
+    /** Hash FNV-1a de 64 bits, alimentado campo a campo com os dados de um gráfico. */
+    static final class Hash {
+        private long h = FNV_INICIO;
+
+        Hash mais(long v) {
+            for (int i = 0; i < 8; i++) {
+                h ^= v & 0xFF;
+                h *= FNV_PRIMO;
+                v >>>= 8;
+            }
+            return this;
+        }
+
+        Hash mais(long[] v) {
+            mais(v.length);
+            for (long x : v) {
+                mais(x);
+            }
+            return this;
+        }
+
+        Hash mais(int[] v) {
+            mais(v.length);
+            for (int x : v) {
+                mais(x);
+            }
+            return this;
+        }
+
+        Hash mais(String s) {
+            mais(s.length());
+            for (int i = 0; i < s.length(); i++) {
+                h ^= s.charAt(i);
+                h *= FNV_PRIMO;
+            }
+            return this;
+        }
+
+        long valor() {
+            return h;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.text.NumberFormat;
+
+/**
+ * Valores em reais guardados como centavos em long: leitura direto dos bytes do CSV,
+ * projeções em ponto fixo e formatação para o relatório.
+ *
+ * Arredondamentos usam "meio para o par", que não acumula viés quando somado
+ * sobre milhões de linhas.
+ */
+public final class Centavos {
+    /** Retornado por {@link #ler} quando o campo não é um valor. */
+    public static final long INVALIDO = Long.MIN_VALUE;
+
+    private static final long[] POTENCIAS_10 = new long[19];
+
+    static {
+        long p = 1;
+        for (int i = 0; i < POTENCIAS_10.length; i++) {
+            POTENCIAS_10[i] = p;
+            p *= 10;
+        }
+    }
+
+    private Centavos() {
+    }
+
+    /**
+     * Lê um valor em reais dos bytes [a, z), já aparados, sem criar objetos.
+     *
+     * O separador decimal é detectado em cada valor, o que aceita tanto a exportação
+     * antiga (1.234,56) quanto a atual (31597.84):
+     * <ul>
+     * <li>com '.' e ',' no mesmo valor, o que aparece por último é o decimal;</li>
+     * <li>com um só tipo de separador repetido (1.234.567), ele agrupa milhares;</li>
+     * <li>com um único separador, ele é decimal, a não ser que venha seguido de exatamente
+     * três dígitos depois de uma parte inteira diferente de zero (1.234 = mil duzentos e
+     * trinta e quatro).</li>
+     * </ul>
+     * Campo vazio vale zero. Retorna {@link #INVALIDO} se houver outro caractere ou se
+     * o valor não couber em centavos.
+     */
+    public static long ler(ByteBuffer buf, int a, int z) {
+        if (a >= z) {
+            return 0;
+        }
+        boolean negativo = false;
+        byte primeiro = buf.get(a);
+        if (primeiro == '-' || primeiro == '+') {
+            negativo = primeiro == '-';
+            a++;
+        }
+        // Primeira passada: só localiza os separadores
+        int pontos = 0;
+        int virgulas = 0;
+        int ultimoSeparador = -1;
+        int digitos = 0;
+        for (int i = a; i < z; i++) {
+            byte b = buf.get(i);
+            if (b >= '0' && b <= '9') {
+                digitos++;
+            } else if (b == '.') {
+                pontos++;
+                ultimoSeparador = i;
+            } else if (b == ',') {
+                virgulas++;
+                ultimoSeparador = i;
+            } else {
+                return INVALIDO;
+            }
+        }
+        if (digitos == 0) {
+            return INVALIDO;
+        }
+        int decimal = -1;
+        if (ultimoSeparador >= 0) {
+            boolean ehPonto = buf.get(ultimoSeparador) == '.';
+            int ocorrencias = ehPonto ? pontos : virgulas;
+            int depois = z - ultimoSeparador - 1;
+            if (pontos > 0 && virgulas > 0) {
+                decimal = ocorrencias == 1 ? ultimoSeparador : -1;
+                if (decimal < 0) {
+                    return INVALIDO; // 1,234,567.89,00 e afins
+                }
+            } else if (ocorrencias == 1 && (depois != 3 || parteInteiraZero(buf, a, ultimoSeparador))) {
+                decimal = ultimoSeparador;
+            }
+        }
+        // Segunda passada: acumula os dígitos
+        long mantissa = 0;
+        int casas = 0;
+        int significativos = 0;
+        for (int i = a; i < z; i++) {
+            byte b = buf.get(i);
+            if (b >= '0' && b <= '9') {
+                if (mantissa != 0 || b != '0') {
+                    if (++significativos > 18) {
+                        return INVALIDO;
+                    }
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                if (decimal >= 0 && i > decimal) {
+                    casas++;
+                }
+            }
+        }
+        long centavos = escalar(mantissa, casas);
+        if (centavos == INVALIDO) {
+            return INVALIDO;
+        }
+        return negativo ? -centavos : centavos;
+    }
+
+    private static boolean parteInteiraZero(ByteBuffer buf, int a, int separador) {
+        for (int i = a; i < separador; i++) {
+            if (buf.get(i) != '0') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Converte uma mantissa com a quantidade de casas decimais dada para centavos. */
+    static long escalar(long mantissa, int casas) {
+        if (casas <= 2) {
+            long fator = POTENCIAS_10[2 - casas];
+            if (mantissa > Long.MAX_VALUE / fator) {
+                return INVALIDO;
+            }
+            return mantissa * fator;
+        }
+        int corte = casas - 2;
+        if (corte >= POTENCIAS_10.length) {
+            return 0;
+        }
+        return dividirArredondando(mantissa, POTENCIAS_10[corte]);
+    }
+
+    /**
+     * Projeção valor * multiplicador / divisor em ponto fixo, arredondada para o centavo.
+     * Usada para "valor médio por pessoa x quantidade", sem passar por double.
+     */
+    public static long projetar(long centavos, long multiplicador, long divisor) {
+        if (divisor == 0) {
+            return 0;
+        }
+        long alto = Math.abs(centavos);
+        long baixo = Math.abs(multiplicador);
+        if (alto == 0 || baixo == 0) {
+            return 0;
+        }
+        long sinal = Long.signum(centavos) * Long.signum(multiplicador) * Long.signum(divisor);
+        long d = Math.abs(divisor);
+        if (alto <= Long.MAX_VALUE / baixo) {
+            return sinal * dividirArredondando(alto * baixo, d);
+        }
+        // Produto maior que um long: raro, vai por BigInteger
+        BigInteger[] qr = BigInteger.valueOf(alto).multiply(BigInteger.valueOf(baixo))
+                .divideAndRemainder(BigInteger.valueOf(d));
+        long q = qr[0].longValueExact();
+        int cmp = qr[1].shiftLeft(1).compareTo(BigInteger.valueOf(d));
+        if (cmp > 0 || (cmp == 0 && (q & 1) == 1)) {
+            q++;
+        }
+        return sinal * q;
+    }
+
+    /** n / d (ambos não negativos) arredondado meio para o par. */
+    private static long dividirArredondando(long n, long d) {
+        long q = n / d;
+        long resto = n % d;
+        long dobro = resto * 2;
+        if (dobro > d || dobro < 0 || (dobro == d && (q & 1) == 1)) {
+            q++;
+        }
+        return q;
+    }
+
+    /** Formata centavos com o NumberFormat do relatório (pt-BR, até duas casas). */
+    public static String formatar(NumberFormat nf, long centavos) {
+        return nf.format(BigDecimal.valueOf(centavos, 2));
+    }
+
+    /** Valor em reais como double, só para proporções de gráfico. */
+    public static double emReais(long centavos) {
+        return centavos / 100.0;
+    }
+}
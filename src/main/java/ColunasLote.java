@@ -0,0 +1,387 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.zip.CRC32;
+
+/**
+ * Linhas do CSV guardadas em colunas de tipos primitivos, e o arquivo de cache
+ * ({@link #EXTENSAO}) que fica ao lado do CSV com essas mesmas colunas.
+ *
+ * Na primeira leitura de um CSV as colunas são montadas junto com a agregação e gravadas;
+ * nas seguintes, se o CSV não mudou, o cache é mapeado em memória e as linhas saem
+ * direto das colunas, sem decodificar texto. O cache só vale para o CSV com o mesmo
+ * tamanho, data de modificação e CRC-32 do conteúdo.
+ *
+ * Layout (big-endian): cabeçalho com a validação da origem, a {@link ContagemLinhas} da
+ * leitura que montou o cache e os dicionários das {@link Dimensao}; depois as colunas lote (byte), situação (byte), um int por dimensão,
+ * CPF (long) e valor em centavos (long), cada uma alinhada ao tamanho do seu tipo. Por
+ * último, as posições das linhas na ordem do {@link IndiceCpf} (quantidade e um int por
+ * linha; quantidade 0 se o arquivo passa de {@link IndiceCpf#MAXIMO_LINHAS}), para o
+ * --incremental montar o índice sem ordenar.
+ */
+public final class ColunasLote implements ConsumidorParticionavel<ColunasLote> {
+    public static final String EXTENSAO = ".colunas";
+
+    private static final int MAGICO = 0x4350434C; // "CPCL"
+    private static final int VERSAO = 3;
+    private static final int JANELA_CRC = 1 << 20;
+    // Mágico, versão, tamanho, data e CRC do CSV; depois vêm o número de linhas e a contagem
+    private static final int TAMANHO_VALIDACAO = 32;
+    private static final int TAMANHO_CABECALHO = 76;
+
+    private byte[] lote = new byte[1024];
+    private byte[] situacao = new byte[1024];
+    private int[][] codigos = new int[Dimensao.values().length][1024];
+    private long[] cpf = new long[1024];
+    private long[] valorCentavos = new long[1024];
+    private int tamanho;
+    // Algum lote não cabe num byte sem sinal: o cache não é gravado
+    private boolean loteForaDoFormato;
+
+    @Override
+    public void aceitar(LinhaLote linha) {
+        int l = linha.getLote();
+        if (l < 1) {
+            return; // ignorada por todos os consumidores
+        }
+        if (l > 0xFF) {
+            loteForaDoFormato = true;
+            return;
+        }
+        if (tamanho == lote.length) {
+            crescer(tamanho * 2);
+        }
+        lote[tamanho] = (byte) l;
+        situacao[tamanho] = linha.getSituacao();
+        for (int d = 0; d < codigos.length; d++) {
+            codigos[d][tamanho] = linha.codigos[d];
+        }
+        cpf[tamanho] = linha.cpf;
+        valorCentavos[tamanho] = linha.valorCentavos;
+        tamanho++;
+    }
+
+    private void crescer(int capacidade) {
+        lote = Arrays.copyOf(lote, capacidade);
+        situacao = Arrays.copyOf(situacao, capacidade);
+        for (int d = 0; d < codigos.length; d++) {
+            codigos[d] = Arrays.copyOf(codigos[d], capacidade);
+        }
+        cpf = Arrays.copyOf(cpf, capacidade);
+        valorCentavos = Arrays.copyOf(valorCentavos, capacidade);
+    }
+
+    @Override
+    public ColunasLote novoParcial() {
+        return new ColunasLote();
+    }
+
+    /** Acrescenta as linhas do pedaço seguinte; os códigos já são globais, não há tradução. */
+    @Override
+    public void somar(ColunasLote outro) {
+        int total = tamanho + outro.tamanho;
+        if (total > lote.length) {
+            crescer(Math.max(total, lote.length * 2));
+        }
+        System.arraycopy(outro.lote, 0, lote, tamanho, outro.tamanho);
+        System.arraycopy(outro.situacao, 0, situacao, tamanho, outro.tamanho);
+        for (int d = 0; d < codigos.length; d++) {
+            System.arraycopy(outro.codigos[d], 0, codigos[d], tamanho, outro.tamanho);
+        }
+        System.arraycopy(outro.cpf, 0, cpf, tamanho, outro.tamanho);
+        System.arraycopy(outro.valorCentavos, 0, valorCentavos, tamanho, outro.tamanho);
+        tamanho = total;
+        loteForaDoFormato |= outro.loteForaDoFormato;
+    }
+
+    public int size() {
+        return tamanho;
+    }
+
+    /** Caminho do cache de um CSV: o mesmo nome com {@link #EXTENSAO} no final. */
+    public static Path arquivoCache(Path csv) {
+        return csv.resolveSibling(csv.getFileName() + EXTENSAO);
+    }
+
+    /**
+     * Grava o cache do csv com as linhas acumuladas e a contagem da leitura que as
+     * produziu. Retorna false (sem gravar) se algum lote não couber no formato.
+     */
+    public boolean gravarCache(Path csv, ContagemLinhas contagem) throws IOException {
+        if (loteForaDoFormato) {
+            return false;
+        }
+        Path destino = arquivoCache(csv);
+        Path temporario = destino.resolveSibling(destino.getFileName() + ".tmp");
+        long tamanhoFonte = Files.size(csv);
+        long modificacaoFonte = Files.getLastModifiedTime(csv).toMillis();
+        long crcFonte = crc(csv);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(temporario), 1 << 16))) {
+            out.writeInt(MAGICO);
+            out.writeInt(VERSAO);
+            out.writeLong(tamanhoFonte);
+            out.writeLong(modificacaoFonte);
+            out.writeLong(crcFonte);
+            out.writeInt(tamanho);
+            contagem.gravar(out);
+            for (Dimensao d : Dimensao.values()) {
+                Dicionario dicionario = d.getDicionario();
+                int n = dicionario.size();
+                out.writeInt(n);
+                for (int c = 0; c < n; c++) {
+                    byte[] utf8 = dicionario.nome(c).getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(utf8.length);
+                    out.write(utf8);
+                }
+            }
+            alinhar(out, 8);
+            out.write(lote, 0, tamanho);
+            out.write(situacao, 0, tamanho);
+            alinhar(out, 4);
+            for (int[] coluna : codigos) {
+                for (int i = 0; i < tamanho; i++) {
+                    out.writeInt(coluna[i]);
+                }
+            }
+            alinhar(out, 8);
+            for (int i = 0; i < tamanho; i++) {
+                out.writeLong(cpf[i]);
+            }
+            for (int i = 0; i < tamanho; i++) {
+                out.writeLong(valorCentavos[i]);
+            }
+            if (tamanho > IndiceCpf.MAXIMO_LINHAS) {
+                out.writeInt(0);
+            } else {
+                out.writeInt(tamanho);
+                for (int posicao : IndiceCpf.ordem(cpf, tamanho, this::comparar)) {
+                    out.writeInt(posicao);
+                }
+            }
+        }
+        try {
+            Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return true;
+    }
+
+    /** Desempate do mesmo CPF na ordem do {@link IndiceCpf}: lote, situação e valor. */
+    private int comparar(int a, int b) {
+        if (lote[a] != lote[b]) return Integer.compare(lote[a] & 0xFF, lote[b] & 0xFF);
+        if (situacao[a] != situacao[b]) return Byte.compare(situacao[a], situacao[b]);
+        return Long.compare(valorCentavos[a], valorCentavos[b]);
+    }
+
+    private static void alinhar(DataOutputStream out, int alinhamento) throws IOException {
+        while (out.size() % alinhamento != 0) {
+            out.writeByte(0);
+        }
+    }
+
+    /**
+     * Entrega ao consumidor as linhas do cache do csv, se ele existir e ainda
+     * corresponder ao csv. Retorna false, sem entregar nenhuma linha, caso contrário.
+     */
+    public static boolean lerCache(Path csv, ConsumidorLinha consumidor) throws IOException {
+        return lerCache(csv, consumidor, null);
+    }
+
+    /** Como {@link #lerCache(Path, ConsumidorLinha)}; se contagem não for null, soma nela a gravada no cache. */
+    public static boolean lerCache(Path csv, ConsumidorLinha consumidor, ContagemLinhas contagem) throws IOException {
+        return lerCache(csv, contagem, consumidor);
+    }
+
+    /**
+     * Como {@link #lerCache(Path, ConsumidorLinha, ContagemLinhas)}, mas entrega todas as
+     * linhas a cada consumidor de passadas, um depois do outro, com uma única validação e um
+     * único mapeamento do cache (ex.: uma passada que conta e outra que agrega).
+     *
+     * O cabeçalho de validação é lido com FileChannel.read e o arquivo só é mapeado se ele
+     * corresponder ao CSV: um cache velho mapeado não poderia ser substituído no Windows
+     * enquanto a JVM não liberasse o mapeamento. Um cache truncado ou corrompido (contagens,
+     * tamanhos ou códigos fora do que o arquivo comporta) também retorna false.
+     */
+    public static boolean lerCache(Path csv, ContagemLinhas contagem, ConsumidorLinha... passadas) throws IOException {
+        return ler(csv, contagem, false, passadas);
+    }
+
+    /**
+     * Como {@link #lerCache(Path, ConsumidorLinha, ContagemLinhas)}, mas entrega as linhas
+     * na ordem do {@link IndiceCpf}, a gravada no cache. Retorna false também se o cache
+     * não tem essa ordem.
+     */
+    public static boolean lerCacheEmOrdemDeCpf(Path csv, ContagemLinhas contagem, ConsumidorLinha consumidor)
+            throws IOException {
+        return ler(csv, contagem, true, consumidor);
+    }
+
+    private static boolean ler(Path csv, ContagemLinhas contagem, boolean emOrdemDeCpf, ConsumidorLinha... passadas)
+            throws IOException {
+        Path cache = arquivoCache(csv);
+        if (!Files.isRegularFile(cache) || Files.size(cache) > Integer.MAX_VALUE) {
+            return false;
+        }
+        try (FileChannel canal = FileChannel.open(cache, StandardOpenOption.READ)) {
+            if (canal.size() < TAMANHO_CABECALHO) {
+                return false;
+            }
+            ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_VALIDACAO);
+            while (cabecalho.hasRemaining() && canal.read(cabecalho) >= 0) {
+                // lê até completar o cabeçalho ou chegar ao fim
+            }
+            cabecalho.flip();
+            if (cabecalho.remaining() < TAMANHO_VALIDACAO
+                    || cabecalho.getInt() != MAGICO || cabecalho.getInt() != VERSAO) {
+                return false;
+            }
+            // Tamanho e data primeiro: o CRC exige ler o CSV inteiro
+            if (cabecalho.getLong() != Files.size(csv) || cabecalho.getLong() != Files.getLastModifiedTime(csv).toMillis()) {
+                return false;
+            }
+            if (cabecalho.getLong() != crc(csv)) {
+                return false;
+            }
+            MappedByteBuffer buf = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            buf.position(TAMANHO_VALIDACAO);
+            int n = buf.getInt();
+            ContagemLinhas gravada = ContagemLinhas.ler(buf);
+            if (n < 0 || 16L * n + buf.position() > buf.limit()) {
+                return false;
+            }
+            // Os códigos do arquivo viram códigos dos dicionários desta execução
+            int[][] traducao = new int[Dimensao.values().length][];
+            for (Dimensao d : Dimensao.values()) {
+                if (buf.remaining() < 4) {
+                    return false;
+                }
+                int quantidade = buf.getInt();
+                if (quantidade < 0 || quantidade > buf.remaining() / 4) {
+                    return false;
+                }
+                int[] t = new int[quantidade];
+                for (int c = 0; c < t.length; c++) {
+                    if (buf.remaining() < 4) {
+                        return false;
+                    }
+                    int tamanho = buf.getInt();
+                    if (tamanho < 0 || tamanho > buf.remaining()) {
+                        return false;
+                    }
+                    byte[] utf8 = new byte[tamanho];
+                    buf.get(utf8);
+                    t[c] = d.getDicionario().codigo(utf8);
+                }
+                traducao[d.ordinal()] = t;
+            }
+            int pos = alinhado(buf.position(), 8);
+            if ((long) pos + 2L * n > buf.limit()) {
+                return false;
+            }
+            ByteBuffer lotes = fatia(buf, pos, n);
+            ByteBuffer situacoes = fatia(buf, pos + n, n);
+            pos = alinhado(pos + 2 * n, 4);
+            if ((long) pos + 4L * n * traducao.length > buf.limit()) {
+                return false;
+            }
+            IntBuffer[] colunasCodigo = new IntBuffer[traducao.length];
+            for (int d = 0; d < traducao.length; d++) {
+                colunasCodigo[d] = fatia(buf, pos, 4 * n).asIntBuffer();
+                pos += 4 * n;
+                // Nenhuma linha é entregue antes de todos os códigos caberem no dicionário
+                for (int i = 0; i < n; i++) {
+                    int codigo = colunasCodigo[d].get(i);
+                    if (codigo < 0 || codigo >= traducao[d].length) {
+                        return false;
+                    }
+                }
+            }
+            pos = alinhado(pos, 8);
+            if ((long) pos + 16L * n > buf.limit()) {
+                return false; // gravação interrompida
+            }
+            LongBuffer cpfs = fatia(buf, pos, 8 * n).asLongBuffer();
+            LongBuffer valores = fatia(buf, pos + 8 * n, 8 * n).asLongBuffer();
+            pos += 16 * n;
+            IntBuffer ordem = null;
+            if (emOrdemDeCpf) {
+                if ((long) pos + 4L + 4L * n > buf.limit() || buf.getInt(pos) != n) {
+                    return false; // sem a ordem por CPF
+                }
+                ordem = fatia(buf, pos + 4, 4 * n).asIntBuffer();
+                // Cada linha uma vez: uma ordem danificada não pode repetir nem pular linhas
+                BitSet vistas = new BitSet(n);
+                for (int k = 0; k < n; k++) {
+                    int i = ordem.get(k);
+                    if (i < 0 || i >= n || vistas.get(i)) {
+                        return false;
+                    }
+                    vistas.set(i);
+                }
+            }
+
+            LinhaLote linha = new LinhaLote();
+            for (ConsumidorLinha consumidor : passadas) {
+                for (int k = 0; k < n; k++) {
+                    int i = ordem == null ? k : ordem.get(k);
+                    linha.lote = lotes.get(i) & 0xFF;
+                    linha.setSituacao(situacoes.get(i));
+                    for (int d = 0; d < traducao.length; d++) {
+                        linha.codigos[d] = traducao[d][colunasCodigo[d].get(i)];
+                    }
+                    linha.cpf = cpfs.get(i);
+                    linha.valorCentavos = valores.get(i);
+                    consumidor.aceitar(linha);
+                }
+            }
+            if (contagem != null) {
+                contagem.somar(gravada);
+            }
+            return true;
+        }
+    }
+
+    private static int alinhado(int pos, int alinhamento) {
+        return (pos + alinhamento - 1) / alinhamento * alinhamento;
+    }
+
+    private static ByteBuffer fatia(ByteBuffer buf, int inicio, int tamanho) {
+        ByteBuffer dup = buf.duplicate();
+        dup.position(inicio);
+        dup.limit(inicio + tamanho);
+        return dup.slice();
+    }
+
+    /**
+     * CRC-32 do conteúdo do arquivo, lido em janelas num buffer direto. Sem mapear o CSV:
+     * no Windows um arquivo mapeado não pode ser substituído enquanto o mapeamento vive,
+     * e o exportador precisa sobrescrever o CSV a qualquer momento.
+     */
+    static long crc(Path arquivo) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer janela = ByteBuffer.allocateDirect(JANELA_CRC);
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            while (canal.read(janela) >= 0) {
+                janela.flip();
+                crc.update(janela);
+                janela.clear();
+            }
+        }
+        return crc.getValue();
+    }
+}
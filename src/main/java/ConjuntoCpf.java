@@ -0,0 +1,125 @@
+/**
+ * Conjunto de CPFs com endereçamento aberto, em que cada CPF guarda um valor pequeno
+ * (até {@link #BITS_VALOR} bits). CPF e valor vão empacotados num único long, como na
+ * ordenação do {@link IndiceCpf}: um CPF tem 11 dígitos (cabe em 37 bits) e o valor ocupa
+ * os bits de baixo. Com o array no máximo 3/4 cheio, são de 11 a 21 bytes por CPF (um
+ * milhão de CPFs em 16 MB), contra mais de 100 de um HashSet&lt;String&gt; com o CPF como
+ * texto.
+ */
+public final class ConjuntoCpf {
+    static final int BITS_VALOR = 26;
+    static final int MAIOR_VALOR = (1 << BITS_VALOR) - 1;
+    // Acima de 10^11 - 1 o CPF não cabe nos bits de cima
+    private static final long MAIOR_CPF = 99_999_999_999L;
+
+    // (cpf + 1) << BITS_VALOR | valor; 0 é posição vazia
+    private long[] entradas;
+    private int tamanho;
+
+    public ConjuntoCpf() {
+        this(1024);
+    }
+
+    public ConjuntoCpf(int capacidadeInicial) {
+        entradas = new long[Integer.highestOneBit(Math.max(4, capacidadeInicial * 4 / 3) * 2 - 1)];
+    }
+
+    /** Valor guardado com o CPF, ou -1 se ele não está no conjunto. */
+    public int valor(long cpf) {
+        checar(cpf, 0);
+        long chave = cpf + 1;
+        int mascara = entradas.length - 1;
+        for (int i = espalhar(chave) & mascara; ; i = (i + 1) & mascara) {
+            long e = entradas[i];
+            if (e == 0) {
+                return -1;
+            }
+            if (e >>> BITS_VALOR == chave) {
+                return (int) (e & MAIOR_VALOR);
+            }
+        }
+    }
+
+    /**
+     * Acrescenta o CPF com o valor dado e devolve -1; se ele já estava no conjunto, não
+     * muda nada e devolve o valor que ele já tinha.
+     */
+    public int adicionar(long cpf, int valor) {
+        checar(cpf, valor);
+        long chave = cpf + 1;
+        int mascara = entradas.length - 1;
+        int i = espalhar(chave) & mascara;
+        for (long e; (e = entradas[i]) != 0; i = (i + 1) & mascara) {
+            if (e >>> BITS_VALOR == chave) {
+                return (int) (e & MAIOR_VALOR);
+            }
+        }
+        entradas[i] = chave << BITS_VALOR | valor;
+        if (++tamanho * 4L > entradas.length * 3L) {
+            crescer();
+        }
+        return -1;
+    }
+
+    /** Troca o valor guardado com um CPF que já está no conjunto. */
+    public void substituir(long cpf, int valor) {
+        checar(cpf, valor);
+        long chave = cpf + 1;
+        int mascara = entradas.length - 1;
+        for (int i = espalhar(chave) & mascara; entradas[i] != 0; i = (i + 1) & mascara) {
+            if (entradas[i] >>> BITS_VALOR == chave) {
+                entradas[i] = chave << BITS_VALOR | valor;
+                return;
+            }
+        }
+        throw new IllegalArgumentException("CPF fora do conjunto: " + cpf);
+    }
+
+    public int size() {
+        return tamanho;
+    }
+
+    /** Quantidade de posições do array, para percorrer o conjunto com {@link #cpfNaPosicao(int)}. */
+    int posicoes() {
+        return entradas.length;
+    }
+
+    /** CPF guardado na posição i do array, ou -1 se ela está vazia. */
+    long cpfNaPosicao(int i) {
+        return (entradas[i] >>> BITS_VALOR) - 1;
+    }
+
+    /** Valor guardado na posição i do array; só faz sentido se ela não está vazia. */
+    int valorNaPosicao(int i) {
+        return (int) (entradas[i] & MAIOR_VALOR);
+    }
+
+    private void crescer() {
+        long[] antigas = entradas;
+        entradas = new long[antigas.length * 2];
+        int mascara = entradas.length - 1;
+        for (long e : antigas) {
+            if (e != 0) {
+                int i = espalhar(e >>> BITS_VALOR) & mascara;
+                while (entradas[i] != 0) {
+                    i = (i + 1) & mascara;
+                }
+                entradas[i] = e;
+            }
+        }
+    }
+
+    private static int espalhar(long chave) {
+        long h = chave * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static void checar(long cpf, int valor) {
+        if (cpf < 0 || cpf > MAIOR_CPF) {
+            throw new IllegalArgumentException("CPF fora do intervalo: " + cpf);
+        }
+        if (valor < 0 || valor > MAIOR_VALOR) {
+            throw new IllegalArgumentException("Valor fora do intervalo do conjunto de CPFs: " + valor);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+/**
+ * Recebe as linhas decodificadas do CSV, uma por vez, na ordem do arquivo.
+ */
+public interface ConsumidorLinha {
+    void aceitar(LinhaLote linha);
+}
@@ -0,0 +1,11 @@
+/**
+ * Consumidor que pode ser dividido entre os pedaços da leitura paralela: cada pedaço
+ * preenche um parcial vazio e os parciais são juntados no final, na ordem do arquivo.
+ */
+public interface ConsumidorParticionavel<T extends ConsumidorParticionavel<T>> extends ConsumidorLinha {
+    /** Consumidor vazio com a mesma configuração, para um pedaço do arquivo. */
+    T novoParcial();
+
+    /** Junta a este o parcial do pedaço que vem logo depois no arquivo. */
+    void somar(T outro);
+}
@@ -0,0 +1,88 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Quantas linhas do CSV foram lidas e por que algumas não entraram no relatório.
+ *
+ * Cada decodificador conta as suas; na leitura paralela as contagens dos pedaços são
+ * somadas, e o cache em colunas guarda a contagem da leitura que o montou (as linhas
+ * descartadas não estão nele).
+ */
+public final class ContagemLinhas {
+    // Linhas de dados não vazias, depois do cabeçalho
+    long linhas;
+    long loteVazio;
+    // Lote que não é número inteiro
+    long loteInvalido;
+    // Lote zero ou negativo: decodificado, mas ignorado por todos os consumidores
+    long loteMenorQueUm;
+    // Linhas aceitas com valor que não é número (somam zero)
+    long valorInvalido;
+
+    void somar(ContagemLinhas outra) {
+        linhas += outra.linhas;
+        loteVazio += outra.loteVazio;
+        loteInvalido += outra.loteInvalido;
+        loteMenorQueUm += outra.loteMenorQueUm;
+        valorInvalido += outra.valorInvalido;
+    }
+
+    void gravar(DataOutput out) throws IOException {
+        out.writeLong(linhas);
+        out.writeLong(loteVazio);
+        out.writeLong(loteInvalido);
+        out.writeLong(loteMenorQueUm);
+        out.writeLong(valorInvalido);
+    }
+
+    static ContagemLinhas ler(DataInput in) throws IOException {
+        ContagemLinhas c = new ContagemLinhas();
+        c.linhas = in.readLong();
+        c.loteVazio = in.readLong();
+        c.loteInvalido = in.readLong();
+        c.loteMenorQueUm = in.readLong();
+        c.valorInvalido = in.readLong();
+        return c;
+    }
+
+    static ContagemLinhas ler(ByteBuffer buf) {
+        ContagemLinhas c = new ContagemLinhas();
+        c.linhas = buf.getLong();
+        c.loteVazio = buf.getLong();
+        c.loteInvalido = buf.getLong();
+        c.loteMenorQueUm = buf.getLong();
+        c.valorInvalido = buf.getLong();
+        return c;
+    }
+
+    public long getLinhas() {
+        return linhas;
+    }
+
+    /** Linhas que chegaram aos acumuladores. */
+    public long getAceitas() {
+        return linhas - getDescartadas();
+    }
+
+    public long getDescartadas() {
+        return loteVazio + loteInvalido + loteMenorQueUm;
+    }
+
+    public long getLoteVazio() {
+        return loteVazio;
+    }
+
+    public long getLoteInvalido() {
+        return loteInvalido;
+    }
+
+    public long getLoteMenorQueUm() {
+        return loteMenorQueUm;
+    }
+
+    public long getValorInvalido() {
+        return valorInvalido;
+    }
+}
@@ -0,0 +1,271 @@
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Cubo denso de agregação por lote, órgão, vínculo, status da prova de vida e status do
+ * recadastro, preenchido na mesma leitura do CSV que os acumuladores por lote.
+ *
+ * Cada célula guarda linhas, desbloqueados e valor em centavos, em arrays primitivos
+ * indexados pelas coordenadas (posição do lote no {@link RegistroLotes} e códigos dos
+ * dicionários globais das {@link Dimensao}). Um eixo cresce, refazendo o layout, quando
+ * aparece um código além da capacidade dele. Qualquer recorte (somar eixos, filtrar,
+ * agrupar por um eixo) sai das células, sem reler o arquivo.
+ */
+public final class CuboAgregacao implements ConsumidorParticionavel<CuboAgregacao> {
+    private static final EixoCubo[] EIXOS = EixoCubo.values();
+    // Proteção contra dicionários inesperadamente grandes (ex.: coluna errada como órgão)
+    private static final long MAXIMO_CELULAS = 1L << 24;
+
+    private final RegistroLotes lotes = new RegistroLotes();
+    // Capacidade de cada eixo, por EixoCubo.ordinal(); o lote é o eixo mais externo
+    private final int[] capacidade = new int[EIXOS.length];
+    private long[] linhas;
+    private long[] desbloqueados;
+    private long[] valorCentavos;
+    // Se cada código de vínculo é de inativo, para os recortes da variante INATIVOS
+    private boolean[] vinculoInativo = new boolean[8];
+    private final int[] coordenadas = new int[EIXOS.length];
+
+    public CuboAgregacao() {
+        Arrays.fill(capacidade, 2);
+        capacidade[EixoCubo.ORGAO.ordinal()] = 32;
+        capacidade[EixoCubo.VINCULO.ordinal()] = 8;
+        capacidade[EixoCubo.LOTE.ordinal()] = 8;
+        int celulas = (int) totalCelulas(capacidade);
+        linhas = new long[celulas];
+        desbloqueados = new long[celulas];
+        valorCentavos = new long[celulas];
+    }
+
+    @Override
+    public void aceitar(LinhaLote linha) {
+        int lote = linha.getLote();
+        if (lote < 1) {
+            return;
+        }
+        int[] c = coordenadas;
+        for (int e = 0; e < EIXOS.length; e++) {
+            Dimensao d = EIXOS[e].getDimensao();
+            c[e] = d == null ? lotes.slot(lote) : linha.getCodigo(d);
+        }
+        int i = indice(c);
+        linhas[i]++;
+        if (linha.isDesbloqueado()) {
+            desbloqueados[i]++;
+        }
+        valorCentavos[i] += linha.getValorCentavos();
+
+        int vinculo = c[EixoCubo.VINCULO.ordinal()];
+        if (vinculo >= vinculoInativo.length) {
+            vinculoInativo = Arrays.copyOf(vinculoInativo, Math.max(vinculo + 1, vinculoInativo.length * 2));
+        }
+        vinculoInativo[vinculo] = linha.isInativo();
+    }
+
+    @Override
+    public CuboAgregacao novoParcial() {
+        return new CuboAgregacao();
+    }
+
+    @Override
+    public void somar(CuboAgregacao outro) {
+        int[] c = new int[EIXOS.length];
+        for (int j = 0; j < outro.linhas.length; j++) {
+            if (outro.linhas[j] == 0) {
+                continue;
+            }
+            outro.coordenadasDe(j, c);
+            c[EixoCubo.LOTE.ordinal()] = lotes.slot(outro.lotes.lote(c[EixoCubo.LOTE.ordinal()]));
+            int i = indice(c);
+            linhas[i] += outro.linhas[j];
+            desbloqueados[i] += outro.desbloqueados[j];
+            valorCentavos[i] += outro.valorCentavos[j];
+        }
+        if (outro.vinculoInativo.length > vinculoInativo.length) {
+            vinculoInativo = Arrays.copyOf(vinculoInativo, outro.vinculoInativo.length);
+        }
+        for (int v = 0; v < outro.vinculoInativo.length; v++) {
+            vinculoInativo[v] |= outro.vinculoInativo[v];
+        }
+    }
+
+    /** Índice da célula, ampliando os eixos se alguma coordenada não couber. */
+    private int indice(int[] c) {
+        for (int e = 0; e < c.length; e++) {
+            if (c[e] >= capacidade[e]) {
+                ampliar(c);
+                break;
+            }
+        }
+        int i = 0;
+        for (int e = 0; e < c.length; e++) {
+            i = i * capacidade[e] + c[e];
+        }
+        return i;
+    }
+
+    private void coordenadasDe(int indice, int[] c) {
+        for (int e = c.length - 1; e >= 0; e--) {
+            c[e] = indice % capacidade[e];
+            indice /= capacidade[e];
+        }
+    }
+
+    private void ampliar(int[] c) {
+        int[] nova = capacidade.clone();
+        for (int e = 0; e < c.length; e++) {
+            while (c[e] >= nova[e]) {
+                nova[e] *= 2;
+            }
+        }
+        long celulas = totalCelulas(nova);
+        if (celulas > MAXIMO_CELULAS) {
+            throw new IllegalStateException("Cubo de agregação grande demais (" + celulas + " células): "
+                    + Dimensao.ORGAO.getDicionario().size() + " órgãos, " + lotes.size() + " lotes");
+        }
+        long[] novasLinhas = new long[(int) celulas];
+        long[] novosDesbloqueados = new long[(int) celulas];
+        long[] novosValores = new long[(int) celulas];
+        int[] coord = new int[c.length];
+        for (int j = 0; j < linhas.length; j++) {
+            if (linhas[j] == 0) {
+                continue;
+            }
+            coordenadasDe(j, coord);
+            int i = 0;
+            for (int e = 0; e < coord.length; e++) {
+                i = i * nova[e] + coord[e];
+            }
+            novasLinhas[i] = linhas[j];
+            novosDesbloqueados[i] = desbloqueados[j];
+            novosValores[i] = valorCentavos[j];
+        }
+        System.arraycopy(nova, 0, capacidade, 0, nova.length);
+        linhas = novasLinhas;
+        desbloqueados = novosDesbloqueados;
+        valorCentavos = novosValores;
+    }
+
+    private static long totalCelulas(int[] capacidade) {
+        long total = 1;
+        for (int c : capacidade) {
+            total *= c;
+        }
+        return total;
+    }
+
+    /**
+     * Agrupa as células pelo eixo do recorte, só com as que passam nos filtros e nas
+     * linhas aceitas pela variante. Lotes saem em ordem numérica; os demais eixos, em
+     * ordem alfabética.
+     */
+    public Fatia fatiar(Recorte recorte, Variante variante) {
+        boolean[][] permitido = new boolean[EIXOS.length][];
+        for (int f = 0; f < recorte.getQuantidadeFiltros(); f++) {
+            EixoCubo eixo = recorte.getEixoFiltro(f);
+            boolean[] aceitos = codigosAceitos(eixo, recorte.getValoresFiltro(f));
+            boolean[] anterior = permitido[eixo.ordinal()];
+            if (anterior != null) {
+                for (int k = 0; k < aceitos.length; k++) {
+                    aceitos[k] &= anterior[k];
+                }
+            }
+            permitido[eixo.ordinal()] = aceitos;
+        }
+        int iv = EixoCubo.VINCULO.ordinal();
+        boolean[] vinculos = permitido[iv] != null ? permitido[iv] : cheio(capacidade[iv]);
+        for (int k = 0; k < vinculos.length; k++) {
+            vinculos[k] &= variante.aceita(k < vinculoInativo.length && vinculoInativo[k]);
+        }
+        permitido[iv] = vinculos;
+
+        int g = recorte.getAgrupamento().ordinal();
+        long[] somaLinhas = new long[capacidade[g]];
+        long[] somaDesbloqueados = new long[capacidade[g]];
+        long[] somaValor = new long[capacidade[g]];
+        int[] c = new int[EIXOS.length];
+        celulas:
+        for (int j = 0; j < linhas.length; j++) {
+            if (linhas[j] == 0) {
+                continue;
+            }
+            coordenadasDe(j, c);
+            for (int e = 0; e < c.length; e++) {
+                if (permitido[e] != null && !permitido[e][c[e]]) {
+                    continue celulas;
+                }
+            }
+            somaLinhas[c[g]] += linhas[j];
+            somaDesbloqueados[c[g]] += desbloqueados[j];
+            somaValor[c[g]] += valorCentavos[j];
+        }
+
+        Integer[] grupos = new Integer[somaLinhas.length];
+        int n = 0;
+        for (int k = 0; k < somaLinhas.length; k++) {
+            if (somaLinhas[k] != 0) {
+                grupos[n++] = k;
+            }
+        }
+        grupos = Arrays.copyOf(grupos, n);
+        EixoCubo agrupamento = recorte.getAgrupamento();
+        if (agrupamento == EixoCubo.LOTE) {
+            Arrays.sort(grupos, Comparator.comparingInt(lotes::lote));
+        } else {
+            Dicionario dicionario = agrupamento.getDimensao().getDicionario();
+            Arrays.sort(grupos, Comparator.comparing(dicionario::nome));
+        }
+        String[] rotulos = new String[n];
+        long[] l = new long[n];
+        long[] d = new long[n];
+        long[] v = new long[n];
+        for (int k = 0; k < n; k++) {
+            int grupo = grupos[k];
+            rotulos[k] = rotulo(agrupamento, grupo);
+            l[k] = somaLinhas[grupo];
+            d[k] = somaDesbloqueados[grupo];
+            v[k] = somaValor[grupo];
+        }
+        return new Fatia(recorte, rotulos, l, d, v);
+    }
+
+    /** Coordenadas do eixo cujo valor está entre os pedidos. */
+    private boolean[] codigosAceitos(EixoCubo eixo, String[] valores) {
+        boolean[] aceitos = new boolean[capacidade[eixo.ordinal()]];
+        for (int k = 0; k < aceitos.length; k++) {
+            String nome = nomeDaCoordenada(eixo, k);
+            if (nome == null) {
+                continue;
+            }
+            for (String valor : valores) {
+                if (nome.equalsIgnoreCase(valor)) {
+                    aceitos[k] = true;
+                }
+            }
+        }
+        return aceitos;
+    }
+
+    /** Texto da coordenada no eixo (o número, para lotes), ou null se ela não existe. */
+    private String nomeDaCoordenada(EixoCubo eixo, int k) {
+        if (eixo == EixoCubo.LOTE) {
+            return k < lotes.size() ? String.valueOf(lotes.lote(k)) : null;
+        }
+        Dicionario dicionario = eixo.getDimensao().getDicionario();
+        return k < dicionario.size() ? dicionario.nome(k) : null;
+    }
+
+    private String rotulo(EixoCubo eixo, int k) {
+        if (eixo == EixoCubo.LOTE) {
+            return lotes.lote(k) + "ª";
+        }
+        String nome = nomeDaCoordenada(eixo, k);
+        return nome.isEmpty() ? "(vazio)" : nome;
+    }
+
+    private static boolean[] cheio(int n) {
+        boolean[] b = new boolean[n];
+        Arrays.fill(b, true);
+        return b;
+    }
+}
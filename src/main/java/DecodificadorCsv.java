@@ -0,0 +1,459 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Decodificador do CSV de lotes que trabalha direto sobre os bytes do arquivo.
+ *
+ * O cabeçalho (com ou sem BOM) é resolvido uma única vez em índices fixos de coluna.
+ * Depois disso cada linha é só delimitada: das colunas usadas no relatório guardamos
+ * as posições de início e fim no buffer e convertemos os valores sem criar Strings,
+ * CSVRecord ou exceções por registro.
+ */
+public final class DecodificadorCsv {
+    private static final byte DELIMITADOR = ';';
+    private static final byte ASPAS = '"';
+    private static final int TAMANHO_JANELA = 1 << 20;
+    // BOM do UTF-8 lido como Windows-1252 e gravado de novo em UTF-8
+    private static final String BOM_DUPLO = "\u00EF\u00BB\u00BF";
+
+    private static final byte[] REALIZADA = bytes("REALIZADA");
+    private static final byte[] REALIZADO = bytes("REALIZADO");
+    private static final byte[] ATIVO = bytes("ATIVO");
+    private static final byte[] AGUARDANDO = bytes("AGUARDANDO");
+
+    // Colunas extraídas de cada linha, na ordem dos slots abaixo
+    private static final String[] COLUNAS = {
+            "lote_suspensao", "valor", "status_cearaprev", "status_recadastro", "status_vinculo", "cpf", "orgao",
+            "matricula"};
+    // As demais podem faltar em exportações antigas
+    private static final int OBRIGATORIAS = 5;
+    private static final int LOTE = 0;
+    private static final int VALOR = 1;
+    private static final int STATUS_CEARAPREV = 2;
+    private static final int STATUS_RECADASTRO = 3;
+    private static final int VINCULO = 4;
+    private static final int CPF = 5;
+    // A exportação chama o órgão de "nome", igual ao nome do beneficiário: é o segundo "nome"
+    private static final int ORGAO = 6;
+    // Só para o anexo de beneficiários; não vira número (tem zeros à esquerda e dígito X)
+    private static final int MATRICULA = 7;
+    // Slot da coluna de cada Dimensao, por ordinal
+    private static final int[] SLOT_DA_DIMENSAO = {STATUS_CEARAPREV, STATUS_RECADASTRO, VINCULO, ORGAO};
+
+    // slotDaColuna[indice da coluna no arquivo] = slot em COLUNAS, ou -1 se a coluna é ignorada
+    private final int[] slotDaColuna;
+    private final int[] inicio = new int[COLUNAS.length];
+    private final int[] fim = new int[COLUNAS.length];
+    private final LinhaLote linha = new LinhaLote();
+    private final ContagemLinhas contagem = new ContagemLinhas();
+    private final DicionarioLocal[] dicionarios = new DicionarioLocal[SLOT_DA_DIMENSAO.length];
+    private boolean linhaVazia;
+    // Alguma quebra de linha apareceu dentro de campo entre aspas
+    private boolean quebraEntreAspas;
+
+    private DecodificadorCsv(int[] slotDaColuna) {
+        this.slotDaColuna = slotDaColuna;
+        for (Dimensao d : Dimensao.values()) {
+            dicionarios[d.ordinal()] = new DicionarioLocal(d.getDicionario());
+        }
+    }
+
+    /** Decodificador independente para o mesmo cabeçalho, para uso em outra thread. */
+    DecodificadorCsv copia() {
+        return new DecodificadorCsv(slotDaColuna);
+    }
+
+    /**
+     * Indica se algum campo entre aspas continha quebra de linha. Nesse caso o arquivo
+     * não pode ser dividido em pedaços pelas quebras de linha.
+     */
+    boolean teveQuebraEntreAspas() {
+        return quebraEntreAspas;
+    }
+
+    /** Se a coluna de índice dado (a partir de 0) é uma das que o relatório lê. */
+    boolean usaColuna(int coluna) {
+        return coluna < slotDaColuna.length && slotDaColuna[coluna] >= 0;
+    }
+
+    /** Se a coluna de índice dado é a do valor pago. */
+    boolean ehColunaDeValor(int coluna) {
+        return coluna < slotDaColuna.length && slotDaColuna[coluna] == VALOR;
+    }
+
+    /** Linhas vistas por este decodificador e os descartes de cada motivo. */
+    ContagemLinhas getContagem() {
+        return contagem;
+    }
+
+    /**
+     * Lê o arquivo inteiro em janelas de tamanho fixo, entregando cada linha com lote
+     * válido ao consumidor. Linhas com lote vazio ou não numérico são descartadas,
+     * como sempre foram no relatório; a contagem retornada diz quantas e por quê.
+     * Uma planilha .xlsx, reconhecida pelo conteúdo, é lida pelo PlanilhaXlsx.
+     */
+    public static ContagemLinhas lerArquivo(Path arquivo, ConsumidorLinha consumidor) throws IOException {
+        if (PlanilhaXlsx.ehPlanilha(arquivo)) {
+            return PlanilhaXlsx.ler(arquivo, consumidor);
+        }
+        return lerArquivo(arquivo, consumidor, TAMANHO_JANELA);
+    }
+
+    static ContagemLinhas lerArquivo(Path arquivo, ConsumidorLinha consumidor, int tamanhoJanela) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocate(tamanhoJanela);
+            DecodificadorCsv decodificador = null;
+            boolean fimDeArquivo = false;
+            while (!fimDeArquivo) {
+                while (buf.hasRemaining()) {
+                    if (canal.read(buf) < 0) {
+                        fimDeArquivo = true;
+                        break;
+                    }
+                }
+                int ini = 0;
+                int limite = buf.position();
+                if (decodificador == null) {
+                    ini = pularBom(buf, 0, limite);
+                    int fimCabecalho = fimDaLinha(buf, ini, limite, fimDeArquivo);
+                    if (fimCabecalho < 0) {
+                        buf = crescerSeCheio(buf);
+                        continue;
+                    }
+                    decodificador = doCabecalho(buf, ini, fimCabecalho);
+                    ini = fimCabecalho;
+                }
+                int consumido = decodificador.varrer(buf, ini, limite, fimDeArquivo, consumidor);
+                if (consumido == 0 && !buf.hasRemaining()) {
+                    // Uma única linha maior que a janela
+                    buf = crescerSeCheio(buf);
+                    continue;
+                }
+                buf.limit(limite);
+                buf.position(consumido);
+                buf.compact();
+            }
+            return decodificador == null ? new ContagemLinhas() : decodificador.contagem;
+        }
+    }
+
+    /**
+     * Resolve o cabeçalho em [ini, fim) para os índices das colunas usadas.
+     * O BOM já deve ter sido pulado; ainda assim um BOM que sobrar no início do nome é ignorado,
+     * também o codificado duas vezes (ï»¿). Nomes com o mesmo defeito (Ã³rgÃ£o) passam
+     * pelo {@link Dicionario#reparar(String)}, como os textos das colunas.
+     */
+    static DecodificadorCsv doCabecalho(ByteBuffer buf, int ini, int fim) {
+        int eol = fim;
+        while (eol > ini && (buf.get(eol - 1) == '\n' || buf.get(eol - 1) == '\r')) {
+            eol--;
+        }
+        byte[] bytes = new byte[eol - ini];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buf.get(ini + i);
+        }
+        String[] nomes = new String(bytes, StandardCharsets.UTF_8).split(";", -1);
+        int[] slotDaColuna = new int[nomes.length];
+        Arrays.fill(slotDaColuna, -1);
+        boolean nomeVisto = false;
+        for (int c = 0; c < nomes.length; c++) {
+            String nome = nomes[c].trim();
+            if (nome.startsWith("\uFEFF")) {
+                nome = nome.substring(1).trim();
+            } else if (nome.startsWith(BOM_DUPLO)) {
+                nome = nome.substring(BOM_DUPLO.length()).trim();
+            }
+            if (nome.length() >= 2 && nome.startsWith("\"") && nome.endsWith("\"")) {
+                nome = nome.substring(1, nome.length() - 1);
+            }
+            nome = Dicionario.reparar(nome);
+            if (nome.equals("nome")) {
+                if (nomeVisto) {
+                    nome = COLUNAS[ORGAO];
+                }
+                nomeVisto = true;
+            } else if (nome.equals("órgão")) {
+                nome = COLUNAS[ORGAO];
+            } else if (nome.equals("matrícula")) {
+                nome = COLUNAS[MATRICULA];
+            }
+            for (int s = 0; s < COLUNAS.length; s++) {
+                if (COLUNAS[s].equals(nome) && indiceDoSlot(slotDaColuna, s) < 0) {
+                    slotDaColuna[c] = s;
+                }
+            }
+        }
+        for (int s = 0; s < OBRIGATORIAS; s++) {
+            if (indiceDoSlot(slotDaColuna, s) < 0) {
+                throw new IllegalArgumentException("Coluna '" + COLUNAS[s] + "' não encontrada no cabeçalho do CSV");
+            }
+        }
+        return new DecodificadorCsv(slotDaColuna);
+    }
+
+    /**
+     * Varre as linhas completas em [ini, fim), entregando cada uma ao consumidor.
+     * Retorna a posição logo após a última linha completa; o restante fica para a
+     * próxima janela, a não ser que seja o fim do arquivo.
+     */
+    int varrer(ByteBuffer buf, int ini, int fim, boolean fimDeArquivo, ConsumidorLinha consumidor) {
+        int pos = ini;
+        while (pos < fim) {
+            int prox = delimitarCampos(buf, pos, fim, fimDeArquivo);
+            if (prox < 0) {
+                break;
+            }
+            if (!linhaVazia && decodificar(buf)) {
+                consumidor.aceitar(linha);
+            }
+            pos = prox;
+        }
+        return pos;
+    }
+
+    /**
+     * Marca início e fim das colunas usadas da linha que começa em pos.
+     * Retorna o início da próxima linha, ou -1 se a linha ainda não terminou no buffer.
+     */
+    private int delimitarCampos(ByteBuffer buf, int pos, int limite, boolean fimDeArquivo) {
+        for (int s = 0; s < inicio.length; s++) {
+            inicio[s] = 0;
+            fim[s] = 0;
+        }
+        int coluna = 0;
+        int inicioCampo = pos;
+        boolean entreAspas = false;
+        for (int i = pos; i < limite; i++) {
+            byte b = buf.get(i);
+            if (entreAspas) {
+                if (b == '\n' || b == '\r') {
+                    quebraEntreAspas = true;
+                } else if (b == ASPAS) {
+                    if (i + 1 >= limite && !fimDeArquivo) {
+                        return -1;
+                    }
+                    if (i + 1 < limite && buf.get(i + 1) == ASPAS) {
+                        i++; // aspas duplicadas dentro do campo
+                    } else {
+                        entreAspas = false;
+                    }
+                }
+                continue;
+            }
+            if (b == ASPAS && i == inicioCampo) {
+                entreAspas = true;
+            } else if (b == DELIMITADOR) {
+                marcar(coluna++, inicioCampo, i);
+                inicioCampo = i + 1;
+            } else if (b == '\n' || b == '\r') {
+                marcar(coluna, inicioCampo, i);
+                linhaVazia = i == pos;
+                if (b == '\r') {
+                    if (i + 1 < limite) {
+                        return buf.get(i + 1) == '\n' ? i + 2 : i + 1;
+                    }
+                    if (!fimDeArquivo) {
+                        return -1;
+                    }
+                }
+                return i + 1;
+            }
+        }
+        if (!fimDeArquivo) {
+            return -1;
+        }
+        // Última linha do arquivo sem quebra de linha
+        marcar(coluna, inicioCampo, limite);
+        linhaVazia = limite == pos;
+        return limite;
+    }
+
+    private void marcar(int coluna, int ini, int fimCampo) {
+        if (coluna < slotDaColuna.length) {
+            int s = slotDaColuna[coluna];
+            if (s >= 0) {
+                inicio[s] = ini;
+                fim[s] = fimCampo;
+            }
+        }
+    }
+
+    /** Converte os campos marcados; retorna false se o lote estiver vazio ou não for número. */
+    private boolean decodificar(ByteBuffer buf) {
+        aparar(buf);
+        contagem.linhas++;
+        if (inicio[LOTE] >= fim[LOTE]) {
+            contagem.loteVazio++;
+            return false;
+        }
+        if (!lerLote(buf, inicio[LOTE], fim[LOTE])) {
+            contagem.loteInvalido++;
+            return false;
+        }
+        if (linha.lote < 1) {
+            contagem.loteMenorQueUm++;
+        }
+        long valor = Centavos.ler(buf, inicio[VALOR], fim[VALOR]);
+        linha.valorValido = valor != Centavos.INVALIDO;
+        if (!linha.valorValido && linha.lote >= 1) {
+            contagem.valorInvalido++;
+        }
+        linha.valorCentavos = linha.valorValido ? valor : 0;
+        linha.provaFeita = contem(buf, inicio[STATUS_CEARAPREV], fim[STATUS_CEARAPREV], REALIZADA);
+        linha.recadastroFeito = contem(buf, inicio[STATUS_RECADASTRO], fim[STATUS_RECADASTRO], REALIZADO);
+        linha.vinculoAtivo = contem(buf, inicio[VINCULO], fim[VINCULO], ATIVO)
+                || contem(buf, inicio[VINCULO], fim[VINCULO], AGUARDANDO);
+        linha.cpf = lerCpf(buf, inicio[CPF], fim[CPF]);
+        linha.texto = buf;
+        linha.inicioMatricula = inicio[MATRICULA];
+        linha.fimMatricula = fim[MATRICULA];
+        for (int d = 0; d < SLOT_DA_DIMENSAO.length; d++) {
+            int s = SLOT_DA_DIMENSAO[d];
+            linha.codigos[d] = dicionarios[d].codigo(buf, inicio[s], fim[s]);
+        }
+        return true;
+    }
+
+    /**
+     * CPF como número; aceita zeros à esquerda e a máscara 000.000.000-00.
+     * Retorna -1 se o campo estiver vazio ou não for um CPF de até 11 dígitos.
+     */
+    private static long lerCpf(ByteBuffer buf, int a, int z) {
+        long cpf = 0;
+        int digitos = 0;
+        for (int i = a; i < z; i++) {
+            byte b = buf.get(i);
+            if (b >= '0' && b <= '9') {
+                if (++digitos > 11) {
+                    return -1;
+                }
+                cpf = cpf * 10 + (b - '0');
+            } else if (b != '.' && b != '-') {
+                return -1;
+            }
+        }
+        return digitos == 0 ? -1 : cpf;
+    }
+
+    /** Remove espaços das pontas e as aspas que envolvem o campo, como o CSVFormat com trim fazia. */
+    private void aparar(ByteBuffer buf) {
+        for (int s = 0; s < inicio.length; s++) {
+            int a = inicio[s];
+            int z = fim[s];
+            while (a < z && (buf.get(a) & 0xFF) <= ' ') {
+                a++;
+            }
+            while (z > a && (buf.get(z - 1) & 0xFF) <= ' ') {
+                z--;
+            }
+            if (z - a >= 2 && buf.get(a) == ASPAS && buf.get(z - 1) == ASPAS) {
+                a++;
+                z--;
+            }
+            inicio[s] = a;
+            fim[s] = z;
+        }
+    }
+
+    /** Equivalente a Integer.parseInt sobre o campo já aparado. */
+    private boolean lerLote(ByteBuffer buf, int a, int z) {
+        if (a >= z) {
+            return false;
+        }
+        boolean negativo = false;
+        byte primeiro = buf.get(a);
+        if (primeiro == '-' || primeiro == '+') {
+            negativo = primeiro == '-';
+            if (++a >= z) {
+                return false;
+            }
+        }
+        long n = 0;
+        for (int i = a; i < z; i++) {
+            int d = buf.get(i) - '0';
+            if (d < 0 || d > 9) {
+                return false;
+            }
+            n = n * 10 + d;
+            if (n > (long) Integer.MAX_VALUE + 1) {
+                return false;
+            }
+        }
+        if (negativo) {
+            n = -n;
+        }
+        if (n > Integer.MAX_VALUE) {
+            return false;
+        }
+        linha.lote = (int) n;
+        return true;
+    }
+
+    private static boolean contem(ByteBuffer buf, int a, int z, byte[] padrao) {
+        int ultimo = z - padrao.length;
+        for (int i = a; i <= ultimo; i++) {
+            int k = 0;
+            while (k < padrao.length && buf.get(i + k) == padrao[k]) {
+                k++;
+            }
+            if (k == padrao.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Posição logo após a quebra da linha que começa em ini, ou -1 se ainda não terminou. */
+    static int fimDaLinha(ByteBuffer buf, int ini, int limite, boolean fimDeArquivo) {
+        for (int i = ini; i < limite; i++) {
+            byte b = buf.get(i);
+            if (b == '\n') {
+                return i + 1;
+            }
+            if (b == '\r') {
+                if (i + 1 < limite) {
+                    return buf.get(i + 1) == '\n' ? i + 2 : i + 1;
+                }
+                return fimDeArquivo ? i + 1 : -1;
+            }
+        }
+        return fimDeArquivo ? limite : -1;
+    }
+
+    /** Pula o BOM UTF-8 (EF BB BF) no início do arquivo, se houver. */
+    static int pularBom(ByteBuffer buf, int ini, int limite) {
+        if (limite - ini >= 3 && (buf.get(ini) & 0xFF) == 0xEF
+                && (buf.get(ini + 1) & 0xFF) == 0xBB && (buf.get(ini + 2) & 0xFF) == 0xBF) {
+            return ini + 3;
+        }
+        return ini;
+    }
+
+    private static ByteBuffer crescerSeCheio(ByteBuffer buf) {
+        if (buf.hasRemaining()) {
+            return buf;
+        }
+        ByteBuffer maior = ByteBuffer.allocate(buf.capacity() * 2);
+        buf.flip();
+        maior.put(buf);
+        return maior;
+    }
+
+    private static int indiceDoSlot(int[] slotDaColuna, int slot) {
+        for (int c = 0; c < slotDaColuna.length; c++) {
+            if (slotDaColuna[c] == slot) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,79 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Textos distintos de uma coluna, numerados em ordem de aparecimento.
+ *
+ * Há um dicionário por {@link Dimensao}, compartilhado por todas as threads da leitura;
+ * assim um código significa o mesmo texto em qualquer pedaço do arquivo e os parciais
+ * podem ser somados sem tradução. Cada decodificador consulta primeiro o seu
+ * {@link DicionarioLocal}, e só chega aqui (sincronizado) quando vê um texto novo.
+ */
+public final class Dicionario {
+    private static final Charset WINDOWS_1252 = Charset.forName("windows-1252");
+
+    private final Map<String, Integer> codigoPorNome = new HashMap<>();
+    private final List<String> nomes = new ArrayList<>();
+
+    public synchronized int codigo(String nome) {
+        Integer codigo = codigoPorNome.get(nome);
+        if (codigo == null) {
+            codigo = nomes.size();
+            nomes.add(nome);
+            codigoPorNome.put(nome, codigo);
+        }
+        return codigo;
+    }
+
+    public int codigo(byte[] utf8) {
+        return codigo(reparar(new String(utf8, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Algumas exportações trazem o texto codificado em UTF-8 duas vezes (ASSEMBLÃ‰IA).
+     * Se o texto, lido de volta como Windows-1252, for UTF-8 válido, usa essa versão;
+     * assim as duas grafias do mesmo órgão caem no mesmo código.
+     */
+    static String reparar(String texto) {
+        boolean suspeito = false;
+        for (int i = 0; i < texto.length() && !suspeito; i++) {
+            char c = texto.charAt(i);
+            suspeito = c == 'Ã' || c == 'Â';
+        }
+        if (!suspeito) {
+            return texto;
+        }
+        byte[] bytes = new byte[texto.length()];
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c <= 0xFF) {
+                bytes[i] = (byte) c;
+            } else {
+                byte[] b = String.valueOf(c).getBytes(WINDOWS_1252);
+                if (b.length != 1 || b[0] == '?') {
+                    return texto;
+                }
+                bytes[i] = b[0];
+            }
+        }
+        try {
+            return StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(bytes)).toString();
+        } catch (CharacterCodingException e) {
+            return texto;
+        }
+    }
+
+    public synchronized String nome(int codigo) {
+        return nomes.get(codigo);
+    }
+
+    public synchronized int size() {
+        return nomes.size();
+    }
+}
@@ -0,0 +1,82 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Cache, sem sincronização, dos bytes de um campo para o código no {@link Dicionario}
+ * global. Um por decodificador: na linha típica o texto já foi visto e o código sai
+ * sem criar String nem tomar lock.
+ */
+final class DicionarioLocal {
+    private final Dicionario global;
+    private byte[][] chaves = new byte[16][];
+    private int[] codigos = new int[16];
+    private int tamanho;
+
+    DicionarioLocal(Dicionario global) {
+        this.global = global;
+    }
+
+    /** Código dos bytes [a, z) do buffer. */
+    int codigo(ByteBuffer buf, int a, int z) {
+        int h = espalhar(buf, a, z);
+        int mascara = chaves.length - 1;
+        for (int i = h & mascara; ; i = (i + 1) & mascara) {
+            byte[] k = chaves[i];
+            if (k == null) {
+                byte[] bytes = new byte[z - a];
+                for (int j = 0; j < bytes.length; j++) {
+                    bytes[j] = buf.get(a + j);
+                }
+                int codigo = global.codigo(bytes);
+                chaves[i] = bytes;
+                codigos[i] = codigo;
+                if (++tamanho * 2 > chaves.length) {
+                    crescer();
+                }
+                return codigo;
+            }
+            if (iguais(k, buf, a, z)) {
+                return codigos[i];
+            }
+        }
+    }
+
+    private static boolean iguais(byte[] k, ByteBuffer buf, int a, int z) {
+        if (k.length != z - a) {
+            return false;
+        }
+        for (int j = 0; j < k.length; j++) {
+            if (k[j] != buf.get(a + j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void crescer() {
+        byte[][] chavesAntigas = chaves;
+        int[] codigosAntigos = codigos;
+        chaves = new byte[chavesAntigas.length * 2][];
+        codigos = new int[chavesAntigas.length * 2];
+        int mascara = chaves.length - 1;
+        for (int i = 0; i < chavesAntigas.length; i++) {
+            byte[] k = chavesAntigas[i];
+            if (k != null) {
+                int j = espalhar(ByteBuffer.wrap(k), 0, k.length) & mascara;
+                while (chaves[j] != null) {
+                    j = (j + 1) & mascara;
+                }
+                chaves[j] = k;
+                codigos[j] = codigosAntigos[i];
+            }
+        }
+    }
+
+    // FNV-1a
+    private static int espalhar(ByteBuffer buf, int a, int z) {
+        int h = 0x811C9DC5;
+        for (int i = a; i < z; i++) {
+            h = (h ^ buf.get(i)) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,26 @@
+/**
+ * Colunas de texto do CSV que viram códigos inteiros na leitura, cada uma com o seu
+ * {@link Dicionario}. Os status continuam também como flags em {@link LinhaLote};
+ * os códigos servem para agrupar pelo texto exato.
+ */
+public enum Dimensao {
+    STATUS_PROVA("Prova de vida"),
+    STATUS_RECADASTRO("Recadastro"),
+    VINCULO("Vínculo"),
+    ORGAO("Órgão");
+
+    private final String titulo;
+    private final Dicionario dicionario = new Dicionario();
+
+    Dimensao(String titulo) {
+        this.titulo = titulo;
+    }
+
+    public String getTitulo() {
+        return titulo;
+    }
+
+    public Dicionario getDicionario() {
+        return dicionario;
+    }
+}
@@ -0,0 +1,353 @@
+import java.util.Arrays;
+
+/**
+ * CPFs que aparecem em mais de uma linha da exportação (em lotes diferentes ou duas
+ * vezes no mesmo lote), e quais dessas linhas entram na agregação (--duplicados=...).
+ *
+ * Funciona durante a leitura, sem guardar as linhas: a única estrutura proporcional ao
+ * arquivo é um {@link ConjuntoCpf} com um valor por CPF (o lote que interessa à política
+ * e se o CPF já se repetiu). Com {@link Politica#MARCAR} e {@link Politica#PRIMEIRA} basta
+ * uma passada: {@link #manter(LinhaLote)} registra o CPF e decide na hora. Com
+ * {@link Politica#ULTIMO_LOTE}, uma primeira passada ({@link #aceitar(LinhaLote)}) guarda
+ * o maior lote de cada CPF e a segunda mantém só a primeira linha desse lote. Linhas sem
+ * CPF ou com lote menor que 1 nunca são repetições.
+ *
+ * Os contadores são exatos; a lista dos CPFs repetidos, para o console e o PDF, guarda só
+ * os {@link #LIMITE_GRUPOS} primeiros encontrados, com até {@link #LOTES_POR_GRUPO} lotes
+ * cada. Na leitura paralela (só com MARCAR e na primeira passada do ULTIMO_LOTE) cada
+ * pedaço tem o seu conjunto e os parciais são somados na ordem do arquivo; passando do
+ * limite, quais CPFs entram na lista pode depender dessa divisão.
+ */
+public final class DuplicidadeCpf implements ConsumidorParticionavel<DuplicidadeCpf> {
+    /** Qual linha de um CPF repetido entra nos totais (--duplicados=...). */
+    public enum Politica {
+        // Todas contam, como sem a verificação; os CPFs só são listados
+        MARCAR("marcar", "todas as linhas contam; os CPFs só são listados"),
+        PRIMEIRA("primeira", "conta só a primeira linha de cada CPF"),
+        ULTIMO_LOTE("ultimo-lote", "conta só a linha do lote mais recente de cada CPF");
+
+        private final String nome;
+        private final String descricao;
+
+        Politica(String nome, String descricao) {
+            this.nome = nome;
+            this.descricao = descricao;
+        }
+
+        public String getNome() {
+            return nome;
+        }
+
+        public String getDescricao() {
+            return descricao;
+        }
+
+        public static Politica porNome(String nome) {
+            for (Politica p : values()) {
+                if (p.nome.equalsIgnoreCase(nome.trim())) {
+                    return p;
+                }
+            }
+            throw new IllegalArgumentException("Política de duplicados desconhecida: '" + nome
+                    + "'; use marcar, primeira ou ultimo-lote");
+        }
+    }
+
+    /** Quantos CPFs repetidos são listados; os demais só entram nos contadores. */
+    public static final int LIMITE_GRUPOS = 200;
+    /** Quantos lotes de um mesmo CPF são listados. */
+    public static final int LOTES_POR_GRUPO = 12;
+
+    // Valor no conjunto: lote << 2 | REPETIDO | CONTADA
+    private static final int REPETIDO = 1;
+    // ULTIMO_LOTE, segunda passada: a linha do maior lote já entrou
+    private static final int CONTADA = 2;
+    private static final int MAIOR_LOTE = ConjuntoCpf.MAIOR_VALOR >>> 2;
+
+    private final Politica politica;
+    private ConjuntoCpf cpfs = new ConjuntoCpf();
+    private int cpfsRepetidos;
+    private long linhasRepetidas;
+    private long linhasDescartadas;
+    private long valorDescartadoCentavos;
+    // Lista dos primeiros CPFs repetidos: CPF -> índice do grupo
+    private final ConjuntoCpf indiceGrupos = new ConjuntoCpf(16);
+    private long[] cpfGrupo = new long[16];
+    private int[] linhasGrupo = new int[16];
+    private int[][] lotesGrupo = new int[16][];
+    private int grupos;
+    // Índices dos grupos em ordem de CPF, montado na primeira consulta
+    private int[] ordem;
+
+    public DuplicidadeCpf(Politica politica) {
+        this.politica = politica;
+    }
+
+    public Politica getPolitica() {
+        return politica;
+    }
+
+    /** Se a política precisa de uma passada com {@link #aceitar(LinhaLote)} antes da agregação. */
+    public boolean isDuasPassadas() {
+        return politica == Politica.ULTIMO_LOTE;
+    }
+
+    /**
+     * Se a passada que agrega precisa ver as linhas na ordem do arquivo, sem a divisão da
+     * leitura paralela: "a primeira linha" só existe na ordem do arquivo.
+     */
+    public boolean isEmOrdem() {
+        return politica != Politica.MARCAR;
+    }
+
+    /** Primeira passada do ULTIMO_LOTE: registra o CPF e o maior lote em que ele aparece. */
+    @Override
+    public void aceitar(LinhaLote linha) {
+        registrar(linha);
+    }
+
+    /**
+     * Passada que agrega: se a linha entra nos totais. Com MARCAR e PRIMEIRA registra o CPF
+     * aqui mesmo; com ULTIMO_LOTE usa o que a primeira passada registrou.
+     */
+    public boolean manter(LinhaLote linha) {
+        switch (politica) {
+            case MARCAR:
+                registrar(linha);
+                return true;
+            case PRIMEIRA:
+                if (registrar(linha)) {
+                    descartar(linha);
+                    return false;
+                }
+                return true;
+            default:
+                if (linha.getLote() < 1 || linha.getCpf() < 0) {
+                    return true;
+                }
+                int v = cpfs.valor(linha.getCpf());
+                if (v < 0 || (v & REPETIDO) == 0) {
+                    return true; // v < 0: linha que a primeira passada não viu
+                }
+                if (linha.getLote() == v >>> 2 && (v & CONTADA) == 0) {
+                    cpfs.substituir(linha.getCpf(), v | CONTADA);
+                    return true;
+                }
+                descartar(linha);
+                return false;
+        }
+    }
+
+    /**
+     * Uma cópia vazia da decisão, para filtrar de novo as mesmas linhas na mesma ordem
+     * (ex.: o anexo do PDF, que relê o CSV): mantém exatamente as linhas que
+     * {@link #manter(LinhaLote)} manteve nesta leitura.
+     */
+    public DuplicidadeCpf novoFiltro() {
+        DuplicidadeCpf filtro = new DuplicidadeCpf(politica);
+        if (politica == Politica.ULTIMO_LOTE) {
+            filtro.cpfs = new ConjuntoCpf(cpfs.size());
+            for (int i = 0; i < cpfs.posicoes(); i++) {
+                long cpf = cpfs.cpfNaPosicao(i);
+                if (cpf >= 0) {
+                    filtro.cpfs.adicionar(cpf, cpfs.valorNaPosicao(i) & ~CONTADA);
+                }
+            }
+        }
+        return filtro;
+    }
+
+    /** Registra o CPF da linha; devolve true se ele já tinha aparecido. */
+    private boolean registrar(LinhaLote linha) {
+        int lote = linha.getLote();
+        long cpf = linha.getCpf();
+        if (lote < 1 || cpf < 0) {
+            return false;
+        }
+        if (lote > MAIOR_LOTE) {
+            throw new IllegalArgumentException("Lote fora do intervalo para a verificação de duplicados: " + lote);
+        }
+        int v = cpfs.adicionar(cpf, lote << 2);
+        if (v < 0) {
+            return false;
+        }
+        linhasRepetidas++;
+        if ((v & REPETIDO) == 0) {
+            cpfsRepetidos++;
+        }
+        cpfs.substituir(cpf, juntar(v, lote << 2) | REPETIDO);
+        listar(cpf, v >>> 2, new int[]{lote}, 1);
+        return true;
+    }
+
+    /** Valor do CPF com mais uma linha: o lote que a política guarda (o primeiro ou o maior). */
+    private int juntar(int v, int outro) {
+        if (politica == Politica.ULTIMO_LOTE && outro >>> 2 > v >>> 2) {
+            return outro >>> 2 << 2 | (v & 3);
+        }
+        return v;
+    }
+
+    private void descartar(LinhaLote linha) {
+        linhasDescartadas++;
+        valorDescartadoCentavos += linha.getValorCentavos();
+    }
+
+    /**
+     * Acrescenta à lista n linhas a mais de um CPF, com os lotes delas (lotes pode ter
+     * menos que n, se já foi cortado em outro parcial); primeiroLote é o da primeira
+     * linha, usado se o CPF ainda não está na lista.
+     */
+    private void listar(long cpf, int primeiroLote, int[] lotes, int n) {
+        int g = indiceGrupos.valor(cpf);
+        if (g < 0) {
+            if (grupos == LIMITE_GRUPOS) {
+                return;
+            }
+            if (grupos == cpfGrupo.length) {
+                int capacidade = Math.min(grupos * 2, LIMITE_GRUPOS);
+                cpfGrupo = Arrays.copyOf(cpfGrupo, capacidade);
+                linhasGrupo = Arrays.copyOf(linhasGrupo, capacidade);
+                lotesGrupo = Arrays.copyOf(lotesGrupo, capacidade);
+            }
+            g = grupos++;
+            indiceGrupos.adicionar(cpf, g);
+            cpfGrupo[g] = cpf;
+            linhasGrupo[g] = 1;
+            lotesGrupo[g] = new int[]{primeiroLote};
+            ordem = null;
+        }
+        for (int i = 0; i < Math.min(n, lotes.length); i++) {
+            int[] atuais = lotesGrupo[g];
+            if (atuais.length < LOTES_POR_GRUPO) {
+                atuais = Arrays.copyOf(atuais, atuais.length + 1);
+                atuais[atuais.length - 1] = lotes[i];
+                lotesGrupo[g] = atuais;
+            }
+        }
+        linhasGrupo[g] += n;
+    }
+
+    @Override
+    public DuplicidadeCpf novoParcial() {
+        return new DuplicidadeCpf(politica);
+    }
+
+    /**
+     * Junta o parcial do pedaço seguinte. Um CPF que está nos dois ganha uma repetição: a
+     * primeira linha dele no outro pedaço.
+     */
+    @Override
+    public void somar(DuplicidadeCpf outro) {
+        cpfsRepetidos += outro.cpfsRepetidos;
+        linhasRepetidas += outro.linhasRepetidas;
+        linhasDescartadas += outro.linhasDescartadas;
+        valorDescartadoCentavos += outro.valorDescartadoCentavos;
+        for (int i = 0; i < outro.cpfs.posicoes(); i++) {
+            long cpf = outro.cpfs.cpfNaPosicao(i);
+            if (cpf < 0) {
+                continue;
+            }
+            int vOutro = outro.cpfs.valorNaPosicao(i);
+            int g = outro.indiceGrupos.valor(cpf);
+            int v = cpfs.adicionar(cpf, vOutro);
+            if (v < 0) {
+                if (g >= 0) {
+                    int[] lotes = outro.lotesGrupo[g];
+                    listar(cpf, lotes[0], Arrays.copyOfRange(lotes, 1, lotes.length), outro.linhasGrupo[g] - 1);
+                }
+                continue;
+            }
+            linhasRepetidas++;
+            boolean aqui = (v & REPETIDO) != 0;
+            boolean la = (vOutro & REPETIDO) != 0;
+            if (!aqui && !la) {
+                cpfsRepetidos++;
+            } else if (aqui && la) {
+                cpfsRepetidos--; // contado nos dois parciais
+            }
+            cpfs.substituir(cpf, juntar(v, vOutro) | REPETIDO);
+            if (g >= 0) {
+                listar(cpf, v >>> 2, outro.lotesGrupo[g], outro.linhasGrupo[g]);
+            } else if (!la) {
+                listar(cpf, v >>> 2, new int[]{vOutro >>> 2}, 1);
+            }
+        }
+    }
+
+    /** CPFs com mais de uma linha. */
+    public int getCpfsRepetidos() {
+        return cpfsRepetidos;
+    }
+
+    /** Linhas além da primeira de cada CPF repetido. */
+    public long getLinhasRepetidas() {
+        return linhasRepetidas;
+    }
+
+    /** Linhas que a política tirou dos totais. */
+    public long getLinhasDescartadas() {
+        return linhasDescartadas;
+    }
+
+    /** Soma do valor das linhas descartadas, em centavos. */
+    public long getValorDescartadoCentavos() {
+        return valorDescartadoCentavos;
+    }
+
+    /** CPFs repetidos na lista (no máximo {@link #LIMITE_GRUPOS}), em ordem de CPF. */
+    public int getGrupos() {
+        return grupos;
+    }
+
+    public long getCpf(int k) {
+        return cpfGrupo[grupo(k)];
+    }
+
+    /** Quantas linhas o CPF tem no arquivo. */
+    public int getLinhas(int k) {
+        return linhasGrupo[grupo(k)];
+    }
+
+    /** Lotes das linhas do CPF, na ordem do arquivo (até {@link #LOTES_POR_GRUPO}). */
+    public int[] getLotes(int k) {
+        return lotesGrupo[grupo(k)].clone();
+    }
+
+    /** Lotes das linhas do CPF como texto ("2ª, 2ª, 5ª"), com "..." se a lista foi cortada. */
+    public String getDescricaoLotes(int k) {
+        int g = grupo(k);
+        StringBuilder texto = new StringBuilder();
+        for (int lote : lotesGrupo[g]) {
+            texto.append(texto.length() == 0 ? "" : ", ").append(lote).append("ª");
+        }
+        return lotesGrupo[g].length < linhasGrupo[g] ? texto.append(", ...").toString() : texto.toString();
+    }
+
+    /** Lote da linha do CPF que entra nos totais, ou -1 com MARCAR (entram todas). */
+    public int getLoteContado(int k) {
+        switch (politica) {
+            case PRIMEIRA:
+                return lotesGrupo[grupo(k)][0];
+            case ULTIMO_LOTE:
+                return cpfs.valor(cpfGrupo[grupo(k)]) >>> 2;
+            default:
+                return -1;
+        }
+    }
+
+    private int grupo(int k) {
+        if (ordem == null) {
+            Integer[] indices = new Integer[grupos];
+            for (int g = 0; g < grupos; g++) {
+                indices[g] = g;
+            }
+            Arrays.sort(indices, (a, b) -> Long.compare(cpfGrupo[a], cpfGrupo[b]));
+            ordem = new int[grupos];
+            for (int g = 0; g < grupos; g++) {
+                ordem[g] = indices[g];
+            }
+        }
+        return ordem[k];
+    }
+}
@@ -0,0 +1,38 @@
+/**
+ * Eixos do {@link CuboAgregacao}: o lote e as colunas de texto codificadas em
+ * {@link Dimensao}. O nome em minúsculas é o usado na linha de comando (--fatia).
+ */
+public enum EixoCubo {
+    LOTE("Lote", null),
+    ORGAO("Órgão", Dimensao.ORGAO),
+    VINCULO("Vínculo", Dimensao.VINCULO),
+    PROVA("Prova de vida", Dimensao.STATUS_PROVA),
+    RECADASTRO("Recadastro", Dimensao.STATUS_RECADASTRO);
+
+    private final String titulo;
+    private final Dimensao dimensao;
+
+    EixoCubo(String titulo, Dimensao dimensao) {
+        this.titulo = titulo;
+        this.dimensao = dimensao;
+    }
+
+    public String getTitulo() {
+        return titulo;
+    }
+
+    /** Dimensão de texto do eixo, ou null para o lote. */
+    public Dimensao getDimensao() {
+        return dimensao;
+    }
+
+    /** Aceita o nome do eixo sem acento e sem diferenciar maiúsculas (orgao, vinculo...). */
+    public static EixoCubo porNome(String nome) {
+        for (EixoCubo e : values()) {
+            if (e.name().equalsIgnoreCase(nome.trim())) {
+                return e;
+            }
+        }
+        throw new IllegalArgumentException("Eixo desconhecido: '" + nome + "'; use lote, orgao, vinculo, prova ou recadastro");
+    }
+}
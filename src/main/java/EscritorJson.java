@@ -0,0 +1,148 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * JSON montado à mão, indentado, para os arquivos que o relatório grava para outras
+ * ferramentas lerem. O projeto não tem biblioteca de JSON e só precisa escrever.
+ *
+ * Uso: abrirObjeto(null), campos e objetos/listas aninhados, fechar; os nomes são
+ * ignorados dentro de listas.
+ */
+final class EscritorJson {
+    private final StringBuilder sb = new StringBuilder(1024);
+    private int nivel;
+    // Ainda não há item no objeto ou lista aberto: não vai vírgula antes do próximo
+    private boolean primeiro = true;
+    // Um bit por nível: o contêiner aberto nele é uma lista
+    private long listas;
+
+    EscritorJson abrirObjeto(String nome) {
+        return abrir(nome, '{', false);
+    }
+
+    EscritorJson abrirLista(String nome) {
+        return abrir(nome, '[', true);
+    }
+
+    EscritorJson fecharObjeto() {
+        return fechar('}');
+    }
+
+    EscritorJson fecharLista() {
+        return fechar(']');
+    }
+
+    EscritorJson campo(String nome, String valor) {
+        nome(nome);
+        if (valor == null) {
+            sb.append("null");
+        } else {
+            texto(valor);
+        }
+        return this;
+    }
+
+    EscritorJson campo(String nome, long valor) {
+        nome(nome);
+        sb.append(valor);
+        return this;
+    }
+
+    /** Números não finitos (ex.: divisão por tempo zero) saem como null. */
+    EscritorJson campo(String nome, double valor) {
+        nome(nome);
+        if (Double.isNaN(valor) || Double.isInfinite(valor)) {
+            sb.append("null");
+        } else {
+            sb.append(new BigDecimal(valor).setScale(3, RoundingMode.HALF_EVEN).stripTrailingZeros().toPlainString());
+        }
+        return this;
+    }
+
+    EscritorJson campo(String nome, boolean valor) {
+        nome(nome);
+        sb.append(valor);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return sb.toString();
+    }
+
+    private EscritorJson abrir(String nome, char abertura, boolean lista) {
+        nome(nome);
+        sb.append(abertura);
+        nivel++;
+        listas = lista ? listas | 1L << nivel : listas & ~(1L << nivel);
+        primeiro = true;
+        return this;
+    }
+
+    private EscritorJson fechar(char fechamento) {
+        boolean vazio = primeiro;
+        nivel--;
+        if (!vazio) {
+            quebrar();
+        }
+        sb.append(fechamento);
+        primeiro = false;
+        if (nivel == 0) {
+            sb.append('\n');
+        }
+        return this;
+    }
+
+    private void nome(String nome) {
+        if (nivel == 0) {
+            return;
+        }
+        if (!primeiro) {
+            sb.append(',');
+        }
+        primeiro = false;
+        quebrar();
+        if ((listas & 1L << nivel) == 0) {
+            texto(nome);
+            sb.append(": ");
+        }
+    }
+
+    private void quebrar() {
+        sb.append('\n');
+        for (int i = 0; i < nivel; i++) {
+            sb.append("  ");
+        }
+    }
+
+    private void texto(String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+}
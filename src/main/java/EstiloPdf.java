@@ -0,0 +1,50 @@
+import com.itextpdf.kernel.colors.ColorConstants;
+import com.itextpdf.kernel.colors.DeviceRgb;
+import com.itextpdf.layout.Style;
+import com.itextpdf.layout.properties.TextAlignment;
+
+/**
+ * Cores e estilos de célula dos relatórios em PDF, criados uma única vez e usados por
+ * todas as tabelas, em vez de um DeviceRgb novo a cada célula. Nada aqui guarda fonte
+ * (PdfFont pertence a um documento), só tamanho, cor e espaçamento.
+ */
+final class EstiloPdf {
+    static final DeviceRgb AZUL = new DeviceRgb(0, 102, 204);
+    static final DeviceRgb AZUL_ESCURO = new DeviceRgb(0, 71, 171);
+    static final DeviceRgb AZUL_CLARO = new DeviceRgb(240, 248, 255);
+    static final DeviceRgb BRANCO = new DeviceRgb(255, 255, 255);
+    static final DeviceRgb VERDE = new DeviceRgb(0, 150, 88);
+
+    // Anexo de beneficiários: milhares de linhas, então tudo pequeno e compartilhado
+    static final Style CABECALHO_ANEXO = new Style()
+            .setBold()
+            .setFontSize(7)
+            .setFontColor(ColorConstants.WHITE)
+            .setBackgroundColor(AZUL_ESCURO)
+            .setPadding(3)
+            .setTextAlignment(TextAlignment.CENTER);
+    private static final Style CELULA_ANEXO_PAR = celulaAnexo(BRANCO);
+    private static final Style CELULA_ANEXO_IMPAR = celulaAnexo(AZUL_CLARO);
+
+    private EstiloPdf() {
+    }
+
+    /** Fundo das linhas de dados, alternando branco e azul claro. */
+    static DeviceRgb fundoDaLinha(int i) {
+        return i % 2 == 1 ? AZUL_CLARO : BRANCO;
+    }
+
+    static Style celulaAnexo(int linha) {
+        return linha % 2 == 1 ? CELULA_ANEXO_IMPAR : CELULA_ANEXO_PAR;
+    }
+
+    private static Style celulaAnexo(DeviceRgb fundo) {
+        return new Style()
+                .setFontSize(7)
+                .setPaddingTop(1)
+                .setPaddingBottom(1)
+                .setPaddingLeft(3)
+                .setPaddingRight(3)
+                .setBackgroundColor(fundo);
+    }
+}
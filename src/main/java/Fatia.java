@@ -0,0 +1,44 @@
+/**
+ * Resultado de um {@link Recorte}: uma linha por valor do eixo agrupado, com as mesmas
+ * medidas do relatório por lote, contadas sobre as linhas do CSV.
+ */
+public final class Fatia {
+    private final Recorte recorte;
+    private final String[] rotulos;
+    private final long[] linhas;
+    private final long[] desbloqueados;
+    private final long[] valorCentavos;
+
+    Fatia(Recorte recorte, String[] rotulos, long[] linhas, long[] desbloqueados, long[] valorCentavos) {
+        this.recorte = recorte;
+        this.rotulos = rotulos;
+        this.linhas = linhas;
+        this.desbloqueados = desbloqueados;
+        this.valorCentavos = valorCentavos;
+    }
+
+    public Recorte getRecorte() {
+        return recorte;
+    }
+
+    public int size() {
+        return rotulos.length;
+    }
+
+    public String getRotulo(int i) {
+        return rotulos[i];
+    }
+
+    public long getLinhas(int i) {
+        return linhas[i];
+    }
+
+    public long getDesbloqueados(int i) {
+        return desbloqueados[i];
+    }
+
+    /** Soma dos valores das linhas do grupo, em centavos (sem a projeção do relatório por lote). */
+    public long getValorCentavos(int i) {
+        return valorCentavos[i];
+    }
+}
@@ -0,0 +1,149 @@
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.data.general.DefaultPieDataset;
+
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Gráficos dos relatórios em PDF, desenhados com o JFreeChart. Só o RelatorioPdf chama
+ * esta classe: os modos --console e --json do Main não chegam a carregar o JFreeChart
+ * nem o AWT.
+ */
+final class GraficosRelatorio {
+    // Verde, Laranja/Amarelo, Azul e Vermelho vibrantes para os 4 primeiros lotes; depois, novas cores
+    private static final java.awt.Color[] CORES_LOTES = {
+            new java.awt.Color(102, 255, 102),
+            new java.awt.Color(255, 187, 51),
+            new java.awt.Color(77, 171, 247),
+            new java.awt.Color(255, 102, 102),
+            new java.awt.Color(177, 122, 255),
+            new java.awt.Color(64, 224, 208),
+            new java.awt.Color(255, 128, 191),
+            new java.awt.Color(160, 160, 160)
+    };
+
+    private GraficosRelatorio() {
+    }
+
+    static JFreeChart gerarGraficoEconomiaLotes(int[] lotes, long[] valorBloqueados, NumberFormat nf, boolean apenasInativos) {
+        DefaultPieDataset data = new DefaultPieDataset();
+        String[] rotulos = new String[lotes.length];
+        for (int i = 0; i < lotes.length; i++) {
+            rotulos[i] = "Lote " + lotes[i] + "ª: R$ " + Centavos.formatar(nf, valorBloqueados[i]);
+            data.setValue(rotulos[i], Centavos.emReais(valorBloqueados[i]));
+        }
+
+        String titulo = apenasInativos ? "ECONOMIA DO ESTADO POR LOTE - INATIVOS" : "ECONOMIA DO ESTADO POR LOTE - EXCLUSÃO";
+        JFreeChart chart = ChartFactory.createRingChart(
+                titulo,
+                data, false, true, false); // Criar SEM legenda
+
+        // Aumentar fonte do título para 18
+        chart.getTitle().setFont(new java.awt.Font("SansSerif", java.awt.Font.BOLD, 18));
+
+        // Cores por lote; a paleta se repete se houver mais lotes que cores
+        org.jfree.chart.plot.RingPlot plot = (org.jfree.chart.plot.RingPlot) chart.getPlot();
+        for (int i = 0; i < rotulos.length; i++) {
+            plot.setSectionPaint(rotulos[i], CORES_LOTES[i % CORES_LOTES.length]);
+        }
+        
+        // Criar legenda customizada usando PaintList para símbolos coloridos
+        org.jfree.chart.title.LegendTitle legenda = new org.jfree.chart.title.LegendTitle(plot);
+        legenda.setItemFont(new java.awt.Font("SansSerif", java.awt.Font.PLAIN, 18));
+        legenda.setPosition(org.jfree.chart.ui.RectangleEdge.BOTTOM);
+        
+        // Configurar arranjo em 2 colunas, com quantas linhas os lotes pedirem
+        org.jfree.chart.block.BlockContainer wrapper = legenda.getItemContainer();
+        wrapper.setArrangement(new org.jfree.chart.block.GridArrangement(Math.max(1, (rotulos.length + 1) / 2), 2));
+        
+        chart.addSubtitle(legenda);
+        
+        // Centro maior para rosca mais grossa - 0.10 * 6 = 0.60
+        plot.setSectionDepth(0.60);
+        
+        // Visual mais limpo - sem separadores
+        plot.setSeparatorsVisible(false);
+        
+        // Sem borda externa para visual mais limpo
+        plot.setOutlineVisible(false);
+        
+        // Labels mais limpos
+        plot.setLabelGenerator(null); // Remove labels nas fatias
+        plot.setSimpleLabels(true);
+        
+        // Fundo branco limpo
+        chart.setBackgroundPaint(java.awt.Color.WHITE);
+        plot.setBackgroundPaint(java.awt.Color.WHITE);
+        
+        // Remover sombras para visual mais limpo
+        plot.setShadowPaint(null);
+        return chart;
+    }
+
+    /**
+     * Três gráficos de linha com o mesmo eixo de datas (desbloqueados, exclusão e recursos
+     * retidos), uma linha por lote nas mesmas cores do gráfico de economia.
+     */
+    static JFreeChart gerarGraficoHistorico(List<HistoricoExportacoes.Exportacao> exportacoes, ResumoLotes[] resumos,
+                                                    Variante variante) {
+        int[] lotes = ResumoLotes.lotesDoHistorico(resumos);
+        String[] titulos = {"DESBLOQUEADOS", "EXCLUSÃO", "RECURSOS RETIDOS (R$)"};
+        org.jfree.chart.axis.DateAxis eixoDatas = new org.jfree.chart.axis.DateAxis("Data da exportação");
+        // Só marcas de dia inteiro: com poucas exportações o eixo repetiria a mesma data
+        org.jfree.chart.axis.TickUnits unidades = new org.jfree.chart.axis.TickUnits();
+        SimpleDateFormat formatoDia = new SimpleDateFormat("dd/MM");
+        for (int dias : new int[]{1, 2, 7, 14}) {
+            unidades.add(new org.jfree.chart.axis.DateTickUnit(org.jfree.chart.axis.DateTickUnitType.DAY, dias, formatoDia));
+        }
+        for (int meses : new int[]{1, 3, 6}) {
+            unidades.add(new org.jfree.chart.axis.DateTickUnit(org.jfree.chart.axis.DateTickUnitType.MONTH, meses,
+                    new SimpleDateFormat("MM/yyyy")));
+        }
+        eixoDatas.setStandardTickUnits(unidades);
+        org.jfree.chart.plot.CombinedDomainXYPlot plot = new org.jfree.chart.plot.CombinedDomainXYPlot(eixoDatas);
+        plot.setGap(12);
+        for (int m = 0; m < titulos.length; m++) {
+            org.jfree.data.time.TimeSeriesCollection series = new org.jfree.data.time.TimeSeriesCollection();
+            org.jfree.chart.renderer.xy.XYLineAndShapeRenderer renderer = new org.jfree.chart.renderer.xy.XYLineAndShapeRenderer(true, true);
+            for (int l = 0; l < lotes.length; l++) {
+                org.jfree.data.time.TimeSeries serie = new org.jfree.data.time.TimeSeries("Lote " + lotes[l] + "ª");
+                for (int i = 0; i < resumos.length; i++) {
+                    int k = resumos[i].indiceDoLote(lotes[l]);
+                    if (k < 0) {
+                        continue;
+                    }
+                    LocalDate data = exportacoes.get(i).getData();
+                    double valor;
+                    if (m == 0) {
+                        valor = resumos[i].getTotais()[k] - resumos[i].getDesbloqueados()[k];
+                    } else if (m == 1) {
+                        valor = resumos[i].getDesbloqueados()[k];
+                    } else {
+                        valor = Centavos.emReais(resumos[i].getValorBloqueados()[k]);
+                    }
+                    serie.addOrUpdate(new org.jfree.data.time.Day(data.getDayOfMonth(), data.getMonthValue(), data.getYear()), valor);
+                }
+                series.addSeries(serie);
+                renderer.setSeriesPaint(l, CORES_LOTES[l % CORES_LOTES.length]);
+                renderer.setSeriesStroke(l, new java.awt.BasicStroke(2.5f));
+            }
+            // A legenda combinada repetiria os lotes a cada gráfico
+            renderer.setDefaultSeriesVisibleInLegend(m == 0);
+            org.jfree.chart.axis.NumberAxis eixoValores = new org.jfree.chart.axis.NumberAxis(titulos[m]);
+            eixoValores.setNumberFormatOverride(NumberFormat.getInstance(new Locale("pt", "BR")));
+            org.jfree.chart.plot.XYPlot subplot = new org.jfree.chart.plot.XYPlot(series, null, eixoValores, renderer);
+            subplot.setBackgroundPaint(java.awt.Color.WHITE);
+            subplot.setRangeGridlinePaint(java.awt.Color.LIGHT_GRAY);
+            plot.add(subplot, 1);
+        }
+        String titulo = "EVOLUÇÃO POR LOTE" + (variante.isApenasInativos() ? " - INATIVOS" : "");
+        JFreeChart chart = new JFreeChart(titulo, new java.awt.Font("SansSerif", java.awt.Font.BOLD, 18), plot, true);
+        chart.setBackgroundPaint(java.awt.Color.WHITE);
+        chart.getLegend().setItemFont(new java.awt.Font("SansSerif", java.awt.Font.PLAIN, 14));
+        return chart;
+    }
+}
@@ -0,0 +1,234 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Modo histórico: encontra as exportações datadas de um diretório (ex.: backup/),
+ * agrega cada uma num pool de threads limitado e devolve um resultado por data.
+ *
+ * A data vem do nome do arquivo (todos_os_lotes 03-12.csv, Lotes_suspensão_03122025-1500h.csv.xls,
+ * 2025-12-03.xlsx) ou, na falta dela, da data de modificação. Quando dois arquivos caem
+ * no mesmo dia fica o de data tirada do nome e, entre esses, o modificado por último.
+ *
+ * A verificação de CPFs repetidos ({@link DuplicidadeCpf}) vale dentro de cada
+ * exportação: o mesmo CPF em datas diferentes é o esperado, não uma duplicata.
+ */
+public final class HistoricoExportacoes {
+    // dd-MM-yyyy, yyyy-MM-dd, ddMMyyyy e dd-MM (ano da data de modificação)
+    private static final Pattern DIA_MES_ANO = Pattern.compile("(?<!\\d)(\\d{2})[-_.](\\d{2})[-_.](\\d{4})(?!\\d)");
+    private static final Pattern ANO_MES_DIA = Pattern.compile("(?<!\\d)(\\d{4})[-_.](\\d{2})[-_.](\\d{2})(?!\\d)");
+    private static final Pattern DIA_MES_ANO_JUNTOS = Pattern.compile("(?<!\\d)(\\d{2})(\\d{2})(\\d{4})(?!\\d)");
+    private static final Pattern DIA_MES = Pattern.compile("(?<!\\d)(\\d{2})[-_.](\\d{2})(?!\\d)");
+
+    private HistoricoExportacoes() {
+    }
+
+    /** Uma exportação agregada, com todas as variantes. */
+    public static final class Exportacao {
+        private final Path arquivo;
+        private final LocalDate data;
+        private final boolean dataDoNome;
+        private final long modificacao;
+        private AcumuladorLotes acumulador;
+        private DuplicidadeCpf duplicidade;
+        private final ContagemLinhas contagem = new ContagemLinhas();
+
+        Exportacao(Path arquivo, LocalDate data, boolean dataDoNome, long modificacao) {
+            this.arquivo = arquivo;
+            this.data = data;
+            this.dataDoNome = dataDoNome;
+            this.modificacao = modificacao;
+        }
+
+        public Path getArquivo() {
+            return arquivo;
+        }
+
+        public LocalDate getData() {
+            return data;
+        }
+
+        /** false quando a data é a de modificação do arquivo. */
+        public boolean isDataDoNome() {
+            return dataDoNome;
+        }
+
+        public AcumuladorLotes getAcumulador() {
+            return acumulador;
+        }
+
+        /** CPFs repetidos dentro desta exportação. */
+        public DuplicidadeCpf getDuplicidade() {
+            return duplicidade;
+        }
+
+        /** Linhas lidas e descartadas (do CSV ou, se veio do cache, da leitura que o montou). */
+        public ContagemLinhas getContagem() {
+            return contagem;
+        }
+    }
+
+    /**
+     * Agrega as exportações do diretório com no máximo maxThreads leituras simultâneas.
+     * Arquivos que não são exportações de lotes (cabeçalho sem as colunas) são avisados
+     * e ficam de fora. O resultado vem em ordem de data. Em cada exportação, as linhas de
+     * CPFs repetidos seguem a política.
+     */
+    public static List<Exportacao> processar(File diretorio, int maxThreads, boolean usarCache,
+                                             DuplicidadeCpf.Politica politica)
+            throws IOException, InterruptedException {
+        List<Exportacao> exportacoes = descobrir(diretorio);
+        if (exportacoes.isEmpty()) {
+            return exportacoes;
+        }
+        int threads = Math.max(1, Math.min(maxThreads, exportacoes.size()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<AcumuladorLotes>> futuros = new ArrayList<>();
+            for (Exportacao e : exportacoes) {
+                futuros.add(pool.submit(() -> agregar(e, usarCache, politica)));
+            }
+            List<Exportacao> lidas = new ArrayList<>();
+            for (int i = 0; i < exportacoes.size(); i++) {
+                Exportacao e = exportacoes.get(i);
+                try {
+                    e.acumulador = futuros.get(i).get();
+                    lidas.add(e);
+                } catch (ExecutionException ex) {
+                    Throwable causa = ex.getCause();
+                    if (causa instanceof IllegalArgumentException || causa instanceof IOException) {
+                        System.out.println("AVISO: " + e.arquivo.getFileName() + " ignorado: " + causa.getMessage());
+                    } else if (causa instanceof RuntimeException) {
+                        throw (RuntimeException) causa;
+                    } else {
+                        throw new IOException(causa);
+                    }
+                }
+            }
+            return lidas;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Agrega a exportação aplicando a política aos CPFs repetidos; com ultimo-lote o
+     * arquivo (ou o cache) é lido duas vezes, a primeira só para o maior lote de cada CPF.
+     */
+    private static AcumuladorLotes agregar(Exportacao e, boolean usarCache, DuplicidadeCpf.Politica politica)
+            throws IOException {
+        Path arquivo = e.arquivo;
+        AcumuladorLotes acumulador = new AcumuladorLotes(Variante.values());
+        DuplicidadeCpf duplicidade = new DuplicidadeCpf(politica);
+        e.duplicidade = duplicidade;
+        Agregacao doCache = new Agregacao(acumulador, null, null, null, duplicidade);
+        if (usarCache && ColunasLote.lerCache(arquivo, e.contagem, duplicidade.isDuasPassadas()
+                ? new ConsumidorLinha[]{duplicidade, doCache} : new ConsumidorLinha[]{doCache})) {
+            return acumulador;
+        }
+        // Uma leitura sequencial por arquivo: o paralelismo aqui é entre arquivos
+        if (duplicidade.isDuasPassadas()) {
+            DecodificadorCsv.lerArquivo(arquivo, duplicidade);
+        }
+        Agregacao agregacao = new Agregacao(acumulador, usarCache ? new ColunasLote() : null, null, null, duplicidade);
+        e.contagem.somar(DecodificadorCsv.lerArquivo(arquivo, agregacao));
+        if (usarCache) {
+            try {
+                agregacao.getColunas().gravarCache(arquivo, e.contagem);
+            } catch (IOException ex) {
+                System.out.println("AVISO: cache de " + arquivo.getFileName() + " não gravado: " + ex.getMessage());
+            }
+        }
+        return acumulador;
+    }
+
+    /** Exportações do diretório, uma por data, em ordem de data. */
+    static List<Exportacao> descobrir(File diretorio) throws IOException {
+        File[] arquivos = diretorio.listFiles();
+        if (arquivos == null) {
+            throw new IOException("Diretório não encontrado: " + diretorio.getAbsolutePath());
+        }
+        Arrays.sort(arquivos);
+        TreeMap<LocalDate, Exportacao> porData = new TreeMap<>();
+        for (File f : arquivos) {
+            String nome = f.getName().toLowerCase();
+            // .xls entra pelo nome, mas o formato é decidido pelo conteúdo: a .csv.xls é texto
+            if (!f.isFile() || !(nome.endsWith(".csv") || nome.endsWith(".xls") || nome.endsWith(".xlsx"))) {
+                continue;
+            }
+            long modificacao = Files.getLastModifiedTime(f.toPath()).toMillis();
+            LocalDate diaModificacao = Instant.ofEpochMilli(modificacao).atZone(ZoneId.systemDefault()).toLocalDate();
+            LocalDate data = dataDoNome(f.getName(), diaModificacao);
+            Exportacao e = new Exportacao(f.toPath(), data != null ? data : diaModificacao, data != null, modificacao);
+            Exportacao atual = porData.get(e.data);
+            if (atual == null) {
+                porData.put(e.data, e);
+            } else {
+                Exportacao fica = PREFERENCIA.compare(e, atual) > 0 ? e : atual;
+                Exportacao sai = fica == e ? atual : e;
+                porData.put(e.data, fica);
+                System.out.println("AVISO: " + sai.arquivo.getFileName() + " tem a mesma data de "
+                        + fica.arquivo.getFileName() + " (" + e.data + "); usado só o segundo.");
+            }
+        }
+        return new ArrayList<>(porData.values());
+    }
+
+    private static final Comparator<Exportacao> PREFERENCIA = Comparator
+            .comparing((Exportacao e) -> e.dataDoNome)
+            .thenComparingLong(e -> e.modificacao)
+            .thenComparing(e -> e.arquivo.getFileName().toString());
+
+    /**
+     * Data contida no nome do arquivo, ou null. Para dd-MM sem ano usa o ano da data de
+     * modificação, voltando um ano se a data ficasse depois dela (exportação de dezembro
+     * copiada em janeiro).
+     */
+    static LocalDate dataDoNome(String nome, LocalDate modificacao) {
+        Matcher m = DIA_MES_ANO.matcher(nome);
+        if (m.find()) {
+            return data(m.group(3), m.group(2), m.group(1));
+        }
+        m = ANO_MES_DIA.matcher(nome);
+        if (m.find()) {
+            return data(m.group(1), m.group(2), m.group(3));
+        }
+        m = DIA_MES_ANO_JUNTOS.matcher(nome);
+        if (m.find()) {
+            return data(m.group(3), m.group(2), m.group(1));
+        }
+        m = DIA_MES.matcher(nome);
+        if (m.find()) {
+            LocalDate d = data(String.valueOf(modificacao.getYear()), m.group(2), m.group(1));
+            if (d != null && d.isAfter(modificacao)) {
+                d = d.minusYears(1);
+            }
+            return d;
+        }
+        return null;
+    }
+
+    private static LocalDate data(String ano, String mes, String dia) {
+        try {
+            return LocalDate.of(Integer.parseInt(ano), Integer.parseInt(mes), Integer.parseInt(dia));
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Linhas do CSV reduzidas ao que a agregação usa (CPF, lote, situação e valor),
+ * em arrays primitivos e ordenadas por CPF.
+ *
+ * É o estado guardado entre execuções do processamento incremental: comparando o
+ * índice da exportação anterior com o da atual, CPF a CPF, só as linhas de quem mudou
+ * precisam ser desfeitas e refeitas nos acumuladores. Um CPF pode ter mais de uma
+ * linha (aparece em mais de um lote), por isso a comparação é por grupo de linhas.
+ */
+public final class IndiceCpf implements ConsumidorLinha {
+    // A ordenação empacota (cpf + 1) e a posição da linha num long
+    private static final int BITS_POSICAO = 26;
+    /** Mais linhas que isso não cabem na posição empacotada da ordenação. */
+    public static final int MAXIMO_LINHAS = (1 << BITS_POSICAO) - 1;
+
+    private long[] cpf = new long[1024];
+    private int[] lote = new int[1024];
+    private byte[] situacao = new byte[1024];
+    private long[] valorCentavos = new long[1024];
+    private int tamanho;
+    private boolean ordenado = true;
+
+    @Override
+    public void aceitar(LinhaLote linha) {
+        if (linha.getLote() < 1) {
+            return; // também ignorada pelo AcumuladorLotes
+        }
+        if (tamanho == cpf.length) {
+            int capacidade = tamanho * 2;
+            cpf = Arrays.copyOf(cpf, capacidade);
+            lote = Arrays.copyOf(lote, capacidade);
+            situacao = Arrays.copyOf(situacao, capacidade);
+            valorCentavos = Arrays.copyOf(valorCentavos, capacidade);
+        }
+        byte flags = linha.getSituacao();
+        if (tamanho > 0 && menor(linha.cpf, linha.lote, flags, linha.valorCentavos, tamanho - 1)) {
+            ordenado = false;
+        }
+        cpf[tamanho] = linha.cpf;
+        lote[tamanho] = linha.lote;
+        situacao[tamanho] = flags;
+        valorCentavos[tamanho] = linha.valorCentavos;
+        tamanho++;
+    }
+
+    /**
+     * Ordena por CPF e, dentro do mesmo CPF, por lote, situação e valor, para que
+     * dois índices com as mesmas linhas em ordens diferentes fiquem idênticos.
+     * Linhas sem CPF ficam juntas no começo. Se as linhas chegaram nessa ordem (ex.: do
+     * cache em colunas, que guarda a ordem por CPF), não há o que ordenar.
+     */
+    public void ordenar() {
+        if (ordenado) {
+            return;
+        }
+        int[] ordem = ordem(cpf, tamanho, this::comparar);
+        long[] novoCpf = new long[cpf.length];
+        int[] novoLote = new int[lote.length];
+        byte[] novaSituacao = new byte[situacao.length];
+        long[] novoValor = new long[valorCentavos.length];
+        for (int i = 0; i < tamanho; i++) {
+            int origem = ordem[i];
+            novoCpf[i] = cpf[origem];
+            novoLote[i] = lote[origem];
+            novaSituacao[i] = situacao[origem];
+            novoValor[i] = valorCentavos[origem];
+        }
+        cpf = novoCpf;
+        lote = novoLote;
+        situacao = novaSituacao;
+        valorCentavos = novoValor;
+        ordenado = true;
+    }
+
+    /**
+     * Posições das n primeiras linhas na ordem do índice: por CPF (as sem CPF, -1, no
+     * começo) e, no mesmo CPF, pela comparação desempate entre duas posições.
+     */
+    static int[] ordem(long[] cpf, int n, IntBinaryOperator desempate) {
+        if (n > MAXIMO_LINHAS) {
+            throw new IllegalArgumentException("A exportação tem " + n + " linhas; o índice por CPF do --incremental"
+                    + " comporta até " + MAXIMO_LINHAS + ". Rode sem --incremental.");
+        }
+        long[] chaves = new long[n];
+        for (int i = 0; i < n; i++) {
+            chaves[i] = ((cpf[i] + 1) << BITS_POSICAO) | i;
+        }
+        Arrays.sort(chaves);
+        int[] ordem = new int[n];
+        for (int i = 0; i < n; i++) {
+            ordem[i] = (int) (chaves[i] & MAXIMO_LINHAS);
+        }
+
+        // Grupos do mesmo CPF são pequenos: inserção direta basta
+        for (int inicio = 0, fim; inicio < n; inicio = fim) {
+            fim = inicio + 1;
+            while (fim < n && cpf[ordem[fim]] == cpf[ordem[inicio]]) {
+                fim++;
+            }
+            for (int i = inicio + 1; i < fim; i++) {
+                for (int j = i; j > inicio && desempate.applyAsInt(ordem[j], ordem[j - 1]) < 0; j--) {
+                    int t = ordem[j];
+                    ordem[j] = ordem[j - 1];
+                    ordem[j - 1] = t;
+                }
+            }
+        }
+        return ordem;
+    }
+
+    private int comparar(int a, int b) {
+        if (cpf[a] != cpf[b]) return Long.compare(cpf[a], cpf[b]);
+        if (lote[a] != lote[b]) return Integer.compare(lote[a], lote[b]);
+        if (situacao[a] != situacao[b]) return Byte.compare(situacao[a], situacao[b]);
+        return Long.compare(valorCentavos[a], valorCentavos[b]);
+    }
+
+    private boolean menor(long c, int l, byte s, long v, int i) {
+        if (c != cpf[i]) return c < cpf[i];
+        if (l != lote[i]) return l < lote[i];
+        if (s != situacao[i]) return s < situacao[i];
+        return v < valorCentavos[i];
+    }
+
+    public int size() {
+        return tamanho;
+    }
+
+    /** Posição logo após a última linha com o mesmo CPF da linha i (índice ordenado). */
+    public int fimDoGrupo(int i) {
+        long c = cpf[i];
+        int fim = i + 1;
+        while (fim < tamanho && cpf[fim] == c) {
+            fim++;
+        }
+        return fim;
+    }
+
+    public long getCpf(int i) {
+        return cpf[i];
+    }
+
+    /** Os grupos [a, aFim) deste índice e [b, bFim) do outro têm exatamente as mesmas linhas? */
+    public boolean mesmoGrupo(int a, int aFim, IndiceCpf outro, int b, int bFim) {
+        if (aFim - a != bFim - b) {
+            return false;
+        }
+        for (; a < aFim; a++, b++) {
+            if (cpf[a] != outro.cpf[b] || lote[a] != outro.lote[b] || situacao[a] != outro.situacao[b]
+                    || valorCentavos[a] != outro.valorCentavos[b]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Preenche a linha reaproveitável com os campos da posição i. */
+    public void copiar(int i, LinhaLote linha) {
+        linha.cpf = cpf[i];
+        linha.lote = lote[i];
+        linha.setSituacao(situacao[i]);
+        linha.valorCentavos = valorCentavos[i];
+    }
+
+    public void gravar(DataOutput out) throws IOException {
+        ordenar();
+        out.writeInt(tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            out.writeLong(cpf[i]);
+            out.writeInt(lote[i]);
+            out.writeByte(situacao[i]);
+            out.writeLong(valorCentavos[i]);
+        }
+    }
+
+    public static IndiceCpf ler(DataInput in) throws IOException {
+        IndiceCpf indice = new IndiceCpf();
+        int n = in.readInt();
+        if (n < 0) {
+            throw new IOException("Índice por CPF corrompido: " + n + " linhas");
+        }
+        indice.cpf = new long[Math.max(n, 1)];
+        indice.lote = new int[Math.max(n, 1)];
+        indice.situacao = new byte[Math.max(n, 1)];
+        indice.valorCentavos = new long[Math.max(n, 1)];
+        for (int i = 0; i < n; i++) {
+            indice.cpf[i] = in.readLong();
+            indice.lote[i] = in.readInt();
+            indice.situacao[i] = in.readByte();
+            indice.valorCentavos[i] = in.readLong();
+        }
+        indice.tamanho = n;
+        return indice;
+    }
+}
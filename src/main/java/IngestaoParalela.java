@@ -0,0 +1,184 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Leitura paralela do CSV de lotes.
+ *
+ * O arquivo é mapeado em memória e dividido em pedaços alinhados às quebras de linha.
+ * Cada pedaço é agregado por uma tarefa do fork-join num consumidor parcial próprio, e
+ * os parciais são juntados no final, na ordem do arquivo. Como os acumuladores só
+ * guardam inteiros, o resultado é idêntico ao da leitura sequencial.
+ */
+public final class IngestaoParalela {
+    // Abaixo disso a leitura sequencial já é mais rápida que dividir o arquivo
+    static final long TAMANHO_MINIMO = 4L << 20;
+    private static final long TAMANHO_MAXIMO_PEDACO = 256L << 20;
+    private static final int PEDACOS_POR_THREAD = 4;
+    private static final int JANELA_CABECALHO = 1 << 20;
+
+    private IngestaoParalela() {
+    }
+
+    /**
+     * Lê o arquivo e preenche o consumidor, em paralelo se o arquivo for grande.
+     * Se algum campo entre aspas tiver quebra de linha, o arquivo é relido sequencialmente;
+     * uma planilha .xlsx (um zip, sem linhas a dividir) é sempre lida em sequência.
+     * Retorna a contagem de linhas somada de todos os pedaços.
+     */
+    public static <T extends ConsumidorParticionavel<T>> ContagemLinhas ler(Path arquivo, T acumulador) throws IOException {
+        return ler(arquivo, acumulador, ForkJoinPool.commonPool(), TAMANHO_MINIMO);
+    }
+
+    static <T extends ConsumidorParticionavel<T>> ContagemLinhas ler(Path arquivo, T acumulador, ForkJoinPool pool,
+                                                                    long tamanhoMinimo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            if (tamanho >= tamanhoMinimo && pool.getParallelism() > 1 && !PlanilhaXlsx.ehPlanilha(arquivo)) {
+                ContagemLinhas contagem = new ContagemLinhas();
+                T parcial = lerEmPedacos(canal, tamanho, acumulador, pool, contagem);
+                if (parcial != null) {
+                    acumulador.somar(parcial);
+                    return contagem;
+                }
+            }
+        }
+        return DecodificadorCsv.lerArquivo(arquivo, acumulador);
+    }
+
+    /**
+     * Retorna null se o arquivo não puder ser dividido pelas quebras de linha; senão soma
+     * em contagem as linhas de todos os pedaços.
+     */
+    private static <T extends ConsumidorParticionavel<T>> T lerEmPedacos(FileChannel canal, long tamanho, T modelo,
+                                                                         ForkJoinPool pool, ContagemLinhas contagem)
+            throws IOException {
+        MappedByteBuffer inicio = canal.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(tamanho, JANELA_CABECALHO));
+        int iniCabecalho = DecodificadorCsv.pularBom(inicio, 0, inicio.limit());
+        int fimCabecalho = DecodificadorCsv.fimDaLinha(inicio, iniCabecalho, inicio.limit(), tamanho <= JANELA_CABECALHO);
+        if (fimCabecalho < 0) {
+            return null;
+        }
+        DecodificadorCsv cabecalho = DecodificadorCsv.doCabecalho(inicio, iniCabecalho, fimCabecalho);
+
+        long[] limites = dividir(canal, fimCabecalho, tamanho, pool.getParallelism() * PEDACOS_POR_THREAD);
+        Pedacos<T> tarefa = new Pedacos<>(canal, limites, 0, limites.length - 1, cabecalho, modelo);
+        T resultado;
+        try {
+            resultado = pool.invoke(tarefa);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (tarefa.quebraEntreAspas) {
+            return null;
+        }
+        contagem.somar(tarefa.contagem);
+        return resultado;
+    }
+
+    /**
+     * Divide [inicio, tamanho) em pedaços que começam sempre logo depois de uma quebra de
+     * linha. limites[i] é o início do pedaço i; o último elemento é o fim do arquivo.
+     */
+    static long[] dividir(FileChannel canal, long inicio, long tamanho, int quantidade) throws IOException {
+        long alvo = Math.max(1, (tamanho - inicio) / quantidade);
+        alvo = Math.min(alvo, TAMANHO_MAXIMO_PEDACO);
+        long[] limites = new long[(int) ((tamanho - inicio) / alvo) + 2];
+        int n = 0;
+        limites[n++] = inicio;
+        long pos = inicio + alvo;
+        while (pos < tamanho) {
+            long proximaLinha = depoisDaQuebra(canal, pos, tamanho);
+            if (proximaLinha >= tamanho) {
+                break;
+            }
+            if (proximaLinha > limites[n - 1]) {
+                limites[n++] = proximaLinha;
+            }
+            pos = proximaLinha + alvo;
+        }
+        limites[n++] = tamanho;
+        long[] exatos = new long[n];
+        System.arraycopy(limites, 0, exatos, 0, n);
+        return exatos;
+    }
+
+    /** Posição logo após a primeira quebra de linha em [pos, tamanho), ou tamanho. */
+    private static long depoisDaQuebra(FileChannel canal, long pos, long tamanho) throws IOException {
+        final int janela = 64 << 10;
+        while (pos < tamanho) {
+            int n = (int) Math.min(janela, tamanho - pos);
+            MappedByteBuffer buf = canal.map(FileChannel.MapMode.READ_ONLY, pos, n);
+            for (int i = 0; i < n; i++) {
+                if (buf.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += n;
+        }
+        return tamanho;
+    }
+
+    /** Agrega os pedaços [de, ate) dividindo o intervalo ao meio até sobrar um só. */
+    private static final class Pedacos<T extends ConsumidorParticionavel<T>> extends RecursiveTask<T> {
+        private static final long serialVersionUID = 1L;
+        private final FileChannel canal;
+        private final long[] limites;
+        private final int de;
+        private final int ate;
+        private final DecodificadorCsv cabecalho;
+        private final T modelo;
+        volatile boolean quebraEntreAspas;
+        // Linhas deste intervalo de pedaços, preenchida por compute()
+        ContagemLinhas contagem;
+
+        Pedacos(FileChannel canal, long[] limites, int de, int ate, DecodificadorCsv cabecalho, T modelo) {
+            this.canal = canal;
+            this.limites = limites;
+            this.de = de;
+            this.ate = ate;
+            this.cabecalho = cabecalho;
+            this.modelo = modelo;
+        }
+
+        @Override
+        protected T compute() {
+            if (ate - de == 1) {
+                return lerPedaco();
+            }
+            int meio = (de + ate) >>> 1;
+            Pedacos<T> esquerda = new Pedacos<>(canal, limites, de, meio, cabecalho, modelo);
+            Pedacos<T> direita = new Pedacos<>(canal, limites, meio, ate, cabecalho, modelo);
+            esquerda.fork();
+            T doFim = direita.compute();
+            // Junta na ordem do arquivo: quem guarda linhas (cache em colunas) depende disso
+            T resultado = esquerda.join();
+            resultado.somar(doFim);
+            quebraEntreAspas = esquerda.quebraEntreAspas || direita.quebraEntreAspas;
+            contagem = esquerda.contagem;
+            contagem.somar(direita.contagem);
+            return resultado;
+        }
+
+        private T lerPedaco() {
+            long ini = limites[de];
+            int tamanho = (int) (limites[ate] - ini);
+            T parcial = modelo.novoParcial();
+            try {
+                MappedByteBuffer buf = canal.map(FileChannel.MapMode.READ_ONLY, ini, tamanho);
+                DecodificadorCsv decodificador = cabecalho.copia();
+                decodificador.varrer(buf, 0, tamanho, true, parcial);
+                quebraEntreAspas = decodificador.teveQuebraEntreAspas();
+                contagem = decodificador.getContagem();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return parcial;
+        }
+    }
+}
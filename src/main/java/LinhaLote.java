@@ -0,0 +1,108 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Campos de uma linha do CSV de lotes já convertidos para tipos primitivos.
+ * A mesma instância é reaproveitada a cada registro, então quem a recebe
+ * não deve guardar referência a ela depois de retornar.
+ */
+public final class LinhaLote {
+    // Bits de getSituacao(), usados pelos formatos binários (índice por CPF, cache em colunas)
+    static final int PROVA = 1;
+    static final int RECADASTRO = 2;
+    static final int VINCULO_ATIVO = 4;
+    static final int VALOR_VALIDO = 8;
+
+    int lote;
+    // CPF como número (sem máscara), ou -1 se a linha não tiver CPF
+    long cpf = -1;
+    // Valor em centavos, exato para somar em qualquer ordem; zero se o campo não for número
+    long valorCentavos;
+    boolean valorValido;
+    boolean provaFeita;
+    boolean recadastroFeito;
+    // status_vinculo contém "ATIVO" ou "AGUARDANDO"
+    boolean vinculoAtivo;
+    // Código de cada coluna de texto no dicionário global da dimensão, por Dimensao.ordinal()
+    final int[] codigos = new int[Dimensao.values().length];
+    // Matrícula como trecho do buffer do decodificador, convertida só quando pedida;
+    // linhas vindas do cache em colunas ou do índice por CPF não a têm
+    ByteBuffer texto;
+    int inicioMatricula;
+    int fimMatricula;
+
+    public int getLote() {
+        return lote;
+    }
+
+    public long getCpf() {
+        return cpf;
+    }
+
+    public long getValorCentavos() {
+        return valorCentavos;
+    }
+
+    public boolean isValorValido() {
+        return valorValido;
+    }
+
+    /** Inativo = APOSENTADO, PENSIONISTA ou PENSIONISTA_NAO_PREVIDENCIARIO. */
+    public boolean isInativo() {
+        return !vinculoAtivo;
+    }
+
+    /**
+     * Regra de desbloqueio: exige prova de vida e, para ativos e quem aguarda
+     * aposentadoria, também o recadastro.
+     */
+    public boolean isDesbloqueado() {
+        if (!provaFeita) {
+            return false;
+        }
+        return vinculoAtivo ? recadastroFeito : true;
+    }
+
+    /** Matrícula como está no CSV, ou "" se o arquivo não tiver a coluna. */
+    public String getMatricula() {
+        if (texto == null || fimMatricula <= inicioMatricula) {
+            return "";
+        }
+        byte[] bytes = new byte[fimMatricula - inicioMatricula];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = texto.get(inicioMatricula + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Código do texto da coluna no {@link Dicionario} da dimensão. */
+    public int getCodigo(Dimensao dimensao) {
+        return codigos[dimensao.ordinal()];
+    }
+
+    /** Situação da linha (prova, recadastro, vínculo e validade do valor) num único byte. */
+    public byte getSituacao() {
+        int flags = 0;
+        if (provaFeita) flags |= PROVA;
+        if (recadastroFeito) flags |= RECADASTRO;
+        if (vinculoAtivo) flags |= VINCULO_ATIVO;
+        if (valorValido) flags |= VALOR_VALIDO;
+        return (byte) flags;
+    }
+
+    void setSituacao(byte situacao) {
+        provaFeita = (situacao & PROVA) != 0;
+        recadastroFeito = (situacao & RECADASTRO) != 0;
+        vinculoAtivo = (situacao & VINCULO_ATIVO) != 0;
+        valorValido = (situacao & VALOR_VALIDO) != 0;
+    }
+
+    /** CPF no formato 000.000.000-00. */
+    public static String formatarCpf(long cpf) {
+        if (cpf < 0) {
+            return "-";
+        }
+        String d = String.format("%011d", cpf);
+        return d.substring(0, 3) + "." + d.substring(3, 6) + "." + d.substring(6, 9) + "-" + d.substring(9);
+    }
+}
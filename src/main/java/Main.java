@@ -1,39 +1,38 @@
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
-import org.jfree.chart.ChartFactory;
-import org.jfree.chart.ChartUtils;
-import org.jfree.chart.JFreeChart;
-import org.jfree.data.general.DefaultPieDataset;
-import com.itextpdf.kernel.pdf.PdfDocument;
-import com.itextpdf.kernel.pdf.PdfWriter;
-import com.itextpdf.layout.Document;
-import com.itextpdf.layout.element.Paragraph;
-import com.itextpdf.layout.element.Table;
-import com.itextpdf.layout.element.Cell;
-import com.itextpdf.io.image.ImageDataFactory;
-import com.itextpdf.layout.element.Image;
-import com.itextpdf.kernel.colors.ColorConstants;
-import com.itextpdf.kernel.colors.DeviceRgb;
-import com.itextpdf.layout.properties.TextAlignment;
-import com.itextpdf.layout.properties.UnitValue;
-
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.io.PrintStream;
 import java.text.NumberFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
+/**
+ * Ponto de entrada: lê o CSV, imprime o resumo por lote e chama o RelatorioPdf para o
+ * gráfico e o PDF. Esta classe não referencia iText, JFreeChart nem AWT, para que os
+ * modos --console e --json rodem sem carregar nenhum deles.
+ */
 public class Main {
+    // Data e hora impressas nos relatórios e no JSON
+    private static final DateTimeFormatter FORMATO_DATA_HORA = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+
     public static void main(String[] args) throws Exception {
-        // Detecta se está rodando sem bibliotecas (Run Java do VS Code)
-        try {
-            Class.forName("com.itextpdf.kernel.pdf.PdfDocument");
-        } catch (ClassNotFoundException e) {
+        List<String> opcoes = Arrays.asList(args);
+        // Só os números: --console imprime as tabelas, --json imprime o resumo em JSON
+        boolean saidaJson = opcoes.contains("--json");
+        boolean somenteResumo = saidaJson || opcoes.contains("--console");
+        PrintStream saida = System.out;
+        if (saidaJson) {
+            // A saída padrão fica só com o JSON; avisos e mensagens vão para a de erro
+            System.setOut(System.err);
+        }
+
+        // Detecta se está rodando sem bibliotecas (Run Java do VS Code). Procura o arquivo
+        // da classe em vez de carregá-la, o que já traria boa parte do iText para a memória
+        if (!somenteResumo && Main.class.getClassLoader().getResource("com/itextpdf/kernel/pdf/PdfDocument.class") == null) {
             System.out.println("\n=== EXECUTANDO VIA JAR COM BIBLIOTECAS ===\n");
             String jarPath = "target\\cearaprev-report-jar-with-dependencies.jar";
             
@@ -47,18 +46,11 @@ public class Main {
             }
             
             if (jarFile.exists()) {
-                // Executa o JAR com as bibliotecas
-                ProcessBuilder pb1 = new ProcessBuilder("java", "-jar", jarFile.getAbsolutePath());
-                pb1.inheritIO();
-                Process p1 = pb1.start();
-                p1.waitFor();
-                
-                // Executa também o modo inativos
-                System.out.println("\n\n=== GERANDO RELATÓRIO DE INATIVOS ===\n");
-                ProcessBuilder pb2 = new ProcessBuilder("java", "-jar", jarFile.getAbsolutePath(), "inativos");
-                pb2.inheritIO();
-                Process p2 = pb2.start();
-                p2.waitFor();
+                // Executa o JAR com as bibliotecas, gerando os dois relatórios numa única JVM
+                ProcessBuilder pb = new ProcessBuilder("java", "-jar", jarFile.getAbsolutePath(), "todos");
+                pb.inheritIO();
+                Process p = pb.start();
+                p.waitFor();
                 
                 System.out.println("\n✅ AMBOS OS RELATÓRIOS FORAM GERADOS COM SUCESSO!");
             } else {
@@ -68,134 +60,635 @@ public class Main {
             return;
         }
         
-        System.setProperty("java.awt.headless", "true");
+        // Tempos, vazão e contadores da JVM por fase, gravados em JSON ao lado dos PDFs. Sem
+        // PDF não há relatório de execução, e as métricas nem carregam o java.management
+        MetricasExecucao metricas;
+        if (somenteResumo) {
+            metricas = MetricasExecucao.desligada();
+        } else {
+            System.setProperty("java.awt.headless", "true");
+            metricas = new MetricasExecucao(args.length > 0 && !args[0].startsWith("--") ? args[0].toLowerCase() : "geral");
+        }
 
-        // Verifica se deve filtrar apenas inativos
-        boolean apenasInativos = args.length > 0 && args[0].equalsIgnoreCase("inativos");
-        
-        if (apenasInativos) {
+        if (args.length > 0 && args[0].equalsIgnoreCase("historico")) {
+            if (saidaJson) {
+                System.out.println("ERRO: o modo histórico não tem saída em JSON; use --console");
+                return;
+            }
+            executarHistorico(args, metricas, somenteResumo);
+            return;
+        }
+        if (args.length > 0 && args[0].equalsIgnoreCase("vigiar")) {
+            if (somenteResumo) {
+                System.out.println("ERRO: o modo vigia sempre gera os PDFs; o resumo em JSON fica em /resumo");
+                return;
+            }
+            executarVigia(args);
+            return;
+        }
+
+        // Verifica quais relatórios gerar: "inativos", "todos" (geral + inativos) ou apenas o geral
+        Variante[] variantes;
+        if (args.length > 0 && args[0].equalsIgnoreCase("todos")) {
+            variantes = new Variante[]{Variante.GERAL, Variante.INATIVOS};
+            System.out.println("\n>>> MODO: RELATÓRIO GERAL E DE INATIVOS (LEITURA ÚNICA) <<<\n");
+        } else if (args.length > 0 && args[0].equalsIgnoreCase("inativos")) {
+            variantes = new Variante[]{Variante.INATIVOS};
             System.out.println("\n>>> MODO: RELATÓRIO APENAS DE INATIVOS <<<\n");
         } else {
+            variantes = new Variante[]{Variante.GERAL};
             System.out.println("\n>>> MODO: RELATÓRIO GERAL (TODOS) <<<");
-            System.out.println("    Para gerar relatório apenas de inativos, execute: java -jar programa.jar inativos\n");
+            System.out.println("    Para gerar relatório apenas de inativos, execute: java -jar programa.jar inativos");
+            System.out.println("    Para gerar os dois relatórios de uma vez, execute: java -jar programa.jar todos");
+            System.out.println("    Para regenerar sozinho quando o CSV mudar, execute: java -jar programa.jar vigiar");
+            System.out.println("    Para só os números, sem gráfico nem PDF, acrescente --console ou --json");
+            System.out.println("    Para ler outra exportação (CSV ou planilha .xlsx), acrescente --arquivo=caminho");
+            System.out.println("    Para um PDF por órgão, acrescente --por-orgao");
+            System.out.println("    Para ver o que mudou desde a última execução, acrescente --incremental"
+                    + " (a mesma exportação não é relida)");
+            System.out.println("    Para tirar dos totais os CPFs repetidos, acrescente --duplicados=primeira ou --duplicados=ultimo-lote\n");
+        }
+
+        File csvFile = localizarCsv(args);
+        if (!csvFile.exists()) {
+            System.out.println("ERRO: Coloque o arquivo 'todos_os_lotes.csv' (ou a planilha 'todos_os_lotes.xlsx') na raiz do projeto!");
+            System.out.println("Caminho esperado: " + csvFile.getAbsolutePath());
+            return;
+        }
+
+        // Totais oficiais por lote (geral e de inativos), mantidos fora do código
+        TotaisOficiais totaisOficiais = carregarTotais(csvFile);
+
+        // Recortes pedidos (--fatia=orgao:lote=3 ...), tirados de um cubo preenchido na mesma leitura
+        List<Recorte> recortes;
+        try {
+            recortes = lerRecortes(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println("ERRO: " + e.getMessage());
+            return;
+        }
+
+        if (saidaJson && !recortes.isEmpty()) {
+            System.out.println("AVISO: os recortes (--fatia) não entram no --json; só no console e no PDF.");
+            recortes = Collections.emptyList();
         }
 
+        // Um PDF por órgão, além dos relatórios de sempre; no console, use --fatia=orgao
+        boolean porOrgao = opcoes.contains("--por-orgao");
+        if (porOrgao && somenteResumo) {
+            System.out.println("AVISO: --por-orgao só gera PDFs; no console, os números por órgão saem com --fatia=orgao.");
+            porOrgao = false;
+        }
+
+        Leitura leitura;
+        try {
+            leitura = lerCsv(csvFile, variantes, recortes, args, false, porOrgao, metricas);
+        } catch (IOException | IllegalArgumentException e) {
+            // Cabeçalho sem as colunas esperadas ou planilha em formato que não sabemos ler
+            System.out.println("ERRO: " + e.getMessage());
+            return;
+        }
+
+        // Formata data e hora com java.time: o SimpleDateFormat carregaria o calendário e os
+        // dados de localidade, que sozinhos custam mais que o resto da partida do --json
+        String dataHora = FORMATO_DATA_HORA.format(java.time.LocalDateTime.now());
+
+        if (leitura.incremental != null) {
+            imprimirDesdeUltimaExecucao(leitura.incremental);
+        }
+
+        // Anexo do PDF com cada beneficiário bloqueado, lido do CSV numa segunda passada
+        java.nio.file.Path csvAnexo = Arrays.asList(args).contains("--anexo") ? csvFile.toPath() : null;
+
+        if (saidaJson) {
+            // O mesmo documento que o modo vigia publica em /resumo
+            Map<Variante, ResumoLotes> resumos = new java.util.EnumMap<>(Variante.class);
+            for (Variante v : variantes) {
+                resumos.put(v, ResumoLotes.calcular(v, totaisOficiais, leitura.acumulador));
+            }
+            saida.print(resumoJson(csvFile, dataHora, resumos, leitura.duplicidade));
+            saida.flush();
+            return;
+        }
+
+        NumberFormat nf = NumberFormat.getInstance(new Locale("pt", "BR"));
+        nf.setMaximumFractionDigits(2);
+        imprimirDuplicados(leitura.duplicidade, nf);
+        for (Variante v : variantes) {
+            emitirRelatorio(v, totaisOficiais, leitura, recortes, csvAnexo, nf, dataHora, metricas, null, somenteResumo);
+        }
+
+        if (leitura.orgaos != null) {
+            MetricasExecucao.Fase fase = metricas.iniciar("orgaos", null);
+            RelatoriosPorOrgao.gerar(leitura.orgaos, variantes, dataHora, Runtime.getRuntime().availableProcessors());
+            fase.terminar();
+        }
+
+        if (!somenteResumo) {
+            gravarMetricas(metricas, "relatorio_cearaprev_execucao.json");
+        }
+    }
+
+    // A exportação como CSV ou como a planilha recebida, lida sem conversão
+    private static final String[] NOMES_EXPORTACAO = {"todos_os_lotes.csv", "todos_os_lotes.xlsx"};
+
+    /**
+     * O arquivo de --arquivo=caminho ou, sem essa opção, todos_os_lotes.csv (ou .xlsx) no
+     * diretório atual ou, se não estiver lá, na raiz do projeto; pode não existir.
+     */
+    private static File localizarCsv(String[] args) {
+        for (String arg : args) {
+            if (arg.startsWith("--arquivo=")) {
+                return new File(arg.substring("--arquivo=".length()));
+            }
+        }
         // Determinar o diretório do projeto (3 níveis acima de src/main/java)
         String dirAtual = System.getProperty("user.dir");
-        File csvFile = new File(dirAtual, "todos_os_lotes.csv");
+        File csvFile = procurarExportacao(new File(dirAtual));
         
         // Se não encontrar no diretório atual, tentar na raiz do projeto
         if (!csvFile.exists()) {
             File dirProjeto = new File(dirAtual).getParentFile().getParentFile().getParentFile();
             if (dirProjeto != null) {
-                csvFile = new File(dirProjeto, "todos_os_lotes.csv");
+                csvFile = procurarExportacao(dirProjeto);
             }
         }
+        return csvFile;
+    }
 
-        if (!csvFile.exists()) {
-            System.out.println("ERRO: Coloque o arquivo 'todos_os_lotes.csv' na raiz do projeto!");
-            System.out.println("Caminho esperado: " + csvFile.getAbsolutePath());
-            return;
+    /** O primeiro de NOMES_EXPORTACAO que existir no diretório; se nenhum, o CSV. */
+    private static File procurarExportacao(File diretorio) {
+        for (String nome : NOMES_EXPORTACAO) {
+            File arquivo = new File(diretorio, nome);
+            if (arquivo.exists()) {
+                return arquivo;
+            }
         }
+        return new File(diretorio, NOMES_EXPORTACAO[0]);
+    }
 
-        // Totais oficiais por lote (para relatório geral)
-        long[] totalOficial = new long[]{0, 8611, 9202, 10377, 10622};
-        // Totais oficiais de inativos (fornecidos manualmente)
-        long[] totalOficialInativos = new long[]{0, 2765, 5348, 5552, 4417};
-        
-        long[] desbloqueados = new long[5];
-        double[] valorRetido = new double[5];
-        double[] valorBloqueados = new double[5];
-        long[] totalInativosPorLote = new long[5]; // Total de inativos contados do CSV
-
-        try (BufferedReader br = Files.newBufferedReader(csvFile.toPath(), StandardCharsets.UTF_8);
-             CSVParser parser = new CSVParser(br, CSVFormat.DEFAULT.withFirstRecordAsHeader().withDelimiter(';').withIgnoreEmptyLines(true).withTrim(true).withAllowMissingColumnNames(true))) {
-
-            for (CSVRecord r : parser) {
-                String loteStr = r.get("lote_suspensao").trim();
-                if (loteStr.isEmpty()) continue;
-                int lote;
-                try {
-                    lote = Integer.parseInt(loteStr);
-                } catch (NumberFormatException ex) {
-                    continue;
-                }
-                if (lote < 1 || lote >= desbloqueados.length) continue;
+    private static TotaisOficiais carregarTotais(File csvFile) throws IOException {
+        File totaisFile = new File(csvFile.getParentFile(), TotaisOficiais.NOME_ARQUIVO);
+        if (!totaisFile.exists()) {
+            System.out.println("AVISO: '" + TotaisOficiais.NOME_ARQUIVO + "' não encontrado em " + totaisFile.getParent()
+                    + "; os totais da remessa serão as contagens do CSV.");
+        }
+        return TotaisOficiais.carregar(totaisFile);
+    }
 
-                String valorCampo = r.get("valor").trim();
-                // transforma 1.234,56 em 1234.56
-                String valorNormalized = valorCampo.replace(".", "").replace(",", ".");
-                double valor = 0.0;
-                if (!valorNormalized.isEmpty()) {
-                    try {
-                        valor = Double.parseDouble(valorNormalized);
-                    } catch (NumberFormatException ignored) {
-                    }
-                }
+    private static List<Recorte> lerRecortes(String[] args) {
+        List<Recorte> recortes = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--fatia=")) {
+                recortes.add(Recorte.interpretar(arg.substring("--fatia=".length())));
+            }
+        }
+        return recortes;
+    }
 
-                // Lidar com BOM no primeiro cabeçalho
-                String statusCearaprev = "";
-                String statusRecadastro = "";
-                String vinculo = "";
-                
-                try {
-                    statusCearaprev = r.get("status_cearaprev");
-                } catch (IllegalArgumentException e) {
-                    statusCearaprev = r.get("\uFEFFstatus_cearaprev"); // Com BOM
-                }
-                
-                try {
-                    statusRecadastro = r.get("status_recadastro");
-                } catch (IllegalArgumentException e) {
-                    statusRecadastro = r.get("\uFEFFstatus_recadastro"); // Com BOM
-                }
-                
-                try {
-                    vinculo = r.get("status_vinculo");
-                } catch (IllegalArgumentException e) {
-                    vinculo = r.get("\uFEFFstatus_vinculo"); // Com BOM
-                }
-                
-                boolean provaFeita = statusCearaprev.contains("REALIZADA");
-                boolean recadastroFeito = statusRecadastro.contains("REALIZADO");
-                
-                // Verifica se é inativo (APOSENTADO, PENSIONISTA, PENSIONISTA_NAO_PREVIDENCIARIO)
-                boolean isInativo = !vinculo.contains("ATIVO") && !vinculo.contains("AGUARDANDO");
-                
-                // Contabiliza total de inativos por lote (sempre, independente do modo)
-                if (isInativo) {
-                    totalInativosPorLote[lote] += 1;
-                }
-                
-                // Se modo inativos, pula registros que não são inativos
-                if (apenasInativos && !isInativo) {
-                    continue;
-                }
+    /**
+     * O que a leitura do CSV preenche: acumuladores, cubo dos recortes, os CPFs repetidos
+     * e, se pedido, o incremental (que não passa pela verificação de duplicados).
+     */
+    private static final class Leitura {
+        final AcumuladorLotes acumulador;
+        final CuboAgregacao cubo;
+        final AcumuladorOrgaos orgaos;
+        final DuplicidadeCpf duplicidade;
+        final ProcessamentoIncremental.Resultado incremental;
+
+        Leitura(AcumuladorLotes acumulador, CuboAgregacao cubo, AcumuladorOrgaos orgaos,
+                DuplicidadeCpf duplicidade, ProcessamentoIncremental.Resultado incremental) {
+            this.acumulador = acumulador;
+            this.cubo = cubo;
+            this.orgaos = orgaos;
+            this.duplicidade = duplicidade;
+            this.incremental = incremental;
+        }
+    }
 
-                boolean desbloq;
-                if (provaFeita) {
-                    if (vinculo.contains("ATIVO") || vinculo.contains("AGUARDANDO")) {
-                        desbloq = recadastroFeito;
+    /** A política de --duplicados=...; sem a opção, as linhas repetidas só são listadas. */
+    static DuplicidadeCpf.Politica politicaDuplicados(String[] args) {
+        for (String arg : args) {
+            if (arg.startsWith("--duplicados=")) {
+                return DuplicidadeCpf.Politica.porNome(arg.substring("--duplicados=".length()));
+            }
+        }
+        return DuplicidadeCpf.Politica.MARCAR;
+    }
+
+    /**
+     * Lê o CSV uma vez para todas as variantes. Com semMapeamento (modo vigia) a leitura é
+     * sequencial e sem cache em colunas: no Windows um arquivo mapeado em memória não pode
+     * ser substituído até a JVM liberar o mapeamento, o que impediria a próxima exportação
+     * de sobrescrever o CSV. Com porOrgao as linhas também são separadas por órgão.
+     *
+     * A {@link DuplicidadeCpf} procura os CPFs repetidos durante a leitura e só as linhas
+     * que a política mantém seguem para os acumuladores. Com ultimo-lote o arquivo (ou o
+     * cache) é lido duas vezes: a primeira só registra o maior lote de cada CPF. Com
+     * primeira e ultimo-lote a passada que agrega é sequencial, porque a linha que conta
+     * depende da ordem do arquivo.
+     */
+    private static Leitura lerCsv(File csvFile, Variante[] variantes, List<Recorte> recortes, String[] args,
+                                  boolean semMapeamento, boolean porOrgao, MetricasExecucao metricas) throws IOException {
+        CuboAgregacao cubo = recortes.isEmpty() ? null : new CuboAgregacao();
+        AcumuladorOrgaos orgaos = porOrgao ? new AcumuladorOrgaos(variantes) : null;
+        DuplicidadeCpf.Politica politica = politicaDuplicados(args);
+        
+        // Acumuladores de todas as variantes, preenchidos na mesma leitura do CSV
+        AcumuladorLotes acumulador = new AcumuladorLotes(variantes);
+        ProcessamentoIncremental.Resultado incremental = null;
+        DuplicidadeCpf duplicidade = null;
+        boolean usarCache = !semMapeamento && !Arrays.asList(args).contains("--sem-cache");
+        MetricasExecucao.Fase leitura = metricas.iniciar("leitura", null);
+        ContagemLinhas contagem = new ContagemLinhas();
+        String origem;
+        Agregacao agregacao = null;
+        if (Arrays.asList(args).contains("--incremental")) {
+            // Só as linhas dos CPFs que mudaram desde a última execução tocam os acumuladores
+            if (politica != DuplicidadeCpf.Politica.MARCAR) {
+                System.out.println("AVISO: --duplicados não se aplica ao --incremental; todas as linhas contam.");
+            }
+            File estado = new File(getDiretorioSaida(), ProcessamentoIncremental.NOME_ARQUIVO);
+            ConsumidorLinha extra = cubo;
+            if (orgaos != null) {
+                extra = cubo == null ? orgaos : linha -> {
+                    cubo.aceitar(linha);
+                    orgaos.aceitar(linha);
+                };
+            }
+            incremental = ProcessamentoIncremental.processar(csvFile.toPath(), estado, extra, usarCache);
+            acumulador = incremental.getAcumulador();
+            contagem = incremental.getContagem();
+            origem = "incremental";
+        } else {
+            duplicidade = new DuplicidadeCpf(politica);
+            Agregacao doCache = new Agregacao(acumulador, null, cubo, orgaos, duplicidade);
+            if (usarCache && ColunasLote.lerCache(csvFile.toPath(), contagem, duplicidade.isDuasPassadas()
+                    ? new ConsumidorLinha[]{duplicidade, doCache} : new ConsumidorLinha[]{doCache})) {
+                // CSV igual ao da última leitura: as linhas saem do cache em colunas, sem decodificar texto
+                System.out.println("Linhas lidas do cache " + ColunasLote.arquivoCache(csvFile.toPath()).getFileName());
+                origem = "cache";
+            } else {
+                agregacao = new Agregacao(acumulador, usarCache ? new ColunasLote() : null, cubo, orgaos, duplicidade);
+                boolean planilha = PlanilhaXlsx.ehPlanilha(csvFile.toPath());
+                boolean sequencial = planilha || semMapeamento || Arrays.asList(args).contains("--sequencial");
+                if (duplicidade.isDuasPassadas()) {
+                    // Primeira passada: só o maior lote de cada CPF
+                    if (sequencial) {
+                        DecodificadorCsv.lerArquivo(csvFile.toPath(), duplicidade);
                     } else {
-                        desbloq = true;
+                        IngestaoParalela.ler(csvFile.toPath(), duplicidade);
                     }
+                }
+                if (planilha) {
+                    // Planilha .xlsx: lida em sequência, linha a linha, direto do zip
+                    contagem = DecodificadorCsv.lerArquivo(csvFile.toPath(), agregacao);
+                    origem = "planilha";
+                } else if (sequencial || duplicidade.isEmOrdem()) {
+                    contagem = DecodificadorCsv.lerArquivo(csvFile.toPath(), agregacao);
+                    origem = "sequencial";
                 } else {
-                    desbloq = false;
+                    // Arquivos grandes são divididos em pedaços e agregados em paralelo
+                    contagem = IngestaoParalela.ler(csvFile.toPath(), agregacao);
+                    origem = "paralela";
                 }
+            }
+        }
+        leitura.terminar();
+        metricas.registrarLeitura(csvFile.getAbsolutePath(), origem, csvFile.length(), contagem);
+        if (agregacao != null && usarCache) {
+            MetricasExecucao.Fase fase = metricas.iniciar("cache", null);
+            gravarCache(agregacao.getColunas(), contagem, csvFile);
+            fase.terminar();
+        }
+        return new Leitura(acumulador, cubo, orgaos, duplicidade, incremental);
+    }
 
-                if (desbloq) {
-                    desbloqueados[lote] += 1;
+    /**
+     * Grava o relatório da execução no diretório de saída e devolve o JSON; uma falha aqui
+     * não derruba os PDFs já gerados.
+     */
+    private static String gravarMetricas(MetricasExecucao metricas, String nome) {
+        File destino = new File(getDiretorioSaida(), nome);
+        try {
+            String json = metricas.gravar(destino);
+            System.out.println("Métricas da execução: " + destino);
+            return json;
+        } catch (IOException e) {
+            System.out.println("AVISO: não foi possível gravar " + nome + ": " + e.getMessage());
+            return metricas.json();
+        }
+    }
+
+    // Porta padrão do resumo em JSON no modo vigia (--porta=N para trocar)
+    private static final int PORTA_VIGIA = 8765;
+
+    /**
+     * Modo vigia: gera os relatórios e fica esperando o CSV ou os totais oficiais mudarem
+     * para gerar de novo na mesma JVM, com iText, JFreeChart e o JIT já aquecidos. Só o
+     * que depende do arquivo alterado é refeito: totais oficiais novos não releem o CSV, e
+     * o PDF de uma variante cujos números não mudaram fica como está. O último resumo e as
+     * métricas da última geração ficam em http://127.0.0.1:porta/resumo e /execucao.
+     * Com --por-orgao, os PDFs por órgão são refeitos quando o CSV muda (não dependem dos
+     * totais oficiais). Uma falha numa geração é avisada e o vigia continua esperando.
+     *
+     * Uso: vigiar [geral|inativos|todos] [--porta=N] e as mesmas opções do modo normal.
+     */
+    private static void executarVigia(String[] args) throws Exception {
+        String modo = args.length > 1 && !args[1].startsWith("--") ? args[1].toLowerCase() : "todos";
+        Variante[] variantes = modo.equals("geral") ? new Variante[]{Variante.GERAL}
+                : modo.equals("inativos") ? new Variante[]{Variante.INATIVOS}
+                : new Variante[]{Variante.GERAL, Variante.INATIVOS};
+        int porta = PORTA_VIGIA;
+        List<Recorte> recortes;
+        try {
+            for (String arg : args) {
+                if (arg.startsWith("--porta=")) {
+                    porta = Integer.parseInt(arg.substring("--porta=".length()));
                 }
-                valorRetido[lote] += valor;
             }
+            recortes = lerRecortes(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println("ERRO: " + e.getMessage());
+            return;
         }
 
+        File csvFile = localizarCsv(args);
+        File diretorio = csvFile.getAbsoluteFile().getParentFile();
+        String nomeCsv = csvFile.getName().toLowerCase();
+        String nomeTotais = TotaisOficiais.NOME_ARQUIVO.toLowerCase();
         NumberFormat nf = NumberFormat.getInstance(new Locale("pt", "BR"));
         nf.setMaximumFractionDigits(2);
-        
-        // Formata data e hora
-        SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy HH:mm:ss");
-        String dataHora = sdf.format(new Date());
+
+        ServidorResumo servidor = ServidorResumo.iniciar(porta);
+        System.out.println("\n>>> MODO: VIGIA DE " + diretorio + " (" + modo.toUpperCase() + ") <<<");
+        System.out.println("    Resumo em http://127.0.0.1:" + servidor.getPorta() + "/resumo e métricas em /execucao");
+        System.out.println("    Ctrl+C para encerrar\n");
+
+        boolean porOrgao = Arrays.asList(args).contains("--por-orgao");
+        Map<Variante, Long> assinaturas = new java.util.EnumMap<>(Variante.class);
+        Leitura leitura = null;
+        TotaisOficiais totaisOficiais = null;
+        try (VigiaArquivos vigia = new VigiaArquivos(diretorio.toPath(), csvFile.getName(), TotaisOficiais.NOME_ARQUIVO)) {
+            java.util.Set<String> mudados = java.util.Collections.emptySet();
+            while (true) {
+                if (!csvFile.exists()) {
+                    System.out.println("Aguardando " + csvFile.getAbsolutePath());
+                } else {
+                    long inicio = System.nanoTime();
+                    MetricasExecucao metricas = new MetricasExecucao("vigiar");
+                    try {
+                        if (totaisOficiais == null || mudados.contains(nomeTotais)) {
+                            totaisOficiais = carregarTotais(csvFile);
+                        }
+                        boolean relida = leitura == null || mudados.contains(nomeCsv);
+                        if (relida) {
+                            leitura = null; // uma leitura que falhar não deixa o resultado antigo no lugar
+                            leitura = lerCsv(csvFile, variantes, recortes, args, true, porOrgao, metricas);
+                            imprimirDuplicados(leitura.duplicidade, nf);
+                            if (leitura.incremental != null) {
+                                imprimirDesdeUltimaExecucao(leitura.incremental);
+                            }
+                        }
+                        String dataHora = FORMATO_DATA_HORA.format(java.time.LocalDateTime.now());
+                        java.nio.file.Path csvAnexo = Arrays.asList(args).contains("--anexo") ? csvFile.toPath() : null;
+                        Map<Variante, ResumoLotes> resumos = new java.util.EnumMap<>(Variante.class);
+                        for (Variante v : variantes) {
+                            resumos.put(v, emitirRelatorio(v, totaisOficiais, leitura, recortes, csvAnexo, nf, dataHora,
+                                    metricas, assinaturas, false));
+                        }
+                        if (relida && leitura.orgaos != null) {
+                            MetricasExecucao.Fase fase = metricas.iniciar("orgaos", null);
+                            RelatoriosPorOrgao.gerar(leitura.orgaos, variantes, dataHora, Runtime.getRuntime().availableProcessors());
+                            fase.terminar();
+                        }
+                        String execucao = gravarMetricas(metricas, "relatorio_cearaprev_execucao.json");
+                        servidor.publicar(resumoJson(csvFile, dataHora, resumos, leitura.duplicidade), execucao);
+                        System.out.printf("Relatórios atualizados em %d ms%n", (System.nanoTime() - inicio) / 1000000);
+                    } catch (IOException | IllegalArgumentException e) {
+                        // CSV incompleto ou com outro formato: espera a próxima versão
+                        System.out.println("ERRO: " + e.getMessage());
+                        leitura = null;
+                        assinaturas.clear();
+                    } catch (RuntimeException e) {
+                        // Uma exportação que derruba a geração não derruba o vigia
+                        System.out.println("ERRO: falha inesperada ao gerar os relatórios: " + e);
+                        e.printStackTrace(System.out);
+                        leitura = null;
+                        assinaturas.clear();
+                    }
+                }
+                System.out.println("\nVigiando " + csvFile.getName() + " e " + TotaisOficiais.NOME_ARQUIVO + "...");
+                mudados = vigia.aguardarMudanca();
+                System.out.println("\nMudou: " + String.join(", ", mudados));
+            }
+        } finally {
+            servidor.parar();
+        }
+    }
+
+    /**
+     * Resumo por lote de cada variante, com as colunas do PDF, e a contagem dos CPFs
+     * repetidos (sem ela no modo incremental); valores em centavos.
+     */
+    private static String resumoJson(File csvFile, String dataHora, Map<Variante, ResumoLotes> resumos,
+                                     DuplicidadeCpf duplicidade) {
+        EscritorJson json = new EscritorJson().abrirObjeto(null)
+                .campo("dataHora", dataHora)
+                .campo("arquivo", csvFile.getAbsolutePath())
+                .abrirLista("variantes");
+        for (Map.Entry<Variante, ResumoLotes> e : resumos.entrySet()) {
+            ResumoLotes r = e.getValue();
+            json.abrirObjeto(null).campo("variante", e.getKey().name().toLowerCase()).abrirLista("lotes");
+            for (int i = 0; i < r.getLotes().length; i++) {
+                json.abrirObjeto(null).campo("lote", r.getLotes()[i]);
+                camposResumo(json, r.getTotais()[i], r.getDesbloqueados()[i], r.getValorBloqueados()[i]);
+                json.fecharObjeto();
+            }
+            json.fecharLista().abrirObjeto("total");
+            camposResumo(json, r.getTotalGeral(), r.getTotalDesbloq(), r.getTotalValorBloqueados());
+            json.fecharObjeto().fecharObjeto();
+        }
+        json.fecharLista();
+        if (duplicidade != null) {
+            json.abrirObjeto("duplicados")
+                    .campo("politica", duplicidade.getPolitica().getNome())
+                    .campo("cpfs", duplicidade.getCpfsRepetidos())
+                    .campo("linhasRepetidas", duplicidade.getLinhasRepetidas())
+                    .campo("linhasDescartadas", duplicidade.getLinhasDescartadas())
+                    .campo("valorDescartadoCentavos", duplicidade.getValorDescartadoCentavos())
+                    .fecharObjeto();
+        }
+        return json.fecharObjeto().toString();
+    }
+
+    // Como nas colunas do relatório: EXCLUSÃO é a contagem de desbloq, DESBLOQUEADOS o restante
+    private static void camposResumo(EscritorJson json, long total, long desbloq, long valorBloqueados) {
+        json.campo("total", total)
+                .campo("desbloqueados", total - desbloq)
+                .campo("exclusao", desbloq)
+                .campo("recursosRetidosCentavos", valorBloqueados);
+    }
+
+    /**
+     * Modo histórico: agrega todas as exportações datadas de um diretório (padrão: backup/)
+     * e gera, por variante, o PDF e o gráfico da evolução de cada lote ao longo das datas.
+     * Com somenteConsole, só imprime as tabelas.
+     */
+    private static void executarHistorico(String[] args, MetricasExecucao metricas, boolean somenteConsole) throws Exception {
+        File diretorio = args.length > 1 && !args[1].startsWith("--")
+                ? new File(args[1]) : new File(getDiretorioSaida(), "backup");
+        System.out.println("\n>>> MODO: HISTÓRICO DAS EXPORTAÇÕES EM " + diretorio.getAbsolutePath() + " <<<\n");
+
+        // Totais oficiais do próprio diretório, se houver; senão os da pasta do projeto
+        File totaisFile = new File(diretorio, TotaisOficiais.NOME_ARQUIVO);
+        if (!totaisFile.exists()) {
+            totaisFile = new File(getDiretorioSaida(), TotaisOficiais.NOME_ARQUIVO);
+        }
+        TotaisOficiais totaisOficiais = TotaisOficiais.carregar(totaisFile);
+
+        DuplicidadeCpf.Politica politica;
+        try {
+            politica = politicaDuplicados(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println("ERRO: " + e.getMessage());
+            return;
+        }
+
+        MetricasExecucao.Fase leitura = metricas.iniciar("leitura", null);
+        List<HistoricoExportacoes.Exportacao> exportacoes = HistoricoExportacoes.processar(diretorio,
+                Runtime.getRuntime().availableProcessors(), !Arrays.asList(args).contains("--sem-cache"), politica);
+        leitura.terminar();
+        ContagemLinhas contagem = new ContagemLinhas();
+        long bytes = 0;
+        for (HistoricoExportacoes.Exportacao e : exportacoes) {
+            contagem.somar(e.getContagem());
+            bytes += e.getArquivo().toFile().length();
+        }
+        metricas.registrarLeitura(diretorio.getAbsoluteFile().toPath().normalize().toString(), "historico", bytes, contagem);
+        if (exportacoes.isEmpty()) {
+            System.out.println("ERRO: nenhuma exportação (.csv, .csv.xls ou .xlsx) encontrada em " + diretorio.getAbsolutePath());
+            return;
+        }
+
+        NumberFormat nf = NumberFormat.getInstance(new Locale("pt", "BR"));
+        nf.setMaximumFractionDigits(2);
+        String dataHora = FORMATO_DATA_HORA.format(java.time.LocalDateTime.now());
+        DateTimeFormatter formatoData = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+        // Repetidos dentro de cada exportação; entre datas, o mesmo CPF é o esperado
+        for (HistoricoExportacoes.Exportacao e : exportacoes) {
+            DuplicidadeCpf d = e.getDuplicidade();
+            if (d.getCpfsRepetidos() > 0) {
+                System.out.println("AVISO: " + e.getArquivo().getFileName() + ": " + nf.format(d.getCpfsRepetidos())
+                        + " CPFs em mais de uma linha; política " + politica.getNome() + ", "
+                        + nf.format(d.getLinhasDescartadas()) + " linhas fora dos totais.");
+            }
+        }
+
+        for (Variante variante : Variante.values()) {
+            MetricasExecucao.Fase agregacao = metricas.iniciar("agregacao", variante);
+            ResumoLotes[] resumos = new ResumoLotes[exportacoes.size()];
+            System.out.println("\n       CEARAPREV  HISTÓRICO" + (variante.isApenasInativos() ? " - INATIVOS" : ""));
+            System.out.println("");
+            System.out.printf("%-12s %16s %16s %16s  %s%n", "DATA", "TOTAL DA REMESSA", "DESBLOQUEADOS", "EXCLUSÃO", "RECURSOS RETIDOS");
+            for (int i = 0; i < resumos.length; i++) {
+                HistoricoExportacoes.Exportacao e = exportacoes.get(i);
+                resumos[i] = ResumoLotes.calcular(variante, totaisOficiais, e.getAcumulador());
+                System.out.printf("%-12s %16s %16s %16s  R$ %18s   %s%n",
+                        e.getData().format(formatoData) + (e.isDataDoNome() ? "" : "*"),
+                        nf.format(resumos[i].getTotalGeral()),
+                        nf.format(resumos[i].getTotalGeral() - resumos[i].getTotalDesbloq()),
+                        nf.format(resumos[i].getTotalDesbloq()),
+                        Centavos.formatar(nf, resumos[i].getTotalValorBloqueados()),
+                        e.getArquivo().getFileName());
+            }
+            if (exportacoes.stream().anyMatch(e -> !e.isDataDoNome())) {
+                System.out.println("* data de modificação do arquivo (sem data no nome)");
+            }
+            agregacao.terminar();
+
+            if (!somenteConsole) {
+                RelatorioPdf.gerarHistorico(exportacoes, resumos, variante, nf, dataHora, metricas);
+            }
+        }
+
+        if (!somenteConsole) {
+            gravarMetricas(metricas, "relatorio_historico_execucao.json");
+        }
+    }
+
+    /** Grava o cache em colunas ao lado do CSV; uma falha aqui não impede o relatório. */
+    private static void gravarCache(ColunasLote colunas, ContagemLinhas contagem, File csvFile) {
+        try {
+            if (!colunas.gravarCache(csvFile.toPath(), contagem)) {
+                System.out.println("AVISO: lote acima de 255 no CSV; cache em colunas não gravado.");
+            }
+        } catch (IOException e) {
+            System.out.println("AVISO: não foi possível gravar o cache em colunas: " + e.getMessage());
+        }
+    }
+
+    // Quantos novos desbloqueados listar no console; o restante só entra na contagem
+    private static final int LIMITE_LISTA_CONSOLE = 50;
+
+    private static void imprimirDesdeUltimaExecucao(ProcessamentoIncremental.Resultado r) {
+        System.out.println("\n       DESDE A ÚLTIMA EXECUÇÃO");
+        if (r.isPrimeiraExecucao()) {
+            System.out.println("       Primeira execução incremental: estado criado em " + ProcessamentoIncremental.NOME_ARQUIVO);
+            return;
+        }
+        String anterior = FORMATO_DATA_HORA.format(java.time.LocalDateTime.ofInstant(
+                java.time.Instant.ofEpochMilli(r.getExecucaoAnterior()), java.time.ZoneId.systemDefault()));
+        if (r.isMesmaExportacao()) {
+            System.out.println("       Mesma exportação processada em " + anterior + " (" + r.getArquivoAnterior()
+                    + "): nada a reprocessar");
+            return;
+        }
+        System.out.println("       Anterior: " + r.getArquivoAnterior() + " em " + anterior);
+        System.out.println("       CPFs novos: " + r.getCpfsNovos() + "  removidos: " + r.getCpfsRemovidos()
+                + "  alterados: " + r.getCpfsAlterados() + "  (linhas reprocessadas: " + r.getLinhasReprocessadas() + ")");
+        System.out.println("       Novos desbloqueados: " + r.getNovosDesbloqueados());
+        int n = Math.min(r.getNovosDesbloqueados(), LIMITE_LISTA_CONSOLE);
+        for (int i = 0; i < n; i++) {
+            System.out.printf("         %-16s lote %-4s %s%n", LinhaLote.formatarCpf(r.getCpfDesbloqueado(i)),
+                    r.getLoteDesbloqueado(i) + "ª", r.isInativoDesbloqueado(i) ? "inativo" : "ativo");
+        }
+        if (r.getNovosDesbloqueados() > n) {
+            System.out.println("         ... e mais " + (r.getNovosDesbloqueados() - n));
+        }
+    }
+
+    /**
+     * Imprime o resumo no console e gera gráfico e PDF de uma variante,
+     * a partir dos acumuladores já preenchidos pela leitura do CSV.
+     * Os lotes são os que aparecem no CSV ou nos totais oficiais. Se csvAnexo não for
+     * null, o PDF ganha o anexo por beneficiário lido desse arquivo.
+     *
+     * No modo vigia, assinaturas guarda o hash dos números de cada PDF já gerado: se os
+     * números não mudaram e o PDF ainda existe, ele não é refeito. Fora dele é null.
+     * Com somenteConsole (--console) só o resumo é impresso.
+     */
+    private static ResumoLotes emitirRelatorio(Variante variante, TotaisOficiais totaisOficiais, Leitura leitura,
+                                               List<Recorte> recortes, java.nio.file.Path csvAnexo, NumberFormat nf,
+                                               String dataHora, MetricasExecucao metricas,
+                                               Map<Variante, Long> assinaturas, boolean somenteConsole) throws IOException {
+        boolean apenasInativos = variante.isApenasInativos();
+        ProcessamentoIncremental.Resultado incremental = leitura.incremental;
+        MetricasExecucao.Fase agregacao = metricas.iniciar("agregacao", variante);
+        ResumoLotes resumo = ResumoLotes.calcular(variante, totaisOficiais, leitura.acumulador);
+        List<Fatia> fatias = new ArrayList<>();
+        for (Recorte r : recortes) {
+            fatias.add(leitura.cubo.fatiar(r, variante));
+        }
+        agregacao.terminar();
+        int[] lotes = resumo.getLotes();
+        long[] totais = resumo.getTotais();
+        long[] desbloqueados = resumo.getDesbloqueados();
+        long[] valorBloqueados = resumo.getValorBloqueados();   // centavos
+        long totalGeralProcessado = resumo.getTotalGeral();
+        long totalDesbloq = resumo.getTotalDesbloq();
+        long totalValorBloqueados = resumo.getTotalValorBloqueados();
 
         System.out.println("\n");
         System.out.println("       CEARAPREV  RELATÓRIO FINAL" + (apenasInativos ? " - INATIVOS" : ""));
@@ -204,33 +697,13 @@ public class Main {
         System.out.printf("%-8s %-16s %-16s %-16s %s%n",
                 "REMESSA", "TOTAL DA REMESSA", "DESBLOQUEADOS", "EXCLUSÃO", "RECURSOS RETIDOS");
 
-        long totalDesbloq = 0;
-        double totalValor = 0;
-        double totalValorBloqueados = 0;
-        long totalGeralProcessado = 0;
-
-        for (int i = 1; i <= 4; i++) {
-            // Usa os totais oficiais de inativos quando no modo inativos
-            long totalUsado = apenasInativos ? totalOficialInativos[i] : totalOficial[i];
-            long bloqueado = totalUsado - desbloqueados[i];
-            
-            // Calcula valor médio por pessoa e multiplica pela quantidade de excluídos
-            // Para inativos, usa o total do CSV para calcular valor médio
-            long totalParaMedia = apenasInativos ? totalInativosPorLote[i] : totalUsado;
-            double valorMedio = totalParaMedia > 0 ? valorRetido[i] / totalParaMedia : 0;
-            valorBloqueados[i] = valorMedio * bloqueado;
-            
-            totalDesbloq += desbloqueados[i];
-            totalValor += valorRetido[i];
-            totalValorBloqueados += valorBloqueados[i];
-            totalGeralProcessado += totalUsado;
-
-            System.out.printf("%s      %16s %16s %16s  R$ %18s%n",
-                    i + "ª",
-                    nf.format(totalUsado),
-                    nf.format(bloqueado),
+        for (int i = 0; i < lotes.length; i++) {
+            System.out.printf("%-8s%16s %16s %16s  R$ %18s%n",
+                    lotes[i] + "ª",
+                    nf.format(totais[i]),
+                    nf.format(totais[i] - desbloqueados[i]),
                     nf.format(desbloqueados[i]),
-                    nf.format(valorBloqueados[i]));
+                    Centavos.formatar(nf, valorBloqueados[i]));
         }
 
         System.out.println("");
@@ -238,214 +711,131 @@ public class Main {
                 nf.format(totalGeralProcessado),
                 nf.format(totalGeralProcessado - totalDesbloq),
                 nf.format(totalDesbloq),
-                nf.format(totalValorBloqueados));
+                Centavos.formatar(nf, totalValorBloqueados));
         System.out.println("\n");
+        for (Fatia fatia : fatias) {
+            imprimirFatia(fatia, nf);
+        }
+        for (int lote : lotes) {
+            if (totaisOficiais.getLotes().length > 0 && !totaisOficiais.contem(lote)) {
+                System.out.println("AVISO: lote " + lote + " sem total oficial em " + TotaisOficiais.NOME_ARQUIVO
+                        + "; usado o total do CSV.");
+            }
+        }
+        if (somenteConsole) {
+            return resumo;
+        }
         
-        String sufixo = apenasInativos ? "_inativos" : "";
-        System.out.println("Gráfico salvo na pasta do projeto:");
-        System.out.println("   grafico_economia" + sufixo + ".png");
-
-        // Gera gráfico único de economia dos 4 lotes
-        gerarGraficoEconomia4Lotes(valorBloqueados, nf, apenasInativos);
+        if (assinaturas != null) {
+            long assinatura = assinaturaDoPdf(resumo, fatias, leitura.duplicidade, incremental, csvAnexo);
+            File pdf = new File(getDiretorioSaida(), "relatorio_cearaprev" + variante.getSufixo() + ".pdf");
+            Long anterior = assinaturas.put(variante, assinatura);
+            if (anterior != null && anterior == assinatura && pdf.exists()) {
+                System.out.println("Sem mudança nos números; mantido " + pdf);
+                return resumo;
+            }
+        }
 
-        // Gera relatório em PDF
-        gerarRelatorioPDF(apenasInativos ? totalOficialInativos : totalOficial, desbloqueados, valorRetido, valorBloqueados, 
-                         totalDesbloq, totalValor, totalValorBloqueados, totalGeralProcessado, nf, apenasInativos, dataHora);
+        // Gera gráfico e relatório em PDF
+        RelatorioPdf.gerar(resumo, nf, variante, incremental, fatias, leitura.duplicidade, csvAnexo, dataHora, metricas);
+        return resumo;
     }
 
-    private static String getDiretorioSaida() {
-        String dirAtual = System.getProperty("user.dir");
-        File dir = new File(dirAtual);
-        // Se estiver em src/main/java, subir para raiz do projeto
-        if (dirAtual.endsWith("src\\main\\java") || dirAtual.endsWith("src/main/java")) {
-            dir = dir.getParentFile().getParentFile().getParentFile();
+    /**
+     * Hash de tudo o que o PDF de uma variante mostra, menos a data/hora. Com anexo entra
+     * também o tamanho e a data do CSV (o anexo lista linhas, não totais); com o modo
+     * incremental, o que a seção de novidades mostra: a execução anterior, as contagens e
+     * os novos desbloqueados.
+     */
+    private static long assinaturaDoPdf(ResumoLotes resumo, List<Fatia> fatias, DuplicidadeCpf duplicidade,
+                                        ProcessamentoIncremental.Resultado incremental,
+                                        java.nio.file.Path csvAnexo) throws IOException {
+        CacheGraficos.Hash h = new CacheGraficos.Hash()
+                .mais(resumo.getLotes()).mais(resumo.getTotais()).mais(resumo.getDesbloqueados())
+                .mais(resumo.getValorRetido()).mais(resumo.getValorBloqueados()).mais(resumo.getTotalValor());
+        for (Fatia f : fatias) {
+            h.mais(f.getRecorte().getDescricao());
+            for (int i = 0; i < f.size(); i++) {
+                h.mais(f.getRotulo(i)).mais(f.getLinhas(i)).mais(f.getDesbloqueados(i)).mais(f.getValorCentavos(i));
+            }
         }
-        return dir.getAbsolutePath();
+        if (duplicidade != null) {
+            h.mais(duplicidade.getPolitica().ordinal());
+            h.mais(duplicidade.getCpfsRepetidos()).mais(duplicidade.getLinhasRepetidas())
+                    .mais(duplicidade.getLinhasDescartadas()).mais(duplicidade.getValorDescartadoCentavos());
+            for (int k = 0; k < duplicidade.getGrupos(); k++) {
+                h.mais(duplicidade.getCpf(k)).mais(duplicidade.getLinhas(k)).mais(duplicidade.getLoteContado(k));
+                for (int lote : duplicidade.getLotes(k)) {
+                    h.mais(lote);
+                }
+            }
+        }
+        if (csvAnexo != null) {
+            h.mais(java.nio.file.Files.size(csvAnexo)).mais(java.nio.file.Files.getLastModifiedTime(csvAnexo).toMillis());
+        }
+        if (incremental != null) {
+            h.mais(incremental.isPrimeiraExecucao() ? 1 : 0).mais(incremental.isMesmaExportacao() ? 1 : 0)
+                    .mais(String.valueOf(incremental.getArquivoAnterior()))
+                    .mais(incremental.getExecucaoAnterior()).mais(incremental.getCpfsNovos())
+                    .mais(incremental.getCpfsRemovidos()).mais(incremental.getCpfsAlterados());
+            for (int i = 0; i < incremental.getNovosDesbloqueados(); i++) {
+                h.mais(incremental.getCpfDesbloqueado(i)).mais(incremental.getLoteDesbloqueado(i))
+                        .mais(incremental.isInativoDesbloqueado(i) ? 1 : 0);
+            }
+        }
+        return h.valor();
     }
 
-    private static void gerarGraficoEconomia4Lotes(double[] valorBloqueados, NumberFormat nf, boolean apenasInativos) throws IOException {
-        DefaultPieDataset data = new DefaultPieDataset();
-        data.setValue("Lote 1ª: R$ " + nf.format(valorBloqueados[1]), valorBloqueados[1]);
-        data.setValue("Lote 2ª: R$ " + nf.format(valorBloqueados[2]), valorBloqueados[2]);
-        data.setValue("Lote 3ª: R$ " + nf.format(valorBloqueados[3]), valorBloqueados[3]);
-        data.setValue("Lote 4ª: R$ " + nf.format(valorBloqueados[4]), valorBloqueados[4]);
-
-        String titulo = apenasInativos ? "ECONOMIA DO ESTADO POR LOTE - INATIVOS" : "ECONOMIA DO ESTADO POR LOTE - EXCLUSÃO";
-        JFreeChart chart = ChartFactory.createRingChart(
-                titulo,
-                data, false, true, false); // Criar SEM legenda
-
-        // Aumentar fonte do título para 18
-        chart.getTitle().setFont(new java.awt.Font("SansSerif", java.awt.Font.BOLD, 18));
-
-        // Definir cores personalizadas RGB mais vibrantes: Verde, Laranja/Amarelo, Azul, Vermelho
-        org.jfree.chart.plot.RingPlot plot = (org.jfree.chart.plot.RingPlot) chart.getPlot();
-        java.awt.Color corVerde = new java.awt.Color(102, 255, 102);
-        java.awt.Color corLaranja = new java.awt.Color(255, 187, 51);
-        java.awt.Color corAzul = new java.awt.Color(77, 171, 247);
-        java.awt.Color corVermelha = new java.awt.Color(255, 102, 102);
-        plot.setSectionPaint("Lote 1ª: R$ " + nf.format(valorBloqueados[1]), corVerde); // Verde vibrante
-        plot.setSectionPaint("Lote 2ª: R$ " + nf.format(valorBloqueados[2]), corLaranja); // Laranja/Amarelo vibrante
-        plot.setSectionPaint("Lote 3ª: R$ " + nf.format(valorBloqueados[3]), corAzul); // Azul vibrante
-        plot.setSectionPaint("Lote 4ª: R$ " + nf.format(valorBloqueados[4]), corVermelha); // Vermelho vibrante
-        
-        // Criar legenda customizada usando PaintList para símbolos coloridos
-        org.jfree.chart.title.LegendTitle legenda = new org.jfree.chart.title.LegendTitle(plot);
-        legenda.setItemFont(new java.awt.Font("SansSerif", java.awt.Font.PLAIN, 18));
-        legenda.setPosition(org.jfree.chart.ui.RectangleEdge.BOTTOM);
-        
-        // Configurar arranjo em 2 linhas x 2 colunas
-        org.jfree.chart.block.BlockContainer wrapper = legenda.getItemContainer();
-        wrapper.setArrangement(new org.jfree.chart.block.GridArrangement(2, 2));
-        
-        chart.addSubtitle(legenda);
-        
-        // Centro maior para rosca mais grossa - 0.10 * 6 = 0.60
-        plot.setSectionDepth(0.60);
-        
-        // Visual mais limpo - sem separadores
-        plot.setSeparatorsVisible(false);
-        
-        // Sem borda externa para visual mais limpo
-        plot.setOutlineVisible(false);
-        
-        // Labels mais limpos
-        plot.setLabelGenerator(null); // Remove labels nas fatias
-        plot.setSimpleLabels(true);
-        
-        // Fundo branco limpo
-        chart.setBackgroundPaint(java.awt.Color.WHITE);
-        plot.setBackgroundPaint(java.awt.Color.WHITE);
-        
-        // Remover sombras para visual mais limpo
-        plot.setShadowPaint(null);
+    // Quantos CPFs repetidos listar no console; a lista completa (até o limite) vai no PDF
+    private static final int LIMITE_DUPLICADOS_CONSOLE = 10;
 
-        String dirSaida = getDiretorioSaida();
-        String sufixo = apenasInativos ? "_inativos" : "";
-        File out = new File(dirSaida + File.separator + "grafico_economia" + sufixo + ".png");
-        ChartUtils.saveChartAsPNG(out, chart, 800, 600);
+    /** Quantos CPFs aparecem em mais de uma linha, o que a política fez e os primeiros deles. */
+    private static void imprimirDuplicados(DuplicidadeCpf d, NumberFormat nf) {
+        if (d == null || d.getCpfsRepetidos() == 0) {
+            return;
+        }
+        DuplicidadeCpf.Politica politica = d.getPolitica();
+        System.out.println("\nCPFS EM MAIS DE UMA LINHA: " + nf.format(d.getCpfsRepetidos()) + " CPFs, "
+                + nf.format(d.getLinhasRepetidas()) + " linhas a mais");
+        System.out.println("Política " + politica.getNome() + ": " + politica.getDescricao()
+                + (politica == DuplicidadeCpf.Politica.MARCAR ? "" : " (" + nf.format(d.getLinhasDescartadas())
+                + " linhas e R$ " + Centavos.formatar(nf, d.getValorDescartadoCentavos()) + " fora dos totais)"));
+        int cpfs = Math.min(d.getGrupos(), LIMITE_DUPLICADOS_CONSOLE);
+        for (int k = 0; k < cpfs; k++) {
+            System.out.printf("  %-16s %d linhas, lotes %s%s%n", LinhaLote.formatarCpf(d.getCpf(k)), d.getLinhas(k),
+                    d.getDescricaoLotes(k), d.getLoteContado(k) < 0 ? "" : "; conta a do lote " + d.getLoteContado(k) + "ª");
+        }
+        if (cpfs < d.getCpfsRepetidos()) {
+            System.out.println("  ... e mais " + nf.format(d.getCpfsRepetidos() - cpfs));
+        }
     }
 
-    private static void gerarRelatorioPDF(long[] totalOficial, long[] desbloqueados, double[] valorRetido, double[] valorBloqueados,
-                                         long totalDesbloq, double totalValor, double totalValorBloqueados, long totalGeral, 
-                                         NumberFormat nf, boolean apenasInativos, String dataHora) throws IOException {
-        String dirSaida = getDiretorioSaida();
-        String sufixo = apenasInativos ? "_inativos" : "";
-        String filename = dirSaida + File.separator + "relatorio_cearaprev" + sufixo + ".pdf";
-        new File(filename).delete(); // Remove arquivo antigo
-        
-        PdfWriter writer = new PdfWriter(filename);
-        PdfDocument pdfDoc = new PdfDocument(writer);
-        Document doc = new Document(pdfDoc);
-        doc.setMargins(20, 20, 20, 20);
-
-        // CABEÇALHO PROFISSIONAL
-        Table headerTable = new Table(1);
-        headerTable.setWidth(UnitValue.createPercentValue(100));
-        String tituloRelatorio = apenasInativos ? "RELATÓRIO DE DESBLOQUEIOS - INATIVOS" : "RELATÓRIO DE DESBLOQUEIOS";
-        Cell headerMainCell = new Cell()
-                .add(new Paragraph("CEARAPREV")
-                        .setFontSize(20)
-                        .setBold()
-                        .setFontColor(ColorConstants.WHITE))
-                .add(new Paragraph(tituloRelatorio)
-                        .setFontSize(11)
-                        .setFontColor(ColorConstants.WHITE))
-                .setBackgroundColor(new DeviceRgb(0, 102, 204))
-                .setPadding(15)
-                .setBorder(null);
-        headerTable.addCell(headerMainCell);
-        doc.add(headerTable);
-        
-        // Data e hora do relatório
-        doc.add(new Paragraph("Data/Hora: " + dataHora)
-                .setFontSize(9)
-                .setTextAlignment(com.itextpdf.layout.properties.TextAlignment.RIGHT)
-                .setMarginTop(5)
-                .setMarginBottom(5));
-        
-        doc.add(new Paragraph("\n").setFontSize(6));
-
-        // TABELA PRINCIPAL
-        Table table = new Table(new float[]{1, 2.5f, 2, 2, 3});
-        table.setWidth(UnitValue.createPercentValue(100));
-        
-        // Cabeçalho (azul escuro)
-        String[] headers = {"LOTE", "TOTAL", "DESBLOQUEADOS", "EXCLUSÃO", "VALOR RETIDO"};
-        for (String header : headers) {
-            Cell headerCell = new Cell()
-                    .add(new Paragraph(header)
-                            .setBold()
-                            .setFontSize(9)
-                            .setFontColor(ColorConstants.WHITE))
-                    .setBackgroundColor(new DeviceRgb(0, 71, 171))
-                    .setPadding(8)
-                    .setTextAlignment(com.itextpdf.layout.properties.TextAlignment.CENTER);
-            table.addCell(headerCell);
-        }
-
-        // Dados dos lotes com cores alternadas
-        for (int i = 1; i <= 4; i++) {
-            long bloqueado = totalOficial[i] - desbloqueados[i];
-            DeviceRgb bgColor = (i % 2 == 0) ? new DeviceRgb(240, 248, 255) : new DeviceRgb(255, 255, 255);
-            
-            Cell cell1 = new Cell().add(new Paragraph(i + "ª").setFontSize(9).setBold()).setPadding(6).setBackgroundColor(bgColor);
-            Cell cell2 = new Cell().add(new Paragraph(nf.format(totalOficial[i])).setFontSize(8)).setPadding(6).setBackgroundColor(bgColor);
-            Cell cell3 = new Cell().add(new Paragraph(nf.format(bloqueado)).setFontSize(8)).setPadding(6).setBackgroundColor(bgColor);
-            Cell cell4 = new Cell().add(new Paragraph(nf.format(desbloqueados[i]) + " (" + String.format("%.1f%%", (desbloqueados[i]*100.0/totalOficial[i])).replace('.',',') + ")").setFontSize(8)).setPadding(6).setBackgroundColor(bgColor);
-            Cell cell5 = new Cell().add(new Paragraph("R$ " + nf.format(valorBloqueados[i])).setFontSize(8)).setPadding(6).setBackgroundColor(bgColor);
-            
-            table.addCell(cell1);
-            table.addCell(cell2);
-            table.addCell(cell3);
-            table.addCell(cell4);
-            table.addCell(cell5);
+    private static void imprimirFatia(Fatia fatia, NumberFormat nf) {
+        System.out.println("RECORTE: " + fatia.getRecorte().getDescricao());
+        System.out.printf("%-40s %12s %12s %12s  %s%n", fatia.getRecorte().getAgrupamento().getTitulo().toUpperCase(),
+                "TOTAL", "DESBLOQUEADOS", "EXCLUSÃO", "VALOR NO CSV");
+        for (int i = 0; i < fatia.size(); i++) {
+            String rotulo = fatia.getRotulo(i);
+            System.out.printf("%-40s %12s %12s %12s  R$ %18s%n",
+                    rotulo.length() > 40 ? rotulo.substring(0, 40) : rotulo,
+                    nf.format(fatia.getLinhas(i)),
+                    nf.format(fatia.getLinhas(i) - fatia.getDesbloqueados(i)),
+                    nf.format(fatia.getDesbloqueados(i)),
+                    Centavos.formatar(nf, fatia.getValorCentavos(i)));
         }
-
-        // Linha de TOTAL (verde)
-        long totalBloqueado = totalGeral - totalDesbloq;
-        DeviceRgb totalBgColor = new DeviceRgb(0, 150, 88);
-        
-        Cell totalCell1 = new Cell().add(new Paragraph("TOTAL").setBold().setFontSize(9).setFontColor(ColorConstants.WHITE)).setPadding(8).setBackgroundColor(totalBgColor);
-        Cell totalCell2 = new Cell().add(new Paragraph(nf.format(totalGeral)).setBold().setFontSize(9).setFontColor(ColorConstants.WHITE)).setPadding(8).setBackgroundColor(totalBgColor);
-        Cell totalCell3 = new Cell().add(new Paragraph(nf.format(totalBloqueado)).setBold().setFontSize(9).setFontColor(ColorConstants.WHITE)).setPadding(8).setBackgroundColor(totalBgColor);
-        Cell totalCell4 = new Cell().add(new Paragraph(nf.format(totalDesbloq) + " (" + String.format("%.1f%%", (totalDesbloq*100.0/totalGeral)).replace('.',',') + ")").setBold().setFontSize(9).setFontColor(ColorConstants.WHITE)).setPadding(8).setBackgroundColor(totalBgColor);
-        Cell totalCell5 = new Cell().add(new Paragraph("R$ " + nf.format(totalValorBloqueados)).setBold().setFontSize(9).setFontColor(ColorConstants.WHITE)).setPadding(8).setBackgroundColor(totalBgColor);
-        
-        table.addCell(totalCell1);
-        table.addCell(totalCell2);
-        table.addCell(totalCell3);
-        table.addCell(totalCell4);
-        table.addCell(totalCell5);
-
-        doc.add(table);
-        doc.add(new Paragraph("\n\n").setFontSize(8));
-
-        // Seção de gráfico único - ECONOMIA DO ESTADO
-        Paragraph graficosTitle = new Paragraph("ANÁLISE VISUAL - ECONOMIA DO ESTADO POR LOTE")
-                .setFontSize(13)
-                .setBold()
-                .setMarginTop(10)
-                .setMarginBottom(10)
-                .setFontColor(new DeviceRgb(0, 102, 204))
-                .setTextAlignment(com.itextpdf.layout.properties.TextAlignment.CENTER);
-        doc.add(graficosTitle);
-
-        String nomeGrafico = dirSaida + File.separator + "grafico_economia" + sufixo + ".png";
-        File imgFile = new File(nomeGrafico);
-        if (imgFile.exists()) {
-            try {
-                Image img = new Image(ImageDataFactory.create(nomeGrafico));
-                img.scaleToFit(450, 320);
-                img.setHorizontalAlignment(com.itextpdf.layout.properties.HorizontalAlignment.CENTER);
-                doc.add(img);
-            } catch (Exception e) {
-                doc.add(new Paragraph("Erro ao carregar gráfico de economia."));
-            }
+        if (fatia.size() == 0) {
+            System.out.println("(nenhuma linha no recorte)");
         }
+        System.out.println("");
+    }
 
-        doc.close();
-        
-        System.out.println("Relatório PDF gerado: " + filename);
+    static String getDiretorioSaida() {
+        String dirAtual = System.getProperty("user.dir");
+        File dir = new File(dirAtual);
+        // Se estiver em src/main/java, subir para raiz do projeto
+        if (dirAtual.endsWith("src\\main\\java") || dirAtual.endsWith("src/main/java")) {
+            dir = dir.getParentFile().getParentFile().getParentFile();
+        }
+        return dir.getAbsolutePath();
     }
 }
@@ -0,0 +1,100 @@
+import java.util.Arrays;
+
+/**
+ * Mapa de int para int com endereçamento aberto, sem objetos por entrada.
+ * Usado nos caminhos quentes da agregação, onde um HashMap&lt;Integer, ...&gt; criaria
+ * um Integer a cada consulta.
+ */
+public final class MapaInt {
+    private static final int VAZIO = Integer.MIN_VALUE;
+
+    private int[] chaves;
+    private int[] valores;
+    private int tamanho;
+
+    public MapaInt() {
+        this(16);
+    }
+
+    public MapaInt(int capacidadeInicial) {
+        int capacidade = Integer.highestOneBit(Math.max(4, capacidadeInicial) * 2 - 1);
+        chaves = new int[capacidade];
+        valores = new int[capacidade];
+        Arrays.fill(chaves, VAZIO);
+    }
+
+    /** Valor associado à chave, ou padrao se ela não estiver no mapa. */
+    public int get(int chave, int padrao) {
+        checar(chave);
+        int mascara = chaves.length - 1;
+        for (int i = espalhar(chave) & mascara; ; i = (i + 1) & mascara) {
+            int k = chaves[i];
+            if (k == chave) {
+                return valores[i];
+            }
+            if (k == VAZIO) {
+                return padrao;
+            }
+        }
+    }
+
+    public void put(int chave, int valor) {
+        checar(chave);
+        int mascara = chaves.length - 1;
+        int i = espalhar(chave) & mascara;
+        while (chaves[i] != VAZIO && chaves[i] != chave) {
+            i = (i + 1) & mascara;
+        }
+        if (chaves[i] == VAZIO) {
+            chaves[i] = chave;
+            if (++tamanho * 2 > chaves.length) {
+                valores[i] = valor;
+                crescer();
+                return;
+            }
+        }
+        valores[i] = valor;
+    }
+
+    public int size() {
+        return tamanho;
+    }
+
+    /** Chaves do mapa em ordem crescente. */
+    public int[] chavesOrdenadas() {
+        int[] resultado = new int[tamanho];
+        int n = 0;
+        for (int k : chaves) {
+            if (k != VAZIO) {
+                resultado[n++] = k;
+            }
+        }
+        Arrays.sort(resultado);
+        return resultado;
+    }
+
+    private void crescer() {
+        int[] chavesAntigas = chaves;
+        int[] valoresAntigos = valores;
+        chaves = new int[chavesAntigas.length * 2];
+        valores = new int[chavesAntigas.length * 2];
+        Arrays.fill(chaves, VAZIO);
+        tamanho = 0;
+        for (int i = 0; i < chavesAntigas.length; i++) {
+            if (chavesAntigas[i] != VAZIO) {
+                put(chavesAntigas[i], valoresAntigos[i]);
+            }
+        }
+    }
+
+    private static int espalhar(int chave) {
+        int h = chave * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static void checar(int chave) {
+        if (chave == VAZIO) {
+            throw new IllegalArgumentException("Chave reservada: " + chave);
+        }
+    }
+}
@@ -0,0 +1,361 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tempos e contadores de uma execução, gravados num relatório JSON ao lado dos PDFs.
+ *
+ * Cada fase registra o tempo de parede, o tempo de CPU do processo (todas as threads,
+ * o que conta a leitura paralela inteira), os bytes alocados e as coletas de lixo
+ * durante ela. A leitura e a agregação por lote acontecem na mesma passada pelo CSV,
+ * então "leitura" já inclui os acumuladores; "agregacao" é o resumo por lote e os
+ * recortes tirados deles. "orgaos" são todos os PDFs por órgão (--por-orgao), gerados em
+ * paralelo. A alocação soma as threads vivas no começo e no fim da fase:
+ * o que uma thread que terminou no meio dela alocou não entra.
+ *
+ * CPU e alocação vêm das extensões com.sun.management; sem elas os campos saem como -1.
+ * Quando a JVM tem o jdk.jfr (Java 11, ou Java 8 a partir do 8u262), cada fase também
+ * vira um evento cearaprev.Fase, visível numa gravação feita com -XX:StartFlightRecording.
+ * O JFR é acessado por reflexão para o programa continuar compilando e rodando sem ele.
+ */
+public final class MetricasExecucao {
+    private final String modo;
+    // Desligada: iniciar() devolve uma fase que não mede nada
+    private final boolean ligada;
+    private final long inicioEpoca = System.currentTimeMillis();
+    private final Amostra inicio;
+    // Tempo que a JVM levou até a execução começar (carga de classes, JIT inicial)
+    private final long inicializacaoMs;
+    private final Map<String, long[]> coletoresNoInicio;
+    private final List<Fase> fases = new ArrayList<>();
+    private String arquivo;
+    private String origem;
+    private long bytes = -1;
+    private ContagemLinhas contagem;
+    private Fase leitura;
+
+    public MetricasExecucao(String modo) {
+        this(modo, true);
+    }
+
+    private MetricasExecucao(String modo, boolean ligada) {
+        this.modo = modo;
+        this.ligada = ligada;
+        this.inicio = ligada ? Amostra.agora() : null;
+        this.inicializacaoMs = ligada ? ManagementFactory.getRuntimeMXBean().getUptime() : -1;
+        this.coletoresNoInicio = ligada ? coletores() : Collections.<String, long[]>emptyMap();
+    }
+
+    /**
+     * Métricas que não medem nada, para os modos --console e --json: sem relatório de
+     * execução, não vale carregar o java.management nem o JFR só para a partida.
+     */
+    public static MetricasExecucao desligada() {
+        return new MetricasExecucao("", false);
+    }
+
+    /** Começa uma fase; variante pode ser null nas fases comuns a todas as variantes. */
+    public Fase iniciar(String nome, Variante variante) {
+        if (!ligada) {
+            return Fase.NENHUMA;
+        }
+        Fase fase = new Fase(nome, variante == null ? null : variante.name().toLowerCase());
+        fases.add(fase);
+        if (nome.equals("leitura") && leitura == null) {
+            leitura = fase;
+        }
+        return fase;
+    }
+
+    /**
+     * De onde vieram as linhas (sequencial, paralela, planilha, cache, incremental,
+     * historico), o tamanho lido e a contagem de linhas; a vazão é calculada sobre a fase
+     * "leitura".
+     */
+    public void registrarLeitura(String arquivo, String origem, long bytes, ContagemLinhas contagem) {
+        this.arquivo = arquivo;
+        this.origem = origem;
+        this.bytes = bytes;
+        this.contagem = contagem;
+    }
+
+    /** Uma fase da execução, medida entre iniciar() e terminar(). */
+    public static final class Fase {
+        private static final Fase NENHUMA = new Fase();
+
+        private final String nome;
+        private final String variante;
+        private final Amostra inicio;
+        private final Object evento;
+        private Amostra fim;
+
+        private Fase(String nome, String variante) {
+            this.nome = nome;
+            this.variante = variante;
+            this.evento = EventoJfr.iniciar(nome, variante);
+            this.inicio = Amostra.agora();
+        }
+
+        private Fase() {
+            this.nome = null;
+            this.variante = null;
+            this.evento = null;
+            this.inicio = null;
+        }
+
+        public void terminar() {
+            if (inicio == null) {
+                return;
+            }
+            fim = Amostra.agora();
+            EventoJfr.terminar(evento);
+        }
+
+        private long paredeNs() {
+            return fim == null ? 0 : fim.nanos - inicio.nanos;
+        }
+    }
+
+    /** Grava o relatório em arquivo (substituindo o anterior) e devolve o JSON gravado. */
+    public String gravar(File destino) throws IOException {
+        String json = json();
+        Path alvo = destino.toPath();
+        Path temporario = alvo.resolveSibling(alvo.getFileName() + ".tmp");
+        Files.write(temporario, json.getBytes(StandardCharsets.UTF_8));
+        try {
+            Files.move(temporario, alvo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporario, alvo, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return json;
+    }
+
+    /** O relatório da execução até agora, em JSON; o total vai até este instante. */
+    public String json() {
+        Amostra agora = Amostra.agora();
+        EscritorJson json = new EscritorJson().abrirObjeto(null)
+                .campo("inicio", new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX").format(new Date(inicioEpoca)))
+                .campo("modo", modo);
+
+        json.abrirObjeto("leitura")
+                .campo("arquivo", arquivo)
+                .campo("origem", origem)
+                .campo("bytes", bytes);
+        if (contagem != null) {
+            json.campo("linhas", contagem.getLinhas())
+                    .campo("aceitas", contagem.getAceitas())
+                    .abrirObjeto("descartadas")
+                    .campo("total", contagem.getDescartadas())
+                    .campo("loteVazio", contagem.getLoteVazio())
+                    .campo("loteInvalido", contagem.getLoteInvalido())
+                    .campo("loteMenorQueUm", contagem.getLoteMenorQueUm())
+                    .fecharObjeto()
+                    .campo("valorInvalido", contagem.getValorInvalido());
+        }
+        if (leitura != null && leitura.fim != null) {
+            double segundos = leitura.paredeNs() / 1e9;
+            json.campo("linhasPorSegundo", contagem == null ? Double.NaN : contagem.getLinhas() / segundos)
+                    .campo("bytesPorSegundo", bytes < 0 ? Double.NaN : bytes / segundos);
+        }
+        json.fecharObjeto();
+
+        json.abrirLista("fases");
+        for (Fase f : fases) {
+            if (f.fim != null) {
+                json.abrirObjeto(null).campo("fase", f.nome).campo("variante", f.variante);
+                escreverIntervalo(json, f.inicio, f.fim);
+                json.fecharObjeto();
+            }
+        }
+        json.fecharLista();
+
+        json.abrirObjeto("total");
+        escreverIntervalo(json, inicio, agora);
+        json.fecharObjeto();
+
+        json.abrirLista("coletores");
+        for (Map.Entry<String, long[]> c : coletores().entrySet()) {
+            long[] antes = coletoresNoInicio.getOrDefault(c.getKey(), new long[2]);
+            json.abrirObjeto(null)
+                    .campo("nome", c.getKey())
+                    .campo("coletas", c.getValue()[0] - antes[0])
+                    .campo("tempoMs", c.getValue()[1] - antes[1])
+                    .fecharObjeto();
+        }
+        json.fecharLista();
+
+        Runtime rt = Runtime.getRuntime();
+        json.abrirObjeto("jvm")
+                .campo("versao", System.getProperty("java.version"))
+                .campo("processadores", rt.availableProcessors())
+                .campo("heapMaximoBytes", rt.maxMemory())
+                .campo("inicializacaoMs", inicializacaoMs)
+                .campo("jfr", EventoJfr.FABRICA != null)
+                .fecharObjeto();
+        json.fecharObjeto();
+        return json.toString();
+    }
+
+    private static void escreverIntervalo(EscritorJson json, Amostra a, Amostra b) {
+        json.campo("paredeMs", (b.nanos - a.nanos) / 1e6)
+                .campo("cpuMs", a.cpuNanos < 0 || b.cpuNanos < 0 ? -1 : (b.cpuNanos - a.cpuNanos) / 1e6)
+                .campo("alocadoBytes", a.alocado < 0 || b.alocado < 0 ? -1 : Math.max(0, b.alocado - a.alocado))
+                .campo("coletasGc", b.coletas - a.coletas)
+                .campo("tempoGcMs", b.tempoGcMs - a.tempoGcMs);
+    }
+
+    /** Coletas e tempo acumulado de cada coletor da JVM, pelo nome. */
+    private static Map<String, long[]> coletores() {
+        Map<String, long[]> m = new LinkedHashMap<>();
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            m.put(gc.getName(), new long[]{Math.max(0, gc.getCollectionCount()), Math.max(0, gc.getCollectionTime())});
+        }
+        return m;
+    }
+
+    /** Contadores da JVM num instante. */
+    private static final class Amostra {
+        final long nanos;
+        final long cpuNanos;
+        final long alocado;
+        final long coletas;
+        final long tempoGcMs;
+
+        private Amostra(long nanos, long cpuNanos, long alocado, long coletas, long tempoGcMs) {
+            this.nanos = nanos;
+            this.cpuNanos = cpuNanos;
+            this.alocado = alocado;
+            this.coletas = coletas;
+            this.tempoGcMs = tempoGcMs;
+        }
+
+        static Amostra agora() {
+            long coletas = 0;
+            long tempoGc = 0;
+            for (long[] c : coletores().values()) {
+                coletas += c[0];
+                tempoGc += c[1];
+            }
+            return new Amostra(System.nanoTime(), cpuDoProcesso(), alocadoPelasThreads(), coletas, tempoGc);
+        }
+
+        private static long cpuDoProcesso() {
+            java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+            if (os instanceof com.sun.management.OperatingSystemMXBean) {
+                return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+            }
+            return -1;
+        }
+
+        private static long alocadoPelasThreads() {
+            java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+                return -1;
+            }
+            com.sun.management.ThreadMXBean t = (com.sun.management.ThreadMXBean) threads;
+            if (!t.isThreadAllocatedMemorySupported() || !t.isThreadAllocatedMemoryEnabled()) {
+                return -1;
+            }
+            long soma = 0;
+            for (long bytes : t.getThreadAllocatedBytes(t.getAllThreadIds())) {
+                if (bytes > 0) {
+                    soma += bytes;
+                }
+            }
+            return soma;
+        }
+    }
+
+    /**
+     * Evento cearaprev.Fase do JFR, criado em tempo de execução com jdk.jfr.EventFactory.
+     * Sem JFR na JVM a fábrica é null e iniciar() devolve null.
+     */
+    private static final class EventoJfr {
+        static final Object FABRICA;
+        private static final Method NOVO_EVENTO;
+        private static final Method BEGIN;
+        private static final Method END;
+        private static final Method COMMIT;
+        private static final Method SET;
+
+        static {
+            Object fabrica = null;
+            Method[] metodos = new Method[5];
+            try {
+                Class<?> elemento = Class.forName("jdk.jfr.AnnotationElement");
+                Class<?> descritor = Class.forName("jdk.jfr.ValueDescriptor");
+                Class<?> evento = Class.forName("jdk.jfr.Event");
+                Class<?> tipoFabrica = Class.forName("jdk.jfr.EventFactory");
+                Constructor<?> anotacao = elemento.getConstructor(Class.class, Object.class);
+                Constructor<?> campo = descritor.getConstructor(Class.class, String.class, List.class);
+                Class<?> label = Class.forName("jdk.jfr.Label");
+                List<Object> anotacoes = Arrays.asList(
+                        anotacao.newInstance(Class.forName("jdk.jfr.Name"), "cearaprev.Fase"),
+                        anotacao.newInstance(label, "Fase do relatório"),
+                        anotacao.newInstance(Class.forName("jdk.jfr.Category"), new String[]{"CearaPrev"}),
+                        // A pilha seria a da reflexão que fecha o evento, não a da fase
+                        anotacao.newInstance(Class.forName("jdk.jfr.StackTrace"), false));
+                List<Object> campos = Arrays.asList(
+                        campo.newInstance(String.class, "fase", Collections.singletonList(anotacao.newInstance(label, "Fase"))),
+                        campo.newInstance(String.class, "variante", Collections.singletonList(anotacao.newInstance(label, "Variante"))));
+                fabrica = tipoFabrica.getMethod("create", List.class, List.class).invoke(null, anotacoes, campos);
+                metodos[0] = tipoFabrica.getMethod("newEvent");
+                metodos[1] = evento.getMethod("begin");
+                metodos[2] = evento.getMethod("end");
+                metodos[3] = evento.getMethod("commit");
+                metodos[4] = evento.getMethod("set", int.class, Object.class);
+            } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+                fabrica = null;
+            }
+            FABRICA = fabrica;
+            NOVO_EVENTO = metodos[0];
+            BEGIN = metodos[1];
+            END = metodos[2];
+            COMMIT = metodos[3];
+            SET = metodos[4];
+        }
+
+        static Object iniciar(String fase, String variante) {
+            if (FABRICA == null) {
+                return null;
+            }
+            try {
+                Object e = NOVO_EVENTO.invoke(FABRICA);
+                SET.invoke(e, 0, fase);
+                SET.invoke(e, 1, variante);
+                BEGIN.invoke(e);
+                return e;
+            } catch (ReflectiveOperationException | RuntimeException ex) {
+                return null;
+            }
+        }
+
+        static void terminar(Object evento) {
+            if (evento == null) {
+                return;
+            }
+            try {
+                END.invoke(evento);
+                COMMIT.invoke(evento);
+            } catch (ReflectiveOperationException | RuntimeException ex) {
+                // Métrica perdida não interrompe o relatório
+            }
+        }
+    }
+}
@@ -0,0 +1,552 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Leitura da exportação em planilha do Excel (.xlsx), sem convertê-la antes para CSV.
+ *
+ * O .xlsx é um zip de XMLs. A primeira aba é lida linha a linha com StAX direto do zip,
+ * sem montar a pasta de trabalho em memória. Cada linha vira uma linha de CSV num buffer
+ * reaproveitado e passa pelo mesmo DecodificadorCsv da leitura do CSV, então cabeçalho,
+ * descartes, conversão dos valores e consumidores são exatamente os mesmos.
+ *
+ * Os textos das células ficam numa tabela compartilhada (sharedStrings.xml), que a aba só
+ * referencia por índice. Dela guardamos apenas os textos que aparecem nas colunas usadas
+ * pelo relatório, em UTF-8 num único array: uma passada prévia pela aba marca esses
+ * índices. Uma tabela pequena (até {@link #LIMITE_TEXTOS_INTEIROS} descompactada) é
+ * guardada inteira, sem essa passada. Fora essa tabela, a memória não cresce com o
+ * tamanho da planilha.
+ */
+final class PlanilhaXlsx {
+    private static final byte[] ZIP = {'P', 'K', 3, 4};
+    // Pasta de trabalho do Excel 97-2003 (OLE2), que não é lida
+    private static final byte[] OLE2 = {(byte) 0xD0, (byte) 0xCF, 0x11, (byte) 0xE0};
+    private static final String ABA_PADRAO = "xl/worksheets/sheet1.xml";
+    private static final String TEXTOS_PADRAO = "xl/sharedStrings.xml";
+    // Abaixo disso a tabela compartilhada inteira custa menos que reler a aba para marcá-la
+    private static final long LIMITE_TEXTOS_INTEIROS = 8L << 20;
+
+    private final ZipFile zip;
+    private final XMLInputFactory fabrica;
+    private byte[] linha = new byte[1 << 12];
+    private ByteBuffer visao = ByteBuffer.wrap(linha);
+    private int tamanho;
+
+    private PlanilhaXlsx(ZipFile zip) {
+        this.zip = zip;
+        // Uma fábrica por leitura: o modo histórico lê várias planilhas em paralelo
+        this.fabrica = XMLInputFactory.newInstance();
+        fabrica.setProperty(XMLInputFactory.IS_COALESCING, true);
+        fabrica.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        fabrica.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    /**
+     * Indica, pelo conteúdo, se o arquivo é uma planilha .xlsx: a extensão das exportações
+     * não diz o formato (a .csv.xls que recebemos é texto). Uma pasta de trabalho do
+     * Excel 97-2003 é recusada com uma mensagem, em vez de ser lida como CSV sem cabeçalho.
+     */
+    static boolean ehPlanilha(Path arquivo) throws IOException {
+        ByteBuffer inicio = ByteBuffer.allocate(ZIP.length);
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            while (inicio.hasRemaining()) {
+                if (canal.read(inicio) < 0) {
+                    return false;
+                }
+            }
+        }
+        if (Arrays.equals(inicio.array(), OLE2)) {
+            throw new IOException(arquivo.getFileName() + " é uma planilha do Excel 97-2003; salve-a como .xlsx ou .csv");
+        }
+        return Arrays.equals(inicio.array(), ZIP);
+    }
+
+    /**
+     * Lê a primeira aba da planilha, entregando cada linha com lote válido ao consumidor,
+     * como {@link DecodificadorCsv#lerArquivo} faz com o CSV. O cabeçalho é a primeira
+     * linha com alguma célula preenchida.
+     */
+    static ContagemLinhas ler(Path arquivo, ConsumidorLinha consumidor) throws IOException {
+        try (ZipFile zip = new ZipFile(arquivo.toFile())) {
+            return new PlanilhaXlsx(zip).ler(consumidor);
+        } catch (XMLStreamException e) {
+            throw new IOException(arquivo.getFileName() + ": XML inválido na planilha: " + e.getMessage(), e);
+        }
+    }
+
+    private ContagemLinhas ler(ConsumidorLinha consumidor) throws IOException, XMLStreamException {
+        String[] partes = localizarPartes();
+        ZipEntry entradaAba = zip.getEntry(partes[0]);
+        if (entradaAba == null) {
+            throw new IOException("aba " + partes[0] + " não encontrada na planilha");
+        }
+
+        // Cabeçalho, com os seus textos lidos da tabela compartilhada
+        Aba cabecalho = new Aba(entradaAba);
+        int linhasAteCabecalho = 0;
+        try {
+            do {
+                if (!cabecalho.proxima()) {
+                    return new ContagemLinhas(); // aba vazia
+                }
+                linhasAteCabecalho++;
+            } while (cabecalho.n == 0);
+        } finally {
+            cabecalho.close();
+        }
+        BitSet marcados = new BitSet();
+        marcarTextos(cabecalho, marcados, null);
+        Textos textos = carregarTextos(partes[1], marcados);
+        escreverLinha(cabecalho, textos, null);
+        DecodificadorCsv decodificador = DecodificadorCsv.doCabecalho(visao, 0, tamanho);
+
+        ZipEntry entradaTextos = partes[1] == null ? null : zip.getEntry(partes[1]);
+        if (entradaTextos != null && entradaTextos.getSize() >= 0 && entradaTextos.getSize() <= LIMITE_TEXTOS_INTEIROS) {
+            textos = carregarTextos(partes[1], null);
+        } else {
+            // Só os textos das colunas que o relatório usa
+            marcados.clear();
+            try (Aba aba = new Aba(entradaAba)) {
+                aba.pular(linhasAteCabecalho);
+                while (aba.proxima()) {
+                    marcarTextos(aba, marcados, decodificador);
+                }
+            }
+            textos = carregarTextos(partes[1], marcados);
+        }
+
+        try (Aba aba = new Aba(entradaAba)) {
+            aba.pular(linhasAteCabecalho);
+            while (aba.proxima()) {
+                if (aba.n == 0) {
+                    continue; // linha sem nenhuma célula, como a linha em branco do CSV
+                }
+                escreverLinha(aba, textos, decodificador);
+                decodificador.varrer(visao, 0, tamanho, true, consumidor);
+            }
+        }
+        return decodificador.getContagem();
+    }
+
+    /**
+     * Caminhos no zip da primeira aba e da tabela de textos (null se não houver), pelas
+     * relações da pasta de trabalho; sem elas, os nomes que o Excel usa.
+     */
+    private String[] localizarPartes() throws IOException, XMLStreamException {
+        String idAba = null;
+        ZipEntry pasta = zip.getEntry("xl/workbook.xml");
+        if (pasta == null) {
+            throw new IOException("o arquivo é um zip, mas não uma planilha .xlsx (falta xl/workbook.xml)");
+        }
+        try (InputStream in = zip.getInputStream(pasta)) {
+            XMLStreamReader xml = fabrica.createXMLStreamReader(in);
+            while (idAba == null && xml.hasNext()) {
+                if (xml.next() == XMLStreamConstants.START_ELEMENT && xml.getLocalName().equals("sheet")) {
+                    idAba = idDaRelacao(xml);
+                }
+            }
+            xml.close();
+        }
+        String aba = ABA_PADRAO;
+        String textos = zip.getEntry(TEXTOS_PADRAO) != null ? TEXTOS_PADRAO : null;
+        ZipEntry relacoes = zip.getEntry("xl/_rels/workbook.xml.rels");
+        if (relacoes != null) {
+            try (InputStream in = zip.getInputStream(relacoes)) {
+                XMLStreamReader xml = fabrica.createXMLStreamReader(in);
+                while (xml.hasNext()) {
+                    if (xml.next() == XMLStreamConstants.START_ELEMENT && xml.getLocalName().equals("Relationship")) {
+                        String alvo = xml.getAttributeValue(null, "Target");
+                        String tipo = xml.getAttributeValue(null, "Type");
+                        if (alvo == null) {
+                            continue;
+                        }
+                        String caminho = alvo.startsWith("/") ? alvo.substring(1) : "xl/" + alvo;
+                        if (idAba != null && idAba.equals(xml.getAttributeValue(null, "Id"))) {
+                            aba = caminho;
+                        } else if (tipo != null && tipo.endsWith("/sharedStrings")) {
+                            textos = caminho;
+                        }
+                    }
+                }
+                xml.close();
+            }
+        }
+        return new String[]{aba, textos};
+    }
+
+    /** Marca os índices da tabela compartilhada usados na linha; decodificador null marca todas as colunas. */
+    private static void marcarTextos(Aba aba, BitSet marcados, DecodificadorCsv decodificador) {
+        for (int i = 0; i < aba.n; i++) {
+            if (aba.tipos[i] == 's' && (decodificador == null || decodificador.usaColuna(aba.colunas[i]))) {
+                int indice = indiceDoTexto(aba.valores[i]);
+                if (indice >= 0) {
+                    marcados.set(indice);
+                }
+            }
+        }
+    }
+
+    /** Textos marcados da tabela compartilhada; marcados null carrega todos. */
+    private Textos carregarTextos(String parte, BitSet marcados) throws IOException, XMLStreamException {
+        Textos textos = new Textos();
+        ZipEntry entrada = parte == null ? null : zip.getEntry(parte);
+        if (entrada == null || marcados != null && marcados.isEmpty()) {
+            return textos;
+        }
+        int ultimo = marcados == null ? Integer.MAX_VALUE - 1 : marcados.length() - 1;
+        try (InputStream in = zip.getInputStream(entrada)) {
+            XMLStreamReader xml = fabrica.createXMLStreamReader(in);
+            int indice = 0;
+            while (indice <= ultimo && xml.hasNext()) {
+                if (xml.next() == XMLStreamConstants.START_ELEMENT && xml.getLocalName().equals("si")) {
+                    if (marcados == null || marcados.get(indice)) {
+                        textos.adicionar(indice, texto(xml));
+                    } else {
+                        pularElemento(xml);
+                    }
+                    indice++;
+                }
+            }
+            xml.close();
+        }
+        return textos;
+    }
+
+    /**
+     * Monta a linha como CSV separado por ';' no buffer, com as colunas vazias que a aba
+     * omite. Com decodificador, só as colunas que ele usa recebem o valor; sem ele (o
+     * cabeçalho), todas.
+     */
+    private void escreverLinha(Aba aba, Textos textos, DecodificadorCsv decodificador) {
+        tamanho = 0;
+        int coluna = 0;
+        for (int i = 0; i < aba.n; i++) {
+            int c = aba.colunas[i];
+            if (c < coluna || decodificador != null && !decodificador.usaColuna(c)) {
+                continue;
+            }
+            while (coluna < c) {
+                escrever((byte) ';');
+                coluna++;
+            }
+            String valor = aba.valores[i];
+            switch (aba.tipos[i]) {
+                case 's':
+                    int indice = indiceDoTexto(valor);
+                    if (indice >= 0) {
+                        escreverCampo(textos, indice);
+                    }
+                    break;
+                case 'n':
+                    escreverNumero(valor, decodificador != null && decodificador.ehColunaDeValor(c));
+                    break;
+                default:
+                    escreverCampo(valor);
+            }
+        }
+    }
+
+    /**
+     * Número da célula em notação simples. O valor pago sai sempre com duas casas
+     * (1234.5 vira 1234.50, 1.234 vira 1.23): a célula numérica não tem separador de
+     * milhares, e assim o Centavos nunca precisa adivinhar qual é o decimal.
+     */
+    private void escreverNumero(String valor, boolean emReais) {
+        try {
+            BigDecimal numero = new BigDecimal(valor);
+            valor = emReais ? numero.setScale(2, RoundingMode.HALF_EVEN).toPlainString() : numero.toPlainString();
+        } catch (NumberFormatException e) {
+            // fica como veio; o decodificador decide
+        }
+        escreverCampo(valor);
+    }
+
+    /** Texto entre aspas se tiver ';', quebra de linha ou começar com aspas, como no CSV exportado. */
+    private void escreverCampo(String valor) {
+        boolean aspas = precisaDeAspas(valor);
+        if (aspas) {
+            escrever((byte) '"');
+        }
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c >= 0x80) {
+                escreverUtf8(valor.substring(i), aspas);
+                break;
+            }
+            if (c == '"' && aspas) {
+                escrever((byte) '"');
+            }
+            escrever((byte) c);
+        }
+        if (aspas) {
+            escrever((byte) '"');
+        }
+    }
+
+    private void escreverUtf8(String resto, boolean aspas) {
+        for (byte b : resto.getBytes(StandardCharsets.UTF_8)) {
+            if (b == '"' && aspas) {
+                escrever((byte) '"');
+            }
+            escrever(b);
+        }
+    }
+
+    private void escreverCampo(Textos textos, int indice) {
+        int pos = textos.posicao.get(indice, -1);
+        if (pos < 0) {
+            return;
+        }
+        // Os textos guardados já dizem se precisam de aspas (ver Textos.adicionar)
+        int fim = pos + 4 + textos.tamanhoEm(pos);
+        for (int i = pos + 4; i < fim; i++) {
+            escrever(textos.bytes[i]);
+        }
+    }
+
+    private void escrever(byte b) {
+        if (tamanho == linha.length) {
+            linha = Arrays.copyOf(linha, linha.length * 2);
+            visao = ByteBuffer.wrap(linha);
+        }
+        linha[tamanho++] = b;
+    }
+
+    private static boolean precisaDeAspas(String valor) {
+        if (valor.startsWith("\"")) {
+            return true;
+        }
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == ';' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int indiceDoTexto(String valor) {
+        try {
+            return Integer.parseInt(valor.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Texto de um &lt;si&gt; ou &lt;is&gt;: a concatenação dos &lt;t&gt;, inclusive os de
+     * trechos formatados (&lt;r&gt;), sem a transcrição fonética (&lt;rPh&gt;). Consome o
+     * elemento até o seu fim.
+     */
+    private static String texto(XMLStreamReader xml) throws XMLStreamException {
+        String texto = null;
+        StringBuilder partes = null;
+        int nivel = 1;
+        while (nivel > 0) {
+            int evento = xml.next();
+            if (evento == XMLStreamConstants.START_ELEMENT) {
+                String nome = xml.getLocalName();
+                if (nome.equals("t")) {
+                    String t = xml.getElementText();
+                    if (texto == null) {
+                        texto = t;
+                    } else {
+                        if (partes == null) {
+                            partes = new StringBuilder(texto);
+                        }
+                        partes.append(t);
+                    }
+                } else if (nome.equals("rPh")) {
+                    pularElemento(xml);
+                } else {
+                    nivel++;
+                }
+            } else if (evento == XMLStreamConstants.END_ELEMENT) {
+                nivel--;
+            }
+        }
+        return partes != null ? partes.toString() : texto != null ? texto : "";
+    }
+
+    /** Consome o elemento em que o cursor está, com tudo o que há dentro dele. */
+    private static void pularElemento(XMLStreamReader xml) throws XMLStreamException {
+        int nivel = 1;
+        while (nivel > 0) {
+            int evento = xml.next();
+            if (evento == XMLStreamConstants.START_ELEMENT) {
+                nivel++;
+            } else if (evento == XMLStreamConstants.END_ELEMENT) {
+                nivel--;
+            }
+        }
+    }
+
+    /** O r:id de um &lt;sheet&gt;; o namespace muda entre o formato de transição e o estrito. */
+    private static String idDaRelacao(XMLStreamReader xml) {
+        for (int i = 0; i < xml.getAttributeCount(); i++) {
+            String prefixo = xml.getAttributePrefix(i);
+            if (xml.getAttributeLocalName(i).equals("id") && prefixo != null && !prefixo.isEmpty()) {
+                return xml.getAttributeValue(i);
+            }
+        }
+        return null;
+    }
+
+    /** Índice da coluna (A = 0) de uma referência como "AB12". */
+    private static int coluna(String referencia) {
+        int coluna = 0;
+        for (int i = 0; i < referencia.length(); i++) {
+            char c = referencia.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                break;
+            }
+            coluna = coluna * 26 + (c - 'A' + 1);
+        }
+        return coluna - 1;
+    }
+
+    /**
+     * Textos da tabela compartilhada, já no formato do campo no CSV (UTF-8, entre aspas
+     * quando preciso), em sequência num array: 4 bytes de tamanho e os bytes.
+     */
+    private static final class Textos {
+        final MapaInt posicao = new MapaInt();
+        byte[] bytes = new byte[1 << 12];
+        int usado;
+
+        void adicionar(int indice, String texto) {
+            boolean aspas = precisaDeAspas(texto);
+            byte[] utf8 = (aspas ? '"' + texto.replace("\"", "\"\"") + '"' : texto).getBytes(StandardCharsets.UTF_8);
+            if (usado + 4 + utf8.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, usado + 4 + utf8.length));
+            }
+            posicao.put(indice, usado);
+            for (int i = 0; i < 4; i++) {
+                bytes[usado + i] = (byte) (utf8.length >>> (24 - 8 * i));
+            }
+            System.arraycopy(utf8, 0, bytes, usado + 4, utf8.length);
+            usado += 4 + utf8.length;
+        }
+
+        int tamanhoEm(int pos) {
+            return (bytes[pos] & 0xFF) << 24 | (bytes[pos + 1] & 0xFF) << 16 | (bytes[pos + 2] & 0xFF) << 8
+                    | (bytes[pos + 3] & 0xFF);
+        }
+    }
+
+    /** Cursor sobre as linhas (&lt;row&gt;) de uma aba; as células da linha atual ficam nos arrays. */
+    private final class Aba implements AutoCloseable {
+        private final InputStream entrada;
+        private final XMLStreamReader xml;
+        // Células preenchidas da linha atual, em ordem: coluna, tipo ('s', 'n' ou 't') e valor
+        int n;
+        int[] colunas = new int[32];
+        char[] tipos = new char[32];
+        String[] valores = new String[32];
+
+        Aba(ZipEntry entradaAba) throws IOException, XMLStreamException {
+            this.entrada = zip.getInputStream(entradaAba);
+            this.xml = fabrica.createXMLStreamReader(entrada);
+        }
+
+        /** Avança para a próxima linha; false no fim da aba. */
+        boolean proxima() throws XMLStreamException {
+            while (xml.hasNext()) {
+                if (xml.next() == XMLStreamConstants.START_ELEMENT && xml.getLocalName().equals("row")) {
+                    lerLinha();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void pular(int linhas) throws XMLStreamException {
+            for (int i = 0; i < linhas && proxima(); i++) {
+                // só avança
+            }
+        }
+
+        private void lerLinha() throws XMLStreamException {
+            n = 0;
+            int proximaColuna = 0;
+            while (true) {
+                int evento = xml.next();
+                if (evento == XMLStreamConstants.END_ELEMENT) {
+                    return; // </row>
+                }
+                if (evento != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                if (!xml.getLocalName().equals("c")) {
+                    pularElemento(xml);
+                    continue;
+                }
+                String referencia = xml.getAttributeValue(null, "r");
+                String tipo = xml.getAttributeValue(null, "t");
+                int coluna = referencia == null ? proximaColuna : coluna(referencia);
+                proximaColuna = coluna + 1;
+                String valor = lerCelula();
+                if (valor != null && !valor.isEmpty()) {
+                    adicionar(coluna, tipo == null || tipo.equals("n") ? 'n' : tipo.equals("s") ? 's' : 't', valor);
+                }
+            }
+        }
+
+        /** Valor de &lt;v&gt; ou o texto de &lt;is&gt;; a fórmula (&lt;f&gt;) é ignorada. Consome a célula. */
+        private String lerCelula() throws XMLStreamException {
+            String valor = null;
+            while (true) {
+                int evento = xml.next();
+                if (evento == XMLStreamConstants.END_ELEMENT) {
+                    return valor; // </c>
+                }
+                if (evento == XMLStreamConstants.START_ELEMENT) {
+                    String nome = xml.getLocalName();
+                    if (nome.equals("v")) {
+                        valor = xml.getElementText();
+                    } else if (nome.equals("is")) {
+                        valor = texto(xml);
+                    } else {
+                        pularElemento(xml);
+                    }
+                }
+            }
+        }
+
+        private void adicionar(int coluna, char tipo, String valor) {
+            if (n == colunas.length) {
+                colunas = Arrays.copyOf(colunas, n * 2);
+                tipos = Arrays.copyOf(tipos, n * 2);
+                valores = Arrays.copyOf(valores, n * 2);
+            }
+            colunas[n] = coluna;
+            tipos[n] = tipo;
+            valores[n] = valor;
+            n++;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                xml.close();
+            } catch (XMLStreamException e) {
+                // o cursor não tem o que perder; a entrada do zip é fechada abaixo
+            }
+            entrada.close();
+        }
+    }
+}
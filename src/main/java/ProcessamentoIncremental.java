@@ -0,0 +1,312 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Processa uma nova exportação como diferença em relação à anterior.
+ *
+ * O estado da última execução (índice por CPF e acumuladores já somados) fica em
+ * {@link #NOME_ARQUIVO}. Os acumuladores só são tocados nas linhas dos CPFs que mudaram:
+ * as linhas antigas desses CPFs são desfeitas e as novas somadas. Como tudo está em
+ * centavos exatos, o resultado é idêntico ao de agregar o arquivo do zero.
+ *
+ * O estado guarda também tamanho, data e CRC-32 da exportação que o produziu. Se a
+ * exportação não mudou, os acumuladores saem do estado sem ler o índice, sem ordenar e
+ * sem regravar nada. Se mudou, ela é lida inteira: do cache em colunas, quando há um,
+ * já na ordem do índice (sem ordenar), ou do CSV, com uma ordenação do índice. Daí em
+ * diante o custo é o de comparar os dois índices e regravar o estado.
+ */
+public final class ProcessamentoIncremental {
+    public static final String NOME_ARQUIVO = "estado_cpf.bin";
+
+    private static final int MAGICO = 0x43505256; // "CPRV"
+    private static final int VERSAO = 2;
+
+    private ProcessamentoIncremental() {
+    }
+
+    /** O que mudou desde a execução anterior, junto com os acumuladores atualizados. */
+    public static final class Resultado {
+        private final AcumuladorLotes acumulador;
+        private final boolean primeiraExecucao;
+        private final boolean mesmaExportacao;
+        private final String arquivoAnterior;
+        private final long execucaoAnterior;
+        private ContagemLinhas contagem;
+        int cpfsNovos;
+        int cpfsRemovidos;
+        int cpfsAlterados;
+        int linhasReprocessadas;
+        // Novos desbloqueados: CPF, lote da linha desbloqueada e se é inativo
+        long[] cpfDesbloqueado = new long[16];
+        int[] loteDesbloqueado = new int[16];
+        boolean[] inativoDesbloqueado = new boolean[16];
+        int novosDesbloqueados;
+
+        Resultado(AcumuladorLotes acumulador, boolean primeiraExecucao, boolean mesmaExportacao,
+                  String arquivoAnterior, long execucaoAnterior) {
+            this.acumulador = acumulador;
+            this.primeiraExecucao = primeiraExecucao;
+            this.mesmaExportacao = mesmaExportacao;
+            this.arquivoAnterior = arquivoAnterior;
+            this.execucaoAnterior = execucaoAnterior;
+        }
+
+        void adicionarDesbloqueado(long cpf, int lote, boolean inativo) {
+            if (novosDesbloqueados == cpfDesbloqueado.length) {
+                int capacidade = novosDesbloqueados * 2;
+                cpfDesbloqueado = Arrays.copyOf(cpfDesbloqueado, capacidade);
+                loteDesbloqueado = Arrays.copyOf(loteDesbloqueado, capacidade);
+                inativoDesbloqueado = Arrays.copyOf(inativoDesbloqueado, capacidade);
+            }
+            cpfDesbloqueado[novosDesbloqueados] = cpf;
+            loteDesbloqueado[novosDesbloqueados] = lote;
+            inativoDesbloqueado[novosDesbloqueados] = inativo;
+            novosDesbloqueados++;
+        }
+
+        public AcumuladorLotes getAcumulador() {
+            return acumulador;
+        }
+
+        /** Sem estado anterior (ou estado ilegível): tudo foi agregado do zero. */
+        public boolean isPrimeiraExecucao() {
+            return primeiraExecucao;
+        }
+
+        /** A exportação é a mesma da execução anterior: nada foi reprocessado. */
+        public boolean isMesmaExportacao() {
+            return mesmaExportacao;
+        }
+
+        /** Linhas da nova exportação lidas e descartadas. */
+        public ContagemLinhas getContagem() {
+            return contagem;
+        }
+
+        public String getArquivoAnterior() {
+            return arquivoAnterior;
+        }
+
+        /** Momento da execução anterior, em milissegundos desde a época. */
+        public long getExecucaoAnterior() {
+            return execucaoAnterior;
+        }
+
+        public int getCpfsNovos() {
+            return cpfsNovos;
+        }
+
+        public int getCpfsRemovidos() {
+            return cpfsRemovidos;
+        }
+
+        public int getCpfsAlterados() {
+            return cpfsAlterados;
+        }
+
+        public int getLinhasReprocessadas() {
+            return linhasReprocessadas;
+        }
+
+        public int getNovosDesbloqueados() {
+            return novosDesbloqueados;
+        }
+
+        public long getCpfDesbloqueado(int i) {
+            return cpfDesbloqueado[i];
+        }
+
+        public int getLoteDesbloqueado(int i) {
+            return loteDesbloqueado[i];
+        }
+
+        public boolean isInativoDesbloqueado(int i) {
+            return inativoDesbloqueado[i];
+        }
+    }
+
+    /**
+     * Atualiza o estado guardado em arquivoEstado com a exportação csv e grava o novo estado.
+     * Um estado ausente ou de outra versão leva a uma agregação completa. Se extra não
+     * for null, recebe também as linhas da exportação (ex.: o cubo dos recortes), mesmo
+     * quando ela não mudou. Com usarCache, as linhas vêm do cache em colunas se ele
+     * corresponder ao csv.
+     */
+    public static Resultado processar(Path csv, File arquivoEstado, ConsumidorLinha extra, boolean usarCache)
+            throws IOException {
+        long tamanhoCsv = Files.size(csv);
+        long modificacaoCsv = Files.getLastModifiedTime(csv).toMillis();
+        long crcCsv = -1;
+
+        // O estado guarda sempre todas as variantes, qualquer que seja o relatório pedido hoje
+        Variante[] variantes = Variante.values();
+        IndiceCpf anterior = null;
+        AcumuladorLotes acumulador = null;
+        ContagemLinhas contagemAnterior = null;
+        String arquivoAnterior = null;
+        long execucaoAnterior = 0;
+        boolean mesmaExportacao = false;
+        if (arquivoEstado.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(arquivoEstado.toPath())))) {
+                if (in.readInt() == MAGICO && in.readInt() == VERSAO) {
+                    arquivoAnterior = in.readUTF();
+                    execucaoAnterior = in.readLong();
+                    long tamanho = in.readLong();
+                    long modificacao = in.readLong();
+                    long crc = in.readLong();
+                    contagemAnterior = ContagemLinhas.ler(in);
+                    acumulador = AcumuladorLotes.ler(in, variantes);
+                    // Tamanho e data primeiro: o CRC exige ler o CSV inteiro
+                    mesmaExportacao = tamanho == tamanhoCsv && modificacao == modificacaoCsv
+                            && crc == (crcCsv = ColunasLote.crc(csv));
+                    if (!mesmaExportacao) {
+                        anterior = IndiceCpf.ler(in);
+                    }
+                }
+            } catch (IOException e) {
+                System.out.println("AVISO: estado anterior ilegível (" + e.getMessage() + "); agregando do zero.");
+                anterior = null;
+                mesmaExportacao = false;
+            }
+        }
+
+        if (mesmaExportacao) {
+            // Nada a comparar nem a regravar; só quem pediu as linhas as recebe
+            if (extra != null && (!usarCache || !ColunasLote.lerCache(csv, extra, null))) {
+                DecodificadorCsv.lerArquivo(csv, extra);
+            }
+            Resultado resultado = new Resultado(acumulador, false, true, arquivoAnterior, execucaoAnterior);
+            resultado.contagem = contagemAnterior;
+            return resultado;
+        }
+
+        IndiceCpf atual = new IndiceCpf();
+        ConsumidorLinha consumidor = atual;
+        if (extra != null) {
+            consumidor = linha -> {
+                atual.aceitar(linha);
+                extra.aceitar(linha);
+            };
+        }
+        ContagemLinhas contagem = new ContagemLinhas();
+        // O cache em colunas guarda a ordem do índice: as linhas já chegam ordenadas
+        if (!usarCache || !ColunasLote.lerCacheEmOrdemDeCpf(csv, contagem, consumidor)) {
+            contagem = DecodificadorCsv.lerArquivo(csv, consumidor);
+        }
+        atual.ordenar();
+
+        Resultado resultado;
+        if (anterior == null) {
+            acumulador = new AcumuladorLotes(variantes);
+            resultado = new Resultado(acumulador, true, false, null, 0);
+            LinhaLote linha = new LinhaLote();
+            for (int i = 0; i < atual.size(); i++) {
+                atual.copiar(i, linha);
+                acumulador.aceitar(linha);
+            }
+        } else {
+            resultado = new Resultado(acumulador, false, false, arquivoAnterior, execucaoAnterior);
+            aplicarDiferenca(anterior, atual, resultado);
+        }
+
+        resultado.contagem = contagem;
+        if (crcCsv == -1) {
+            crcCsv = ColunasLote.crc(csv);
+        }
+        gravarEstado(arquivoEstado, csv.getFileName().toString(), tamanhoCsv, modificacaoCsv, crcCsv, contagem,
+                atual, acumulador);
+        return resultado;
+    }
+
+    /** Percorre os dois índices ordenados em paralelo, grupo de CPF a grupo de CPF. */
+    private static void aplicarDiferenca(IndiceCpf anterior, IndiceCpf atual, Resultado resultado) {
+        AcumuladorLotes acumulador = resultado.acumulador;
+        LinhaLote linha = new LinhaLote();
+        int a = 0;
+        int b = 0;
+        while (a < anterior.size() || b < atual.size()) {
+            int cmp;
+            if (a >= anterior.size()) {
+                cmp = 1;
+            } else if (b >= atual.size()) {
+                cmp = -1;
+            } else {
+                cmp = Long.compare(anterior.getCpf(a), atual.getCpf(b));
+            }
+            int aFim = cmp <= 0 ? anterior.fimDoGrupo(a) : a;
+            int bFim = cmp >= 0 ? atual.fimDoGrupo(b) : b;
+
+            if (cmp == 0 && anterior.mesmoGrupo(a, aFim, atual, b, bFim)) {
+                a = aFim;
+                b = bFim;
+                continue; // caso comum: nada mudou para este CPF
+            }
+            if (cmp < 0) {
+                resultado.cpfsRemovidos++;
+            } else if (cmp > 0) {
+                resultado.cpfsNovos++;
+            } else {
+                resultado.cpfsAlterados++;
+            }
+
+            boolean estavaDesbloqueado = false;
+            for (int i = a; i < aFim; i++) {
+                anterior.copiar(i, linha);
+                estavaDesbloqueado |= linha.isDesbloqueado();
+                acumulador.remover(linha);
+            }
+            int loteDesbloqueio = -1;
+            boolean inativo = false;
+            for (int i = b; i < bFim; i++) {
+                atual.copiar(i, linha);
+                if (loteDesbloqueio < 0 && linha.isDesbloqueado()) {
+                    loteDesbloqueio = linha.getLote();
+                    inativo = linha.isInativo();
+                }
+                acumulador.aceitar(linha);
+            }
+            resultado.linhasReprocessadas += (aFim - a) + (bFim - b);
+            // Só conta quem já estava na exportação anterior; CPF sem número não identifica ninguém
+            if (cmp == 0 && !estavaDesbloqueado && loteDesbloqueio >= 0 && atual.getCpf(b) >= 0) {
+                resultado.adicionarDesbloqueado(atual.getCpf(b), loteDesbloqueio, inativo);
+            }
+            a = aFim;
+            b = bFim;
+        }
+    }
+
+    /** Grava num arquivo temporário e troca de uma vez, para não deixar estado pela metade. */
+    private static void gravarEstado(File arquivoEstado, String nomeCsv, long tamanhoCsv, long modificacaoCsv,
+                                     long crcCsv, ContagemLinhas contagem, IndiceCpf indice,
+                                     AcumuladorLotes acumulador) throws IOException {
+        Path destino = arquivoEstado.toPath();
+        Path temporario = destino.resolveSibling(arquivoEstado.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporario)))) {
+            out.writeInt(MAGICO);
+            out.writeInt(VERSAO);
+            out.writeUTF(nomeCsv);
+            out.writeLong(System.currentTimeMillis());
+            out.writeLong(tamanhoCsv);
+            out.writeLong(modificacaoCsv);
+            out.writeLong(crcCsv);
+            contagem.gravar(out);
+            // Acumuladores antes do índice: com a mesma exportação, o índice nem é lido
+            acumulador.gravar(out);
+            indice.gravar(out);
+        }
+        try {
+            Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Um recorte pedido ao {@link CuboAgregacao}: o eixo pelo qual agrupar e filtros
+ * opcionais nos demais. Na linha de comando:
+ * <pre>
+ * --fatia=orgao:lote=3
+ * --fatia=vinculo:vinculo=PENSIONISTA|APOSENTADO
+ * --fatia=lote:orgao=ASSEMBLEIA LEGISLATIVA,vinculo=ATIVO
+ * </pre>
+ * Valores de texto são comparados sem diferenciar maiúsculas.
+ */
+public final class Recorte {
+    private final EixoCubo agrupamento;
+    private final EixoCubo[] eixosFiltro;
+    private final String[][] valoresFiltro;
+
+    Recorte(EixoCubo agrupamento, EixoCubo[] eixosFiltro, String[][] valoresFiltro) {
+        this.agrupamento = agrupamento;
+        this.eixosFiltro = eixosFiltro;
+        this.valoresFiltro = valoresFiltro;
+    }
+
+    /** Interpreta "eixo[:eixo=valor|valor,...]". */
+    public static Recorte interpretar(String especificacao) {
+        String[] partes = especificacao.split(":", 2);
+        EixoCubo agrupamento = EixoCubo.porNome(partes[0]);
+        List<EixoCubo> eixos = new ArrayList<>();
+        List<String[]> valores = new ArrayList<>();
+        if (partes.length > 1 && !partes[1].trim().isEmpty()) {
+            for (String filtro : partes[1].split(",")) {
+                String[] chaveValor = filtro.split("=", 2);
+                if (chaveValor.length < 2 || chaveValor[1].trim().isEmpty()) {
+                    throw new IllegalArgumentException("Filtro inválido em --fatia: '" + filtro + "'; use eixo=valor");
+                }
+                String[] alternativas = chaveValor[1].split("\\|");
+                for (int i = 0; i < alternativas.length; i++) {
+                    alternativas[i] = alternativas[i].trim();
+                }
+                eixos.add(EixoCubo.porNome(chaveValor[0]));
+                valores.add(alternativas);
+            }
+        }
+        return new Recorte(agrupamento, eixos.toArray(new EixoCubo[0]), valores.toArray(new String[0][]));
+    }
+
+    public EixoCubo getAgrupamento() {
+        return agrupamento;
+    }
+
+    int getQuantidadeFiltros() {
+        return eixosFiltro.length;
+    }
+
+    EixoCubo getEixoFiltro(int i) {
+        return eixosFiltro[i];
+    }
+
+    String[] getValoresFiltro(int i) {
+        return valoresFiltro[i];
+    }
+
+    /** Ex.: "Órgão (Lote = 3)". */
+    public String getDescricao() {
+        StringBuilder sb = new StringBuilder(agrupamento.getTitulo());
+        for (int i = 0; i < eixosFiltro.length; i++) {
+            sb.append(i == 0 ? " (" : "; ").append(eixosFiltro[i].getTitulo()).append(" = ")
+                    .append(String.join(" ou ", valoresFiltro[i]));
+        }
+        if (eixosFiltro.length > 0) {
+            sb.append(')');
+        }
+        return sb.toString();
+    }
+}
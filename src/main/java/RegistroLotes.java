@@ -0,0 +1,43 @@
+import java.util.Arrays;
+
+/**
+ * Numera os lotes encontrados em posições densas 0..n-1, criadas sob demanda.
+ * Os acumuladores usam essas posições como índice, então um lote novo no CSV
+ * não exige mudança de código.
+ */
+public final class RegistroLotes {
+    private final MapaInt slotPorLote = new MapaInt();
+    private int[] lotePorSlot = new int[8];
+    private int tamanho;
+
+    /** Posição do lote, criando uma nova se ele ainda não apareceu. */
+    public int slot(int lote) {
+        int s = slotPorLote.get(lote, -1);
+        if (s < 0) {
+            s = tamanho++;
+            if (s == lotePorSlot.length) {
+                lotePorSlot = Arrays.copyOf(lotePorSlot, s * 2);
+            }
+            lotePorSlot[s] = lote;
+            slotPorLote.put(lote, s);
+        }
+        return s;
+    }
+
+    /** Posição do lote, ou -1 se ele não apareceu. */
+    public int slotExistente(int lote) {
+        return slotPorLote.get(lote, -1);
+    }
+
+    public int lote(int slot) {
+        return lotePorSlot[slot];
+    }
+
+    public int size() {
+        return tamanho;
+    }
+
+    public int[] lotesOrdenados() {
+        return slotPorLote.chavesOrdenadas();
+    }
+}
@@ -0,0 +1,571 @@
+import com.itextpdf.io.image.ImageData;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.layout.Document;
+import com.itextpdf.layout.element.Paragraph;
+import com.itextpdf.layout.element.Table;
+import com.itextpdf.layout.element.Cell;
+import com.itextpdf.layout.element.Image;
+import com.itextpdf.kernel.colors.ColorConstants;
+import com.itextpdf.kernel.colors.DeviceRgb;
+import com.itextpdf.layout.properties.TextAlignment;
+import com.itextpdf.layout.properties.UnitValue;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Gráfico e PDF dos relatórios, a partir dos números que o Main já calculou e imprimiu.
+ *
+ * Toda referência ao iText e ao JFreeChart fica aqui e no GraficosRelatorio: o Main só
+ * chama esta classe quando vai gerar PDF, então nos modos --console e --json a JVM
+ * nunca carrega essas bibliotecas nem o AWT.
+ */
+final class RelatorioPdf {
+    // Quantos novos desbloqueados (ou linhas de CPFs repetidos) listar no PDF; o restante só entra na contagem
+    private static final int LIMITE_LISTA_PDF = 200;
+
+    private RelatorioPdf() {
+    }
+
+    /**
+     * Gráfico de economia (desenhado em memória; com os mesmos números, reaproveitado do
+     * cache) e PDF de uma variante. Se csvAnexo não for null, o PDF ganha o anexo por
+     * beneficiário lido desse arquivo; se duplicidade não for null, a seção dos CPFs
+     * repetidos, e o anexo deixa de fora as linhas que a política tirou dos totais.
+     */
+    static void gerar(ResumoLotes resumo, NumberFormat nf, Variante variante,
+                      ProcessamentoIncremental.Resultado incremental, List<Fatia> fatias,
+                      DuplicidadeCpf duplicidade, java.nio.file.Path csvAnexo, String dataHora, MetricasExecucao metricas) throws IOException {
+        boolean apenasInativos = variante.isApenasInativos();
+        int[] lotes = resumo.getLotes();
+        long[] valorBloqueados = resumo.getValorBloqueados();   // centavos
+
+        MetricasExecucao.Fase grafico = metricas.iniciar("grafico", variante);
+        CacheGraficos.Hash dadosGrafico = new CacheGraficos.Hash()
+                .mais("economia").mais(apenasInativos ? 1 : 0).mais(lotes).mais(valorBloqueados);
+        ImageData imagemGrafico = CacheGraficos.imagem(dadosGrafico, 800, 600,
+                () -> GraficosRelatorio.gerarGraficoEconomiaLotes(lotes, valorBloqueados, nf, apenasInativos));
+        grafico.terminar();
+
+        MetricasExecucao.Fase pdf = metricas.iniciar("pdf", variante);
+        String filename = Main.getDiretorioSaida() + File.separator + "relatorio_cearaprev" + variante.getSufixo() + ".pdf";
+        gerarRelatorioPDF(filename, null, lotes, resumo.getTotais(), resumo.getDesbloqueados(), resumo.getValorRetido(),
+                         valorBloqueados, resumo.getTotalDesbloq(), resumo.getTotalValor(), resumo.getTotalValorBloqueados(),
+                         resumo.getTotalGeral(), nf, variante, incremental, imagemGrafico, fatias, duplicidade,
+                         csvAnexo, dataHora);
+        pdf.terminar();
+    }
+
+    /**
+     * Gráfico e PDF de um órgão (--por-orgao), com as mesmas seções do relatório da
+     * variante menos os recortes, as novidades e o anexo. Como nos recortes, não há total
+     * oficial por órgão: os totais são as linhas do CSV e o valor é o somado, sem projeção.
+     * Chamado das threads do RelatoriosPorOrgao: cada chamada monta o seu próprio
+     * documento, e nf não pode ser compartilhado com outra thread.
+     */
+    static void gerarOrgao(ResumoLotes resumo, String orgao, File destino, Variante variante, NumberFormat nf,
+                           String dataHora) throws IOException {
+        int[] lotes = resumo.getLotes();
+        long[] valorNoCsv = resumo.getValorRetido();
+        CacheGraficos.Hash dadosGrafico = new CacheGraficos.Hash()
+                .mais("economia").mais(variante.isApenasInativos() ? 1 : 0).mais(lotes).mais(valorNoCsv);
+        ImageData imagemGrafico = CacheGraficos.imagem(dadosGrafico, 800, 600,
+                () -> GraficosRelatorio.gerarGraficoEconomiaLotes(lotes, valorNoCsv, nf, variante.isApenasInativos()));
+        gerarRelatorioPDF(destino.getPath(), orgao, lotes, resumo.getTotais(), resumo.getDesbloqueados(),
+                         valorNoCsv, valorNoCsv, resumo.getTotalDesbloq(), resumo.getTotalValor(),
+                         resumo.getTotalValor(), resumo.getTotalGeral(), nf, variante, null, imagemGrafico,
+                         Collections.<Fatia>emptyList(), null, null, dataHora);
+    }
+
+    /** Gráfico da evolução por lote e PDF do modo histórico, para uma variante. */
+    static void gerarHistorico(List<HistoricoExportacoes.Exportacao> exportacoes, ResumoLotes[] resumos,
+                               Variante variante, NumberFormat nf, String dataHora,
+                               MetricasExecucao metricas) throws IOException {
+        MetricasExecucao.Fase grafico = metricas.iniciar("grafico", variante);
+        CacheGraficos.Hash dadosGrafico = new CacheGraficos.Hash().mais("historico").mais(variante.ordinal());
+        for (int i = 0; i < resumos.length; i++) {
+            dadosGrafico.mais(exportacoes.get(i).getData().toEpochDay()).mais(resumos[i].getLotes())
+                    .mais(resumos[i].getTotais()).mais(resumos[i].getDesbloqueados()).mais(resumos[i].getValorBloqueados());
+        }
+        ImageData imagemGrafico = CacheGraficos.imagem(dadosGrafico, 800, 900,
+                () -> GraficosRelatorio.gerarGraficoHistorico(exportacoes, resumos, variante));
+        grafico.terminar();
+
+        MetricasExecucao.Fase pdf = metricas.iniciar("pdf", variante);
+        gerarRelatorioHistoricoPDF(exportacoes, resumos, variante, imagemGrafico, nf, dataHora);
+        pdf.terminar();
+    }
+
+    /**
+     * orgao é null no relatório geral; no de um órgão, o nome dele entra no cabeçalho e
+     * valorBloqueados é o valor somado do CSV (ver gerarOrgao).
+     */
+    private static void gerarRelatorioPDF(String filename, String orgao, int[] lotes, long[] totalOficial, long[] desbloqueados, long[] valorRetido, long[] valorBloqueados,
+                                         long totalDesbloq, long totalValor, long totalValorBloqueados, long totalGeral, 
+                                         NumberFormat nf, Variante variante, ProcessamentoIncremental.Resultado incremental,
+                                         ImageData grafico, List<Fatia> fatias, DuplicidadeCpf duplicidade,
+                                         java.nio.file.Path csvAnexo,
+                                         String dataHora) throws IOException {
+        boolean apenasInativos = variante.isApenasInativos();
+        new File(filename).delete(); // Remove arquivo antigo
+        
+        PdfWriter writer = new PdfWriter(filename);
+        PdfDocument pdfDoc = new PdfDocument(writer);
+        Document doc = new Document(pdfDoc);
+        doc.setMargins(20, 20, 20, 20);
+
+        // CABEÇALHO PROFISSIONAL
+        Table headerTable = new Table(1);
+        headerTable.setWidth(UnitValue.createPercentValue(100));
+        String tituloRelatorio = apenasInativos ? "RELATÓRIO DE DESBLOQUEIOS - INATIVOS" : "RELATÓRIO DE DESBLOQUEIOS";
+        Cell headerMainCell = new Cell()
+                .add(new Paragraph("CEARAPREV")
+                        .setFontSize(20)
+                        .setBold()
+                        .setFontColor(ColorConstants.WHITE))
+                .add(new Paragraph(tituloRelatorio)
+                        .setFontSize(11)
+                        .setFontColor(ColorConstants.WHITE))
+                .setBackgroundColor(EstiloPdf.AZUL)
+                .setPadding(15)
+                .setBorder(null);
+        if (orgao != null) {
+            headerMainCell.add(new Paragraph("ÓRGÃO: " + (orgao.isEmpty() ? "(vazio)" : orgao))
+                    .setFontSize(11)
+                    .setBold()
+                    .setFontColor(ColorConstants.WHITE));
+        }
+        headerTable.addCell(headerMainCell);
+        doc.add(headerTable);
+        
+        // Data e hora do relatório
+        doc.add(new Paragraph("Data/Hora: " + dataHora)
+                .setFontSize(9)
+                .setTextAlignment(com.itextpdf.layout.properties.TextAlignment.RIGHT)
+                .setMarginTop(5)
+                .setMarginBottom(5));
+        
+        doc.add(new Paragraph("\n").setFontSize(6));
+
+        // TABELA PRINCIPAL
+        Table table = new Table(new float[]{1, 2.5f, 2, 2, 3});
+        table.setWidth(UnitValue.createPercentValue(100));
+        
+        // Cabeçalho (azul escuro)
+        String[] headers = {"LOTE", "TOTAL", "DESBLOQUEADOS", "EXCLUSÃO", orgao == null ? "VALOR RETIDO" : "VALOR NO CSV"};
+        for (String header : headers) {
+            Cell headerCell = new Cell()
+                    .add(new Paragraph(header)
+                            .setBold()
+                            .setFontSize(9)
+                            .setFontColor(ColorConstants.WHITE))
+                    .setBackgroundColor(EstiloPdf.AZUL_ESCURO)
+                    .setPadding(8)
+                    .setTextAlignment(com.itextpdf.layout.properties.TextAlignment.CENTER);
+            table.addCell(headerCell);
+        }
+
+        // Dados dos lotes com cores alternadas
+        for (int i = 0; i < lotes.length; i++) {
+            long bloqueado = totalOficial[i] - desbloqueados[i];
+            DeviceRgb bgColor = EstiloPdf.fundoDaLinha(i);
+            
+            Cell cell1 = new Cell().add(new Paragraph(lotes[i] + "ª").setFontSize(9).setBold()).setPadding(6).setBackgroundColor(bgColor);
+            Cell cell2 = new Cell().add(new Paragraph(nf.format(totalOficial[i])).setFontSize(8)).setPadding(6).setBackgroundColor(bgColor);
+            Cell cell3 = new Cell().add(new Paragraph(nf.format(bloqueado)).setFontSize(8)).setPadding(6).setBackgroundColor(bgColor);
+            Cell cell4 = new Cell().add(new Paragraph(nf.format(desbloqueados[i]) + " (" + percentual(desbloqueados[i], totalOficial[i]) + ")").setFontSize(8)).setPadding(6).setBackgroundColor(bgColor);
+            Cell cell5 = new Cell().add(new Paragraph("R$ " + Centavos.formatar(nf, valorBloqueados[i])).setFontSize(8)).setPadding(6).setBackgroundColor(bgColor);
+            
+            table.addCell(cell1);
+            table.addCell(cell2);
+            table.addCell(cell3);
+            table.addCell(cell4);
+            table.addCell(cell5);
+        }
+
+        // Linha de TOTAL (verde)
+        long totalBloqueado = totalGeral - totalDesbloq;
+        DeviceRgb totalBgColor = EstiloPdf.VERDE;
+        
+        Cell totalCell1 = new Cell().add(new Paragraph("TOTAL").setBold().setFontSize(9).setFontColor(ColorConstants.WHITE)).setPadding(8).setBackgroundColor(totalBgColor);
+        Cell totalCell2 = new Cell().add(new Paragraph(nf.format(totalGeral)).setBold().setFontSize(9).setFontColor(ColorConstants.WHITE)).setPadding(8).setBackgroundColor(totalBgColor);
+        Cell totalCell3 = new Cell().add(new Paragraph(nf.format(totalBloqueado)).setBold().setFontSize(9).setFontColor(ColorConstants.WHITE)).setPadding(8).setBackgroundColor(totalBgColor);
+        Cell totalCell4 = new Cell().add(new Paragraph(nf.format(totalDesbloq) + " (" + percentual(totalDesbloq, totalGeral) + ")").setBold().setFontSize(9).setFontColor(ColorConstants.WHITE)).setPadding(8).setBackgroundColor(totalBgColor);
+        Cell totalCell5 = new Cell().add(new Paragraph("R$ " + Centavos.formatar(nf, totalValorBloqueados)).setBold().setFontSize(9).setFontColor(ColorConstants.WHITE)).setPadding(8).setBackgroundColor(totalBgColor);
+        
+        table.addCell(totalCell1);
+        table.addCell(totalCell2);
+        table.addCell(totalCell3);
+        table.addCell(totalCell4);
+        table.addCell(totalCell5);
+
+        doc.add(table);
+        doc.add(new Paragraph("\n\n").setFontSize(8));
+
+        // Seção de gráfico único - ECONOMIA DO ESTADO
+        Paragraph graficosTitle = new Paragraph("ANÁLISE VISUAL - ECONOMIA DO ESTADO POR LOTE")
+                .setFontSize(13)
+                .setBold()
+                .setMarginTop(10)
+                .setMarginBottom(10)
+                .setFontColor(EstiloPdf.AZUL)
+                .setTextAlignment(com.itextpdf.layout.properties.TextAlignment.CENTER);
+        doc.add(graficosTitle);
+
+        Image img = new Image(grafico);
+        img.scaleToFit(450, 320);
+        img.setHorizontalAlignment(com.itextpdf.layout.properties.HorizontalAlignment.CENTER);
+        doc.add(img);
+
+        for (Fatia fatia : fatias) {
+            adicionarFatia(doc, fatia, nf);
+        }
+
+        if (duplicidade != null && duplicidade.getCpfsRepetidos() > 0) {
+            adicionarDuplicados(doc, duplicidade, nf);
+        }
+
+        if (incremental != null && !incremental.isPrimeiraExecucao()) {
+            adicionarNovosDesbloqueados(doc, incremental, variante);
+        }
+
+        if (csvAnexo != null) {
+            adicionarAnexoBeneficiarios(doc, csvAnexo, variante, duplicidade, nf);
+        }
+
+        doc.close();
+
+        if (orgao == null) {
+            // Os dos órgãos são dezenas; o RelatoriosPorOrgao resume no fim
+            System.out.println("Relatório PDF gerado: " + filename);
+        }
+    }
+
+    /**
+     * Seção de um recorte do cubo: mesmas colunas da tabela por lote, mas contadas sobre
+     * as linhas do CSV e com o valor somado, sem projeção (não há total oficial por órgão).
+     */
+    private static void adicionarFatia(Document doc, Fatia fatia, NumberFormat nf) {
+        doc.add(new Paragraph("RECORTE: " + fatia.getRecorte().getDescricao().toUpperCase())
+                .setFontSize(11)
+                .setBold()
+                .setMarginTop(10)
+                .setFontColor(EstiloPdf.AZUL));
+
+        Table table = new Table(new float[]{4, 1.5f, 1.5f, 2, 2.5f});
+        table.setWidth(UnitValue.createPercentValue(100));
+        String[] headers = {fatia.getRecorte().getAgrupamento().getTitulo().toUpperCase(),
+                "TOTAL", "DESBLOQUEADOS", "EXCLUSÃO", "VALOR NO CSV"};
+        for (String header : headers) {
+            table.addHeaderCell(new Cell()
+                    .add(new Paragraph(header).setBold().setFontSize(8).setFontColor(ColorConstants.WHITE))
+                    .setBackgroundColor(EstiloPdf.AZUL_ESCURO)
+                    .setPadding(5)
+                    .setTextAlignment(TextAlignment.CENTER));
+        }
+        long totalLinhas = 0;
+        long totalDesbloq = 0;
+        long totalValor = 0;
+        for (int i = 0; i < fatia.size(); i++) {
+            DeviceRgb bgColor = EstiloPdf.fundoDaLinha(i);
+            long linhas = fatia.getLinhas(i);
+            long desbloq = fatia.getDesbloqueados(i);
+            table.addCell(new Cell().add(new Paragraph(fatia.getRotulo(i)).setFontSize(8)).setPadding(4).setBackgroundColor(bgColor));
+            table.addCell(new Cell().add(new Paragraph(nf.format(linhas)).setFontSize(8)).setPadding(4).setBackgroundColor(bgColor));
+            table.addCell(new Cell().add(new Paragraph(nf.format(linhas - desbloq)).setFontSize(8)).setPadding(4).setBackgroundColor(bgColor));
+            table.addCell(new Cell().add(new Paragraph(nf.format(desbloq) + " (" + percentual(desbloq, linhas) + ")").setFontSize(8)).setPadding(4).setBackgroundColor(bgColor));
+            table.addCell(new Cell().add(new Paragraph("R$ " + Centavos.formatar(nf, fatia.getValorCentavos(i))).setFontSize(8)).setPadding(4).setBackgroundColor(bgColor));
+            totalLinhas += linhas;
+            totalDesbloq += desbloq;
+            totalValor += fatia.getValorCentavos(i);
+        }
+        DeviceRgb totalBgColor = EstiloPdf.VERDE;
+        String[] totais = {"TOTAL", nf.format(totalLinhas), nf.format(totalLinhas - totalDesbloq),
+                nf.format(totalDesbloq) + " (" + percentual(totalDesbloq, totalLinhas) + ")",
+                "R$ " + Centavos.formatar(nf, totalValor)};
+        for (String total : totais) {
+            table.addCell(new Cell().add(new Paragraph(total).setBold().setFontSize(8).setFontColor(ColorConstants.WHITE))
+                    .setPadding(5).setBackgroundColor(totalBgColor));
+        }
+        doc.add(table);
+    }
+
+    /**
+     * Seção dos CPFs com mais de uma linha no CSV, de todas as variantes: os lotes das
+     * linhas de cada CPF e qual delas a política conta.
+     */
+    private static void adicionarDuplicados(Document doc, DuplicidadeCpf d, NumberFormat nf) {
+        doc.add(new Paragraph("CPFS EM MAIS DE UMA LINHA")
+                .setFontSize(13)
+                .setBold()
+                .setMarginTop(10)
+                .setFontColor(EstiloPdf.AZUL)
+                .setTextAlignment(TextAlignment.CENTER));
+        doc.add(new Paragraph(d.getCpfsRepetidos() + " CPFs com " + d.getLinhasRepetidas() + " linhas a mais; política "
+                + d.getPolitica().getNome() + " (" + d.getPolitica().getDescricao() + "): " + d.getLinhasDescartadas()
+                + " linhas fora dos totais, R$ " + Centavos.formatar(nf, d.getValorDescartadoCentavos()) + ".")
+                .setFontSize(8)
+                .setTextAlignment(TextAlignment.CENTER));
+
+        Table table = new Table(new float[]{2, 1, 4, 2});
+        table.setWidth(UnitValue.createPercentValue(100));
+        for (String header : new String[]{"CPF", "LINHAS", "LOTES", "LINHA QUE CONTA"}) {
+            table.addHeaderCell(new Cell()
+                    .add(new Paragraph(header).setBold().setFontSize(8).setFontColor(ColorConstants.WHITE))
+                    .setBackgroundColor(EstiloPdf.AZUL_ESCURO)
+                    .setPadding(4)
+                    .setTextAlignment(TextAlignment.CENTER));
+        }
+        for (int k = 0; k < d.getGrupos(); k++) {
+            String conta;
+            switch (d.getPolitica()) {
+                case PRIMEIRA:
+                    conta = "1ª linha (lote " + d.getLoteContado(k) + "ª)";
+                    break;
+                case ULTIMO_LOTE:
+                    conta = "Lote " + d.getLoteContado(k) + "ª";
+                    break;
+                default:
+                    conta = "Todas";
+            }
+            table.addCell(new Cell().add(new Paragraph(LinhaLote.formatarCpf(d.getCpf(k))).setFontSize(8)).setPadding(3));
+            table.addCell(new Cell().add(new Paragraph(String.valueOf(d.getLinhas(k))).setFontSize(8)).setPadding(3)
+                    .setTextAlignment(TextAlignment.CENTER));
+            table.addCell(new Cell().add(new Paragraph(d.getDescricaoLotes(k)).setFontSize(8)).setPadding(3));
+            table.addCell(new Cell().add(new Paragraph(conta).setFontSize(8)).setPadding(3));
+        }
+        doc.add(table);
+        if (d.getCpfsRepetidos() > d.getGrupos()) {
+            doc.add(new Paragraph("Listados os " + d.getGrupos() + " primeiros de " + d.getCpfsRepetidos() + " CPFs.")
+                    .setFontSize(8)
+                    .setTextAlignment(TextAlignment.CENTER));
+        }
+    }
+
+    /** Seção "novos desbloqueados desde a última execução", só com quem entra na variante. */
+    private static void adicionarNovosDesbloqueados(Document doc, ProcessamentoIncremental.Resultado r, Variante variante) {
+        SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy HH:mm:ss");
+        doc.add(new Paragraph("NOVOS DESBLOQUEADOS DESDE A ÚLTIMA EXECUÇÃO")
+                .setFontSize(13)
+                .setBold()
+                .setMarginTop(10)
+                .setFontColor(EstiloPdf.AZUL)
+                .setTextAlignment(TextAlignment.CENTER));
+        doc.add(new Paragraph((r.isMesmaExportacao() ? "Mesma exportação da execução anterior, " : "Comparado com ")
+                + r.getArquivoAnterior() + " (" + sdf.format(new Date(r.getExecucaoAnterior()))
+                + "): " + r.getCpfsNovos() + " CPFs novos, " + r.getCpfsRemovidos() + " removidos, "
+                + r.getCpfsAlterados() + " alterados.")
+                .setFontSize(8)
+                .setTextAlignment(TextAlignment.CENTER));
+
+        Table table = new Table(new float[]{3, 1, 2});
+        table.setWidth(UnitValue.createPercentValue(60));
+        table.setHorizontalAlignment(com.itextpdf.layout.properties.HorizontalAlignment.CENTER);
+        for (String header : new String[]{"CPF", "LOTE", "VÍNCULO"}) {
+            table.addHeaderCell(new Cell()
+                    .add(new Paragraph(header).setBold().setFontSize(8).setFontColor(ColorConstants.WHITE))
+                    .setBackgroundColor(EstiloPdf.AZUL_ESCURO)
+                    .setPadding(4)
+                    .setTextAlignment(TextAlignment.CENTER));
+        }
+        int total = 0;
+        for (int i = 0; i < r.getNovosDesbloqueados(); i++) {
+            if (!variante.aceita(r.isInativoDesbloqueado(i))) {
+                continue;
+            }
+            if (total++ < LIMITE_LISTA_PDF) {
+                table.addCell(new Cell().add(new Paragraph(LinhaLote.formatarCpf(r.getCpfDesbloqueado(i))).setFontSize(8)).setPadding(3));
+                table.addCell(new Cell().add(new Paragraph(r.getLoteDesbloqueado(i) + "ª").setFontSize(8)).setPadding(3));
+                table.addCell(new Cell().add(new Paragraph(r.isInativoDesbloqueado(i) ? "Inativo" : "Ativo").setFontSize(8)).setPadding(3));
+            }
+        }
+        doc.add(new Paragraph("Total: " + total + (total > LIMITE_LISTA_PDF ? " (listados os " + LIMITE_LISTA_PDF + " primeiros)" : ""))
+                .setFontSize(9)
+                .setBold()
+                .setTextAlignment(TextAlignment.CENTER));
+        if (total > 0) {
+            doc.add(table);
+        }
+    }
+
+    // Linhas do anexo entre uma descarga e outra; blocos maiores deixam o layout das bordas mais lento
+    private static final int LINHAS_POR_DESCARGA = 50;
+
+    /**
+     * Anexo com cada beneficiário ainda bloqueado (sem a prova de vida ou, se ativo, sem o
+     * recadastro), na ordem do CSV, sem as linhas fora de lote e as que a política de
+     * duplicados descartou, se duplicidade não for null. A tabela é do modo "grande" do
+     * iText: as linhas vão sendo descarregadas para as páginas durante a leitura, então a
+     * memória não cresce com o tamanho do anexo.
+     *
+     * O anexo relê o CSV em vez de vir da leitura que agregou: a matrícula não está no
+     * cache em colunas, e guardar as linhas até o PDF ser aberto faria a memória crescer
+     * com o arquivo.
+     */
+    private static void adicionarAnexoBeneficiarios(Document doc, java.nio.file.Path csv, Variante variante,
+                                                    DuplicidadeCpf duplicidade, NumberFormat nf) throws IOException {
+        doc.add(new com.itextpdf.layout.element.AreaBreak());
+        doc.add(new Paragraph("ANEXO - BENEFICIÁRIOS BLOQUEADOS" + (variante.isApenasInativos() ? " - INATIVOS" : ""))
+                .setFontSize(13)
+                .setBold()
+                .setMarginBottom(6)
+                .setFontColor(EstiloPdf.AZUL)
+                .setTextAlignment(TextAlignment.CENTER));
+
+        Table table = new Table(new float[]{2.2f, 1.6f, 5, 0.8f, 2}, true);
+        table.setWidth(UnitValue.createPercentValue(100));
+        for (String header : new String[]{"CPF", "MATRÍCULA", "ÓRGÃO", "LOTE", "VALOR"}) {
+            table.addHeaderCell(new Cell().add(new Paragraph(header)).addStyle(EstiloPdf.CABECALHO_ANEXO));
+        }
+        doc.add(table);
+
+        Dicionario orgaos = Dimensao.ORGAO.getDicionario();
+        long[] contagem = new long[2]; // linhas e valor em centavos
+        // Relê o CSV na mesma ordem, então o filtro decide linha a linha como na agregação
+        DuplicidadeCpf filtro = duplicidade == null ? null : duplicidade.novoFiltro();
+        DecodificadorCsv.lerArquivo(csv, linha -> {
+            if (filtro != null && !filtro.manter(linha)) {
+                return;
+            }
+            if (linha.getLote() < 1 || linha.isDesbloqueado() || !variante.aceita(linha.isInativo())) {
+                return;
+            }
+            com.itextpdf.layout.Style estilo = EstiloPdf.celulaAnexo((int) contagem[0]);
+            String orgao = orgaos.nome(linha.getCodigo(Dimensao.ORGAO));
+            table.addCell(new Cell().add(new Paragraph(LinhaLote.formatarCpf(linha.getCpf()))).addStyle(estilo));
+            table.addCell(new Cell().add(new Paragraph(linha.getMatricula())).addStyle(estilo));
+            table.addCell(new Cell().add(new Paragraph(orgao.isEmpty() ? "-" : orgao)).addStyle(estilo));
+            table.addCell(new Cell().add(new Paragraph(linha.getLote() + "ª")).addStyle(estilo)
+                    .setTextAlignment(TextAlignment.CENTER));
+            table.addCell(new Cell().add(new Paragraph(linha.isValorValido()
+                    ? "R$ " + Centavos.formatar(nf, linha.getValorCentavos()) : "-")).addStyle(estilo)
+                    .setTextAlignment(TextAlignment.RIGHT));
+            contagem[1] += linha.getValorCentavos();
+            if (++contagem[0] % LINHAS_POR_DESCARGA == 0) {
+                table.flush();
+            }
+        });
+        table.complete();
+
+        doc.add(new Paragraph("Total: " + nf.format(contagem[0]) + " beneficiários bloqueados, R$ "
+                + Centavos.formatar(nf, contagem[1]) + " no CSV")
+                .setFontSize(9)
+                .setBold()
+                .setMarginTop(4)
+                .setTextAlignment(TextAlignment.CENTER));
+    }
+
+    private static void gerarRelatorioHistoricoPDF(List<HistoricoExportacoes.Exportacao> exportacoes, ResumoLotes[] resumos,
+                                                   Variante variante, ImageData grafico, NumberFormat nf,
+                                                   String dataHora) throws IOException {
+        String dirSaida = Main.getDiretorioSaida();
+        String sufixo = variante.getSufixo();
+        String filename = dirSaida + File.separator + "relatorio_historico" + sufixo + ".pdf";
+        int[] lotes = ResumoLotes.lotesDoHistorico(resumos);
+        DateTimeFormatter formatoData = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+        PdfDocument pdfDoc = new PdfDocument(new PdfWriter(filename));
+        Document doc = new Document(pdfDoc);
+        doc.setMargins(20, 20, 20, 20);
+
+        Table headerTable = new Table(1);
+        headerTable.setWidth(UnitValue.createPercentValue(100));
+        headerTable.addCell(new Cell()
+                .add(new Paragraph("CEARAPREV").setFontSize(20).setBold().setFontColor(ColorConstants.WHITE))
+                .add(new Paragraph("HISTÓRICO DE DESBLOQUEIOS" + (variante.isApenasInativos() ? " - INATIVOS" : ""))
+                        .setFontSize(11).setFontColor(ColorConstants.WHITE))
+                .setBackgroundColor(EstiloPdf.AZUL)
+                .setPadding(15)
+                .setBorder(null));
+        doc.add(headerTable);
+        doc.add(new Paragraph("Data/Hora: " + dataHora)
+                .setFontSize(9)
+                .setTextAlignment(TextAlignment.RIGHT)
+                .setMarginTop(5)
+                .setMarginBottom(5));
+
+        // Uma tabela por medida: linhas são as datas, colunas os lotes
+        String[] titulos = {"DESBLOQUEADOS", "EXCLUSÃO", "RECURSOS RETIDOS"};
+        for (int m = 0; m < titulos.length; m++) {
+            doc.add(new Paragraph(titulos[m])
+                    .setFontSize(11)
+                    .setBold()
+                    .setMarginTop(8)
+                    .setFontColor(EstiloPdf.AZUL));
+            float[] larguras = new float[lotes.length + 2];
+            Arrays.fill(larguras, 2);
+            larguras[0] = 1.6f;
+            Table table = new Table(larguras);
+            table.setWidth(UnitValue.createPercentValue(100));
+            List<String> headers = new ArrayList<>();
+            headers.add("DATA");
+            for (int lote : lotes) {
+                headers.add(lote + "ª");
+            }
+            headers.add("TOTAL");
+            for (String header : headers) {
+                table.addHeaderCell(new Cell()
+                        .add(new Paragraph(header).setBold().setFontSize(8).setFontColor(ColorConstants.WHITE))
+                        .setBackgroundColor(EstiloPdf.AZUL_ESCURO)
+                        .setPadding(5)
+                        .setTextAlignment(TextAlignment.CENTER));
+            }
+            for (int i = 0; i < resumos.length; i++) {
+                DeviceRgb bgColor = EstiloPdf.fundoDaLinha(i);
+                ResumoLotes r = resumos[i];
+                HistoricoExportacoes.Exportacao e = exportacoes.get(i);
+                table.addCell(new Cell().add(new Paragraph(e.getData().format(formatoData) + (e.isDataDoNome() ? "" : "*"))
+                        .setFontSize(8).setBold()).setPadding(4).setBackgroundColor(bgColor));
+                for (int lote : lotes) {
+                    int k = r.indiceDoLote(lote);
+                    String texto = k < 0 ? "-" : medidaHistorico(m, r.getTotais()[k], r.getDesbloqueados()[k], r.getValorBloqueados()[k], nf);
+                    table.addCell(new Cell().add(new Paragraph(texto).setFontSize(8)).setPadding(4).setBackgroundColor(bgColor));
+                }
+                String total = medidaHistorico(m, r.getTotalGeral(), r.getTotalDesbloq(), r.getTotalValorBloqueados(), nf);
+                table.addCell(new Cell().add(new Paragraph(total).setFontSize(8).setBold()).setPadding(4).setBackgroundColor(bgColor));
+            }
+            doc.add(table);
+        }
+        if (exportacoes.stream().anyMatch(e -> !e.isDataDoNome())) {
+            doc.add(new Paragraph("* data de modificação do arquivo (sem data no nome)").setFontSize(7));
+        }
+        StringBuilder fontes = new StringBuilder("Exportações: ");
+        for (int i = 0; i < exportacoes.size(); i++) {
+            fontes.append(i == 0 ? "" : "; ").append(exportacoes.get(i).getArquivo().getFileName());
+        }
+        doc.add(new Paragraph(fontes.toString()).setFontSize(7).setMarginTop(4));
+
+        Image img = new Image(grafico);
+        img.scaleToFit(500, 560);
+        img.setHorizontalAlignment(com.itextpdf.layout.properties.HorizontalAlignment.CENTER);
+        doc.add(img);
+
+        doc.close();
+        System.out.println("Relatório PDF gerado: " + filename);
+    }
+
+    private static String medidaHistorico(int medida, long total, long desbloq, long valorBloqueados, NumberFormat nf) {
+        if (medida == 0) {
+            return nf.format(total - desbloq);
+        }
+        if (medida == 1) {
+            return nf.format(desbloq) + " (" + percentual(desbloq, total) + ")";
+        }
+        return "R$ " + Centavos.formatar(nf, valorBloqueados);
+    }
+
+    /** Percentual com uma casa e vírgula decimal; lote sem total (lote novo) fica em 0%. */
+    private static String percentual(long parte, long total) {
+        double pct = total > 0 ? parte * 100.0 / total : 0;
+        return String.format("%.1f%%", pct).replace('.', ',');
+    }
+}
@@ -0,0 +1,109 @@
+import java.io.File;
+import java.io.IOException;
+import java.text.Normalizer;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Um relatório em PDF por órgão e variante (--por-orgao), a partir dos acumuladores que
+ * o {@link AcumuladorOrgaos} preencheu na mesma leitura do CSV.
+ *
+ * Os PDFs saem em paralelo, num pool de no máximo um trabalho por processador. Cada
+ * trabalho monta o seu gráfico e o seu documento do iText, com o seu NumberFormat; o
+ * que as threads dividem é só leitura: cores e estilos do {@link EstiloPdf}, o programa
+ * da fonte padrão (que o iText guarda no seu cache; o PdfFont é de cada documento) e os
+ * gráficos já prontos do {@link CacheGraficos}. Não há total oficial por órgão, então os
+ * totais da remessa são as linhas do CSV, como num lote sem total oficial.
+ */
+final class RelatoriosPorOrgao {
+    static final String DIRETORIO = "relatorios_por_orgao";
+
+    private RelatoriosPorOrgao() {
+    }
+
+    /** Gera os PDFs de todos os órgãos com linhas em cada variante; devolve quantos saíram. */
+    static int gerar(AcumuladorOrgaos orgaos, Variante[] variantes, String dataHora, int maxThreads)
+            throws IOException, InterruptedException {
+        File diretorio = new File(Main.getDiretorioSaida(), DIRETORIO);
+        if (!diretorio.isDirectory() && !diretorio.mkdirs()) {
+            throw new IOException("Não foi possível criar o diretório " + diretorio);
+        }
+        // Sem os totais oficiais, que são da remessa inteira
+        TotaisOficiais semTotais = new TotaisOficiais();
+        List<String> nomes = new ArrayList<>();
+        List<Future<?>> futuros = new ArrayList<>();
+        int[] codigos = orgaos.getOrgaos();
+        int threads = Math.max(1, Math.min(maxThreads, codigos.length * variantes.length));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            Set<String> usados = new HashSet<>();
+            for (int codigo : codigos) {
+                String orgao = orgaos.getNome(codigo);
+                AcumuladorLotes acumulador = orgaos.getAcumulador(codigo);
+                String base = nomeDeArquivo(orgao, codigo, usados);
+                for (Variante variante : variantes) {
+                    ResumoLotes resumo = ResumoLotes.calcular(variante, semTotais, acumulador);
+                    if (resumo.getTotalGeral() == 0) {
+                        continue; // ex.: órgão sem inativos no relatório de inativos
+                    }
+                    File destino = new File(diretorio, "relatorio_cearaprev" + variante.getSufixo() + "_" + base + ".pdf");
+                    nomes.add(orgao + variante.getSufixo());
+                    futuros.add(pool.submit(() -> {
+                        // NumberFormat não é thread-safe: um por trabalho
+                        NumberFormat nf = NumberFormat.getInstance(new Locale("pt", "BR"));
+                        nf.setMaximumFractionDigits(2);
+                        RelatorioPdf.gerarOrgao(resumo, orgao, destino, variante, nf, dataHora);
+                        return null;
+                    }));
+                }
+            }
+            int gerados = 0;
+            for (int i = 0; i < futuros.size(); i++) {
+                try {
+                    futuros.get(i).get();
+                    gerados++;
+                } catch (ExecutionException ex) {
+                    Throwable causa = ex.getCause();
+                    if (causa instanceof IOException) {
+                        System.out.println("AVISO: PDF de " + nomes.get(i) + " não gerado: " + causa.getMessage());
+                    } else if (causa instanceof RuntimeException) {
+                        throw (RuntimeException) causa;
+                    } else {
+                        throw new IOException(causa);
+                    }
+                }
+            }
+            System.out.println("Relatórios por órgão gerados: " + gerados + " PDFs em " + diretorio
+                    + " (" + threads + (threads == 1 ? " thread)" : " threads)"));
+            return gerados;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Nome do órgão sem acentos, em minúsculas e só com letras, dígitos e '_'
+     * (ASSEMBLÉIA LEGISLATIVA vira assembleia_legislativa). Se dois órgãos derem o mesmo
+     * nome, o segundo ganha o código do dicionário no fim.
+     */
+    private static String nomeDeArquivo(String orgao, int codigo, Set<String> usados) {
+        String semAcentos = Normalizer.normalize(orgao, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        String nome = semAcentos.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "_").replaceAll("^_|_$", "");
+        if (nome.isEmpty()) {
+            nome = "sem_orgao";
+        }
+        if (!usados.add(nome)) {
+            nome = nome + "_" + codigo;
+            usados.add(nome);
+        }
+        return nome;
+    }
+}
@@ -0,0 +1,132 @@
+import java.util.Arrays;
+
+/**
+ * Números do relatório por lote de uma variante: total da remessa, desbloqueados, valor
+ * retido e valor projetado dos excluídos, com os totais gerais. É o mesmo cálculo para o
+ * relatório do dia e para cada data do histórico.
+ */
+public final class ResumoLotes {
+    private final int[] lotes;
+    private final long[] totais;
+    private final long[] desbloqueados;
+    private final long[] valorRetido;       // centavos
+    private final long[] valorBloqueados;   // centavos
+    private long totalDesbloq;
+    private long totalValor;
+    private long totalValorBloqueados;
+    private long totalGeral;
+
+    private ResumoLotes(int n) {
+        lotes = new int[n];
+        totais = new long[n];
+        desbloqueados = new long[n];
+        valorRetido = new long[n];
+        valorBloqueados = new long[n];
+    }
+
+    /** Os lotes são os que aparecem no CSV ou nos totais oficiais. */
+    public static ResumoLotes calcular(Variante variante, TotaisOficiais totaisOficiais, AcumuladorLotes acumulador) {
+        int[] lotes = unirLotes(acumulador.getLotes(), totaisOficiais.getLotes());
+        ResumoLotes r = new ResumoLotes(lotes.length);
+        for (int i = 0; i < lotes.length; i++) {
+            int lote = lotes[i];
+            long totalUsado;
+            if (totaisOficiais.contem(lote)) {
+                totalUsado = totaisOficiais.getTotal(lote, variante);
+            } else {
+                // Lote novo ainda sem total oficial: usa o que veio no CSV
+                totalUsado = acumulador.getLinhas(variante, lote);
+            }
+            r.lotes[i] = lote;
+            r.totais[i] = totalUsado;
+            r.desbloqueados[i] = acumulador.getDesbloqueados(variante, lote);
+            r.valorRetido[i] = acumulador.getValorRetidoCentavos(variante, lote);
+            long bloqueado = totalUsado - r.desbloqueados[i];
+
+            // Calcula valor médio por pessoa e multiplica pela quantidade de excluídos,
+            // em centavos e sem passar por double (valorRetido * bloqueado / totalParaMedia)
+            // Para inativos, usa o total do CSV para calcular valor médio
+            long totalParaMedia = variante.isApenasInativos() ? acumulador.getTotalInativos(lote) : totalUsado;
+            r.valorBloqueados[i] = Centavos.projetar(r.valorRetido[i], bloqueado, totalParaMedia);
+
+            r.totalDesbloq += r.desbloqueados[i];
+            r.totalValor += r.valorRetido[i];
+            r.totalValorBloqueados += r.valorBloqueados[i];
+            r.totalGeral += totalUsado;
+        }
+        return r;
+    }
+
+    /** União ordenada, sem repetição, de dois conjuntos de lotes já ordenados. */
+    private static int[] unirLotes(int[] a, int[] b) {
+        int[] uniao = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < b.length) {
+            int proximo;
+            if (j >= b.length || (i < a.length && a[i] <= b[j])) {
+                proximo = a[i++];
+            } else {
+                proximo = b[j++];
+            }
+            if (n == 0 || uniao[n - 1] != proximo) {
+                uniao[n++] = proximo;
+            }
+        }
+        return Arrays.copyOf(uniao, n);
+    }
+
+    /** Lotes presentes em qualquer data do histórico, em ordem. */
+    static int[] lotesDoHistorico(ResumoLotes[] resumos) {
+        int[] lotes = new int[0];
+        for (ResumoLotes r : resumos) {
+            lotes = unirLotes(lotes, r.getLotes());
+        }
+        return lotes;
+    }
+
+    public int size() {
+        return lotes.length;
+    }
+
+    public int[] getLotes() {
+        return lotes;
+    }
+
+    public long[] getTotais() {
+        return totais;
+    }
+
+    public long[] getDesbloqueados() {
+        return desbloqueados;
+    }
+
+    public long[] getValorRetido() {
+        return valorRetido;
+    }
+
+    public long[] getValorBloqueados() {
+        return valorBloqueados;
+    }
+
+    /** Posição do lote, ou -1 se ele não está no resumo. */
+    public int indiceDoLote(int lote) {
+        int i = Arrays.binarySearch(lotes, lote);
+        return i >= 0 ? i : -1;
+    }
+
+    public long getTotalDesbloq() {
+        return totalDesbloq;
+    }
+
+    public long getTotalValor() {
+        return totalValor;
+    }
+
+    public long getTotalValorBloqueados() {
+        return totalValorBloqueados;
+    }
+
+    public long getTotalGeral() {
+        return totalGeral;
+    }
+}
@@ -0,0 +1,74 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Servidor HTTP só na interface local (127.0.0.1) com o JSON da última geração dos
+ * relatórios no modo vigia:
+ * <ul>
+ * <li>GET /resumo: totais por lote de cada variante, com as mesmas colunas do PDF;</li>
+ * <li>GET /execucao: o relatório de métricas da última geração.</li>
+ * </ul>
+ * Os documentos são trocados inteiros a cada geração, então uma requisição nunca vê
+ * metade de uma atualização.
+ */
+final class ServidorResumo {
+    private final HttpServer servidor;
+    private volatile byte[] resumo = "{}\n".getBytes(StandardCharsets.UTF_8);
+    private volatile byte[] execucao = "{}\n".getBytes(StandardCharsets.UTF_8);
+
+    private ServidorResumo(HttpServer servidor) {
+        this.servidor = servidor;
+    }
+
+    /** Abre o servidor em 127.0.0.1:porta (0 escolhe uma porta livre). */
+    static ServidorResumo iniciar(int porta) throws IOException {
+        HttpServer http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), porta), 0);
+        ServidorResumo s = new ServidorResumo(http);
+        http.createContext("/resumo", troca -> s.responder(troca, s.resumo));
+        http.createContext("/execucao", troca -> s.responder(troca, s.execucao));
+        http.start();
+        return s;
+    }
+
+    void publicar(String resumo, String execucao) {
+        this.resumo = resumo.getBytes(StandardCharsets.UTF_8);
+        this.execucao = execucao.getBytes(StandardCharsets.UTF_8);
+    }
+
+    int getPorta() {
+        return servidor.getAddress().getPort();
+    }
+
+    void parar() {
+        servidor.stop(0);
+    }
+
+    private void responder(HttpExchange troca, byte[] corpo) throws IOException {
+        try {
+            String metodo = troca.getRequestMethod();
+            if (!metodo.equals("GET") && !metodo.equals("HEAD")) {
+                troca.getResponseHeaders().set("Allow", "GET, HEAD");
+                troca.sendResponseHeaders(405, -1);
+                return;
+            }
+            troca.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            troca.getResponseHeaders().set("Cache-Control", "no-store");
+            if (metodo.equals("HEAD")) {
+                troca.sendResponseHeaders(200, -1);
+                return;
+            }
+            troca.sendResponseHeaders(200, corpo.length);
+            try (OutputStream out = troca.getResponseBody()) {
+                out.write(corpo);
+            }
+        } finally {
+            troca.close();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Totais oficiais por lote (geral e de inativos), lidos de um arquivo externo para que
+ * um lote novo só exija acrescentar uma linha, sem recompilar.
+ *
+ * Formato (separador ';', linhas em branco e iniciadas por '#' são ignoradas):
+ * <pre>
+ * lote;total;total_inativos
+ * 1;8611;2765
+ * </pre>
+ */
+public final class TotaisOficiais {
+    public static final String NOME_ARQUIVO = "totais_oficiais.csv";
+
+    private final MapaInt indicePorLote = new MapaInt();
+    private long[] total = new long[8];
+    private long[] totalInativos = new long[8];
+
+    public static TotaisOficiais carregar(File arquivo) throws IOException {
+        TotaisOficiais totais = new TotaisOficiais();
+        if (!arquivo.exists()) {
+            return totais;
+        }
+        try (BufferedReader br = Files.newBufferedReader(arquivo.toPath(), StandardCharsets.UTF_8)) {
+            String linha;
+            int numero = 0;
+            while ((linha = br.readLine()) != null) {
+                numero++;
+                linha = linha.replace("\uFEFF", "").trim();
+                if (linha.isEmpty() || linha.startsWith("#") || !Character.isDigit(linha.charAt(0))) {
+                    continue; // comentário ou cabeçalho
+                }
+                String[] campos = linha.split(";");
+                if (campos.length < 3) {
+                    throw new IllegalArgumentException(arquivo.getName() + ", linha " + numero
+                            + ": esperado 'lote;total;total_inativos'");
+                }
+                try {
+                    totais.definir(Integer.parseInt(campos[0].trim()), numero(campos[1]), numero(campos[2]));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(arquivo.getName() + ", linha " + numero + ": número inválido", e);
+                }
+            }
+        }
+        return totais;
+    }
+
+    private static long numero(String campo) {
+        // aceita 8611 e 8.611
+        return Long.parseLong(campo.trim().replace(".", ""));
+    }
+
+    void definir(int lote, long totalGeral, long totalDeInativos) {
+        int i = indicePorLote.get(lote, -1);
+        if (i < 0) {
+            i = indicePorLote.size();
+            if (i == total.length) {
+                total = Arrays.copyOf(total, i * 2);
+                totalInativos = Arrays.copyOf(totalInativos, i * 2);
+            }
+            indicePorLote.put(lote, i);
+        }
+        total[i] = totalGeral;
+        totalInativos[i] = totalDeInativos;
+    }
+
+    public boolean contem(int lote) {
+        return indicePorLote.get(lote, -1) >= 0;
+    }
+
+    /** Total oficial do lote para a variante; só faz sentido se {@link #contem(int)}. */
+    public long getTotal(int lote, Variante variante) {
+        int i = indicePorLote.get(lote, -1);
+        if (i < 0) {
+            return 0;
+        }
+        return variante.isApenasInativos() ? totalInativos[i] : total[i];
+    }
+
+    public int[] getLotes() {
+        return indicePorLote.chavesOrdenadas();
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * Variantes de relatório que saem de uma mesma leitura do CSV.
+ * Cada variante decide quais linhas entram nos seus acumuladores.
+ */
+public enum Variante {
+    GERAL(""),
+    INATIVOS("_inativos");
+
+    private final String sufixo;
+
+    Variante(String sufixo) {
+        this.sufixo = sufixo;
+    }
+
+    /** Sufixo usado nos nomes dos arquivos gerados (PDF e gráfico). */
+    public String getSufixo() {
+        return sufixo;
+    }
+
+    public boolean isApenasInativos() {
+        return this == INATIVOS;
+    }
+
+    /** Indica se a linha entra nos acumuladores desta variante. */
+    public boolean aceita(boolean isInativo) {
+        return this == GERAL || isInativo;
+    }
+}
@@ -0,0 +1,131 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Espera, com o WatchService, que algum dos arquivos vigiados de um diretório mude.
+ *
+ * Uma exportação nova chega em várias escritas (ou como arquivo temporário renomeado),
+ * e cada uma gera eventos. Depois do primeiro evento esperamos o diretório ficar quieto
+ * por {@link #ESPERA_MS}, e só entregamos o arquivo quando o tamanho e a data de
+ * modificação param de mudar e ele pode ser aberto para leitura (no Windows, o arquivo
+ * que ainda está sendo gravado por outro programa não abre). Eventos que não mudam o
+ * tamanho nem a data (antivírus, indexador) são ignorados.
+ */
+final class VigiaArquivos implements Closeable {
+    // Silêncio no diretório antes de considerar a gravação terminada
+    static final long ESPERA_MS = 250;
+    // Intervalo entre as verificações de arquivo estável
+    private static final long INTERVALO_ESTAVEL_MS = 50;
+    // Desiste de um arquivo que não estabiliza (gravação travada) e volta a esperar eventos
+    private static final int MAXIMO_VERIFICACOES = 200;
+
+    private final Path diretorio;
+    private final WatchService servico;
+    // Nome em minúsculas -> tamanho e data de modificação da última versão entregue
+    private final Map<String, long[]> vistos = new HashMap<>();
+
+    VigiaArquivos(Path diretorio, String... nomes) throws IOException {
+        this.diretorio = diretorio;
+        this.servico = FileSystems.getDefault().newWatchService();
+        diretorio.register(servico, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        for (String nome : nomes) {
+            vistos.put(nome.toLowerCase(), assinatura(diretorio.resolve(nome)));
+        }
+    }
+
+    /**
+     * Bloqueia até algum arquivo vigiado ter uma versão nova e estável; retorna os nomes
+     * (como passados ao construtor, em minúsculas) dos que mudaram.
+     */
+    Set<String> aguardarMudanca() throws IOException, InterruptedException {
+        while (true) {
+            Set<String> tocados = new LinkedHashSet<>();
+            coletar(servico.take(), tocados);
+            // Junta os eventos da mesma gravação até o diretório ficar quieto
+            WatchKey chave;
+            while ((chave = servico.poll(ESPERA_MS, TimeUnit.MILLISECONDS)) != null) {
+                coletar(chave, tocados);
+            }
+            Set<String> mudados = new LinkedHashSet<>();
+            for (String nome : tocados) {
+                long[] estavel = aguardarEstavel(diretorio.resolve(nome));
+                if (estavel != null && !igual(estavel, vistos.get(nome))) {
+                    vistos.put(nome, estavel);
+                    mudados.add(nome);
+                }
+            }
+            if (!mudados.isEmpty()) {
+                return mudados;
+            }
+        }
+    }
+
+    private void coletar(WatchKey chave, Set<String> tocados) {
+        for (WatchEvent<?> evento : chave.pollEvents()) {
+            if (evento.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Eventos perdidos: qualquer arquivo vigiado pode ter mudado
+                tocados.addAll(vistos.keySet());
+            } else {
+                String nome = evento.context().toString().toLowerCase();
+                if (vistos.containsKey(nome)) {
+                    tocados.add(nome);
+                }
+            }
+        }
+        chave.reset();
+    }
+
+    /** Tamanho e data quando param de mudar e o arquivo abre; null se ele sumiu ou não estabilizou. */
+    private static long[] aguardarEstavel(Path arquivo) throws InterruptedException {
+        long[] anterior = assinatura(arquivo);
+        for (int i = 0; i < MAXIMO_VERIFICACOES && anterior != null; i++) {
+            Thread.sleep(INTERVALO_ESTAVEL_MS);
+            long[] atual = assinatura(arquivo);
+            if (igual(atual, anterior) && podeAbrir(arquivo)) {
+                return atual;
+            }
+            anterior = atual;
+        }
+        return null;
+    }
+
+    private static boolean podeAbrir(Path arquivo) {
+        try {
+            FileChannel.open(arquivo, StandardOpenOption.READ).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static long[] assinatura(Path arquivo) {
+        try {
+            return new long[]{Files.size(arquivo), Files.getLastModifiedTime(arquivo).toMillis()};
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static boolean igual(long[] a, long[] b) {
+        return a != null && b != null && a[0] == b[0] && a[1] == b[1];
+    }
+
+    @Override
+    public void close() throws IOException {
+        servico.close();
+    }
+}
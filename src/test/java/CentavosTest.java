@@ -0,0 +1,69 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class CentavosTest {
+    @Test
+    void separadorDecimalDetectadoEmCadaValor() {
+        assertEquals(123456, ler("1.234,56"));
+        assertEquals(123456, ler("1,234.56"));
+        assertEquals(3159784, ler("31597.84"));
+        assertEquals(2025, ler("20,25"));
+        assertEquals(1050, ler("10.5"));
+        assertEquals(700, ler("7"));
+    }
+
+    @Test
+    void tresDigitosDepoisDoSeparador() {
+        // Com parte inteira zero é decimal; senão agrupa milhares
+        assertEquals(50, ler("0.500"));
+        assertEquals(123400, ler("1.234"));
+        assertEquals(123400, ler("1,234"));
+        assertEquals(123456700, ler("1.234.567"));
+    }
+
+    @Test
+    void maisDeDuasCasasArredondaMeioParaOPar() {
+        assertEquals(12, ler("0.125"));
+        assertEquals(14, ler("0.135"));
+        assertEquals(123, ler("1,2345"));
+        assertEquals(-12, ler("-0,125"));
+    }
+
+    @Test
+    void sinalVazioEInvalidos() {
+        assertEquals(-1050, ler("-10,50"));
+        assertEquals(1050, ler("+10,50"));
+        assertEquals(0, ler(""));
+        assertEquals(Centavos.INVALIDO, ler("abc"));
+        assertEquals(Centavos.INVALIDO, ler("-"));
+        assertEquals(Centavos.INVALIDO, ler("R$ 10,00"));
+        assertEquals(Centavos.INVALIDO, ler("1,234,567.89,00"));
+        assertEquals(Centavos.INVALIDO, ler("1234567890123456789"));
+    }
+
+    @Test
+    void projetarArredondaMeioParaOPar() {
+        assertEquals(2, Centavos.projetar(5, 1, 2));
+        assertEquals(8, Centavos.projetar(15, 1, 2));
+        assertEquals(-8, Centavos.projetar(-15, 1, 2));
+        assertEquals(-8, Centavos.projetar(15, 1, -2));
+        assertEquals(2333, Centavos.projetar(1000, 7, 3));
+        assertEquals(0, Centavos.projetar(1000, 7, 0));
+        assertEquals(0, Centavos.projetar(0, 7, 3));
+    }
+
+    @Test
+    void projetarAlemDeUmLong() {
+        assertEquals(Long.MAX_VALUE / 2, Centavos.projetar(Long.MAX_VALUE / 2, 4, 4));
+        // MAX_VALUE * 3 / 6 termina em ,5 e o quociente é ímpar: sobe para o par
+        assertEquals(Long.MAX_VALUE / 2 + 1, Centavos.projetar(Long.MAX_VALUE, 3, 6));
+    }
+
+    private static long ler(String texto) {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        return Centavos.ler(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+}
@@ -0,0 +1,162 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ColunasLoteTest {
+    private static final String CSV = "status_cearaprev;status_recadastro;status_vinculo;cpf;nome;matricula;nome;valor;lote_suspensao\n"
+            + "PROVA_DE_VIDA_NAO_REALIZADA;RECADASTRO_NAO_REALIZADO;APOSENTADO;33333333333;X;1;ORGAO A;31597.84;1\n"
+            + "PROVA_DE_VIDA_REALIZADA;RECADASTRO_REALIZADO;ATIVO;11111111111;X;2;ORGAO B;1.234,56;2\n"
+            + "PROVA_DE_VIDA_NAO_REALIZADA;RECADASTRO_NAO_REALIZADO;ATIVO;22222222222;X;3;ORGAO A;abc;3\n"
+            + "PROVA_DE_VIDA_NAO_REALIZADA;RECADASTRO_NAO_REALIZADO;PENSIONISTA;11111111111;X;4;ORGAO C;0.50;1\n"
+            + "PROVA_DE_VIDA_NAO_REALIZADA;RECADASTRO_NAO_REALIZADO;ATIVO;44444444444;X;5;ORGAO A;10;0\n"
+            + "PROVA_DE_VIDA_NAO_REALIZADA;RECADASTRO_NAO_REALIZADO;ATIVO;;X;6;ORGAO B;20;;\n";
+
+    @TempDir
+    Path pasta;
+
+    private Path csv;
+    private List<String> lidas;
+    private ContagemLinhas contagem;
+
+    @BeforeEach
+    void gravarCache() throws IOException {
+        csv = pasta.resolve("todos_os_lotes.csv");
+        Files.write(csv, CSV.getBytes(StandardCharsets.UTF_8));
+        ColunasLote colunas = new ColunasLote();
+        List<String> linhas = new ArrayList<>();
+        contagem = DecodificadorCsv.lerArquivo(csv, l -> {
+            colunas.aceitar(l);
+            if (l.getLote() >= 1) {
+                linhas.add(descrever(l));
+            }
+        });
+        lidas = linhas;
+        assertTrue(colunas.gravarCache(csv, contagem));
+    }
+
+    @Test
+    void devolveAsLinhasEAContagemDaLeitura() throws IOException {
+        List<String> linhas = new ArrayList<>();
+        ContagemLinhas gravada = new ContagemLinhas();
+        assertTrue(ColunasLote.lerCache(csv, l -> linhas.add(descrever(l)), gravada));
+        assertEquals(lidas, linhas);
+        assertEquals(contagem.getLinhas(), gravada.getLinhas());
+        assertEquals(contagem.getLoteVazio(), gravada.getLoteVazio());
+        assertEquals(contagem.getLoteMenorQueUm(), gravada.getLoteMenorQueUm());
+        assertEquals(contagem.getValorInvalido(), gravada.getValorInvalido());
+    }
+
+    @Test
+    void emOrdemDeCpfDesempataPeloLote() throws IOException {
+        List<String> linhas = new ArrayList<>();
+        assertTrue(ColunasLote.lerCacheEmOrdemDeCpf(csv, null, l -> linhas.add(descrever(l))));
+        assertEquals(Arrays.asList(lidas.get(3), lidas.get(1), lidas.get(2), lidas.get(0)), linhas);
+    }
+
+    @Test
+    void csvComOutroTamanho() throws IOException {
+        Files.write(csv, (CSV + "A;B;ATIVO;5;X;7;ORGAO A;1;1\n").getBytes(StandardCharsets.UTF_8));
+        assertSemCache();
+    }
+
+    @Test
+    void csvComOutraData() throws IOException {
+        Files.setLastModifiedTime(csv, FileTime.fromMillis(Files.getLastModifiedTime(csv).toMillis() - 60_000));
+        assertSemCache();
+    }
+
+    @Test
+    void csvComMesmoTamanhoEDataMasOutroConteudo() throws IOException {
+        FileTime data = Files.getLastModifiedTime(csv);
+        Files.write(csv, CSV.replace("31597.84", "31597.85").getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(csv, data);
+        assertSemCache();
+    }
+
+    @Test
+    void outraVersaoOuOutroFormato() throws IOException {
+        Path cache = ColunasLote.arquivoCache(csv);
+        byte[] original = Files.readAllBytes(cache);
+        try (RandomAccessFile arquivo = new RandomAccessFile(cache.toFile(), "rw")) {
+            arquivo.seek(4);
+            arquivo.writeInt(2);
+        }
+        assertSemCache();
+        Files.write(cache, original);
+        try (RandomAccessFile arquivo = new RandomAccessFile(cache.toFile(), "rw")) {
+            arquivo.writeInt(0x12345678);
+        }
+        assertSemCache();
+    }
+
+    @Test
+    void cacheTruncado() throws IOException {
+        byte[] original = Files.readAllBytes(ColunasLote.arquivoCache(csv));
+        // Depois das colunas só vem a ordem por CPF: quantidade e um int por linha
+        int fimDasColunas = original.length - 4 - 4 * lidas.size();
+        for (int tamanho = 0; tamanho < original.length; tamanho++) {
+            // Uma cópia do CSV por tamanho: um cache já mapeado não pode ser regravado no Windows
+            Path copia = Files.copy(csv, pasta.resolve("truncado" + tamanho + ".csv"), StandardCopyOption.COPY_ATTRIBUTES);
+            Files.write(ColunasLote.arquivoCache(copia), Arrays.copyOf(original, tamanho));
+            List<String> linhas = new ArrayList<>();
+            assertFalse(ColunasLote.lerCacheEmOrdemDeCpf(copia, null, l -> linhas.add(descrever(l))), "tamanho " + tamanho);
+            if (tamanho < fimDasColunas) {
+                assertFalse(ColunasLote.lerCache(copia, l -> linhas.add(descrever(l))), "tamanho " + tamanho);
+            }
+            assertEquals(0, linhas.size(), "tamanho " + tamanho);
+        }
+    }
+
+    @Test
+    void ordemDanificada() throws IOException {
+        Path cache = ColunasLote.arquivoCache(csv);
+        long tamanho = Files.size(cache);
+        try (RandomAccessFile arquivo = new RandomAccessFile(cache.toFile(), "rw")) {
+            // A última posição repete a penúltima
+            arquivo.seek(tamanho - 8);
+            int penultima = arquivo.readInt();
+            arquivo.writeInt(penultima);
+        }
+        assertFalse(ColunasLote.lerCacheEmOrdemDeCpf(csv, null, l -> { }));
+        // As colunas continuam valendo na ordem do arquivo
+        List<String> linhas = new ArrayList<>();
+        assertTrue(ColunasLote.lerCache(csv, l -> linhas.add(descrever(l))));
+        assertEquals(lidas, linhas);
+    }
+
+    @Test
+    void loteQueNaoCabeNumByteNaoGravaCache() throws IOException {
+        Path outro = pasta.resolve("lote_grande.csv");
+        Files.write(outro, CSV.replace(";3\n", ";256\n").getBytes(StandardCharsets.UTF_8));
+        ColunasLote colunas = new ColunasLote();
+        ContagemLinhas c = DecodificadorCsv.lerArquivo(outro, colunas);
+        assertFalse(colunas.gravarCache(outro, c));
+        assertFalse(Files.exists(ColunasLote.arquivoCache(outro)));
+    }
+
+    private void assertSemCache() throws IOException {
+        List<String> linhas = new ArrayList<>();
+        assertFalse(ColunasLote.lerCache(csv, l -> linhas.add(descrever(l))));
+        assertFalse(ColunasLote.lerCacheEmOrdemDeCpf(csv, null, l -> linhas.add(descrever(l))));
+        assertEquals(0, linhas.size());
+    }
+
+    private static String descrever(LinhaLote l) {
+        String orgao = Dimensao.ORGAO.getDicionario().nome(l.getCodigo(Dimensao.ORGAO));
+        return l.getLote() + "|" + l.getCpf() + "|" + l.getValorCentavos() + "|" + l.getSituacao() + "|" + orgao;
+    }
+}
@@ -0,0 +1,77 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class ConjuntoCpfTest {
+    private static final long MAIOR_CPF = 99_999_999_999L;
+
+    @Test
+    void cresceAPartirDaMenorCapacidade() {
+        ConjuntoCpf conjunto = new ConjuntoCpf(1);
+        int n = 200_000;
+        for (int i = 0; i < n; i++) {
+            assertEquals(-1, conjunto.adicionar(MAIOR_CPF - i, i));
+        }
+        assertEquals(n, conjunto.size());
+        for (int i = 0; i < n; i++) {
+            assertEquals(i, conjunto.valor(MAIOR_CPF - i));
+        }
+        assertEquals(-1, conjunto.valor(MAIOR_CPF - n));
+    }
+
+    @Test
+    void colisoesNosExtremosDoIntervalo() {
+        // Tabela pequena: CPFs vizinhos do maior e do menor disputam as mesmas posições
+        ConjuntoCpf conjunto = new ConjuntoCpf(2);
+        Map<Long, Integer> esperado = new HashMap<>();
+        for (int i = 0; i < 64; i++) {
+            long alto = MAIOR_CPF - i * 1024L;
+            long baixo = i * 1024L;
+            int valor = ConjuntoCpf.MAIOR_VALOR - i;
+            conjunto.adicionar(alto, valor);
+            conjunto.adicionar(baixo, i);
+            esperado.put(alto, valor);
+            esperado.put(baixo, i);
+        }
+        assertEquals(esperado.size(), conjunto.size());
+        for (Map.Entry<Long, Integer> e : esperado.entrySet()) {
+            assertEquals((int) e.getValue(), conjunto.valor(e.getKey()));
+        }
+        // Percorrer pelas posições devolve cada CPF uma vez, com o seu valor
+        int vistos = 0;
+        for (int i = 0; i < conjunto.posicoes(); i++) {
+            long cpf = conjunto.cpfNaPosicao(i);
+            if (cpf >= 0) {
+                assertEquals((int) esperado.get(cpf), conjunto.valorNaPosicao(i));
+                vistos++;
+            }
+        }
+        assertEquals(esperado.size(), vistos);
+    }
+
+    @Test
+    void adicionarDeNovoMantemOValorESubstituirTroca() {
+        ConjuntoCpf conjunto = new ConjuntoCpf();
+        assertEquals(-1, conjunto.adicionar(MAIOR_CPF, 7));
+        assertEquals(7, conjunto.adicionar(MAIOR_CPF, 9));
+        conjunto.substituir(MAIOR_CPF, ConjuntoCpf.MAIOR_VALOR);
+        assertEquals(ConjuntoCpf.MAIOR_VALOR, conjunto.valor(MAIOR_CPF));
+        assertEquals(-1, conjunto.adicionar(0, 0));
+        assertEquals(0, conjunto.valor(0));
+        assertEquals(2, conjunto.size());
+    }
+
+    @Test
+    void rejeitaCpfOuValorForaDoIntervalo() {
+        ConjuntoCpf conjunto = new ConjuntoCpf();
+        assertThrows(IllegalArgumentException.class, () -> conjunto.adicionar(-1, 0));
+        assertThrows(IllegalArgumentException.class, () -> conjunto.adicionar(MAIOR_CPF + 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> conjunto.valor(MAIOR_CPF + 1));
+        assertThrows(IllegalArgumentException.class, () -> conjunto.adicionar(1, -1));
+        assertThrows(IllegalArgumentException.class, () -> conjunto.adicionar(1, ConjuntoCpf.MAIOR_VALOR + 1));
+        assertThrows(IllegalArgumentException.class, () -> conjunto.substituir(1, 0));
+    }
+}
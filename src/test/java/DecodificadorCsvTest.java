@@ -0,0 +1,95 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DecodificadorCsvTest {
+    private static final String CABECALHO =
+            "status_cearaprev;status_recadastro;status_vinculo;cpf;nome;matricula;nome;valor;data_bloqueio;lote_suspensao";
+
+    @TempDir
+    Path pasta;
+
+    @Test
+    void cabecalhoComBom() throws IOException {
+        List<String> linhas = ler("\uFEFF" + CABECALHO + "\n"
+                + "PROVA_DE_VIDA_NAO_REALIZADA;RECADASTRO_NAO_REALIZADO;APOSENTADO;197246320;JOSE;197;"
+                + "ASSEMBLEIA;31597.84;18/08/2025 17:25;1\n", 1 << 20);
+        assertEquals(Arrays.asList("1|197246320|3159784|ASSEMBLEIA|197"), linhas);
+    }
+
+    @Test
+    void cabecalhoComBomENomesCodificadosDuasVezes() throws IOException {
+        // BOM e acentos do cabeçalho em UTF-8 relido como Windows-1252 e gravado de novo
+        String cabecalho = "\u00EF\u00BB\u00BFstatus_cearaprev;status_recadastro;status_vinculo;cpf;nome;"
+                + "matr\u00C3\u00ADcula;\u00C3\u00B3rg\u00C3\u00A3o;valor;lote_suspensao";
+        List<String> linhas = ler(cabecalho + "\r\n"
+                + "A;B;ATIVO;123.456.789-01;MARIA;0042X;SECRETARIA DA EDUCAÃ‡ÃƒO;1.234,56;2\r\n", 1 << 20);
+        assertEquals(Arrays.asList("2|12345678901|123456|SECRETARIA DA EDUCAÇÃO|0042X"), linhas);
+    }
+
+    @Test
+    void quebraDeLinhaEntreAspas() throws IOException {
+        String csv = CABECALHO + "\n"
+                + "A;B;ATIVO;11111111111;\"MARIA\nDA SILVA\";1;\"ORGAO;COM\r\nQUEBRA\";10.50;x;3\n"
+                + "A;B;ATIVO;22222222222;JOAO;2;OUTRO;\"20,25\";x;4";
+        List<String> esperado = Arrays.asList(
+                "3|11111111111|1050|ORGAO;COM\r\nQUEBRA|1",
+                "4|22222222222|2025|OUTRO|2");
+        assertEquals(esperado, ler(csv, 1 << 20));
+        // Janela menor que a linha: o campo entre aspas atravessa o fim do buffer
+        assertEquals(esperado, ler(csv, 16));
+    }
+
+    @Test
+    void contaLinhasDescartadas() throws IOException {
+        Path arquivo = gravar(CABECALHO + "\n"
+                + "A;B;ATIVO;1;N;1;O;1.00;x;\n"
+                + "A;B;ATIVO;2;N;2;O;1.00;x;lote\n"
+                + "A;B;ATIVO;3;N;3;O;1.00;x;0\n"
+                + "A;B;ATIVO;4;N;4;O;abc;x;5\n"
+                + "\n"
+                + "A;B;ATIVO;5;N;5;O;2.00;x;5\n");
+        List<String> linhas = new ArrayList<>();
+        ContagemLinhas contagem = DecodificadorCsv.lerArquivo(arquivo, l -> linhas.add(descrever(l)), 1 << 20);
+        assertEquals(5, contagem.getLinhas());
+        assertEquals(1, contagem.getLoteVazio());
+        assertEquals(1, contagem.getLoteInvalido());
+        assertEquals(1, contagem.getLoteMenorQueUm());
+        assertEquals(1, contagem.getValorInvalido());
+        assertEquals(Arrays.asList("0|3|100|O|3", "5|4|0|O|4", "5|5|200|O|5"), linhas);
+    }
+
+    @Test
+    void colunaObrigatoriaFaltando() throws IOException {
+        Path arquivo = gravar("status_cearaprev;status_recadastro;status_vinculo;cpf;valor\nA;B;C;1;2\n");
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> DecodificadorCsv.lerArquivo(arquivo, l -> { }));
+        assertEquals("Coluna 'lote_suspensao' não encontrada no cabeçalho do CSV", e.getMessage());
+    }
+
+    private List<String> ler(String conteudo, int janela) throws IOException {
+        List<String> linhas = new ArrayList<>();
+        DecodificadorCsv.lerArquivo(gravar(conteudo), l -> linhas.add(descrever(l)), janela);
+        return linhas;
+    }
+
+    private Path gravar(String conteudo) throws IOException {
+        Path arquivo = Files.createTempFile(pasta, "lotes", ".csv");
+        Files.write(arquivo, conteudo.getBytes(StandardCharsets.UTF_8));
+        return arquivo;
+    }
+
+    private static String descrever(LinhaLote l) {
+        String orgao = Dimensao.ORGAO.getDicionario().nome(l.getCodigo(Dimensao.ORGAO));
+        return l.getLote() + "|" + l.getCpf() + "|" + l.getValorCentavos() + "|" + orgao + "|" + l.getMatricula();
+    }
+}
@@ -0,0 +1,124 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class DuplicidadeCpfTest {
+    private static final long A = 111;
+    private static final long B = 222;
+    private static final long C = 333;
+
+    // cpf, lote e valor de cada linha, na ordem do arquivo
+    private static final long[][] LINHAS = {
+            {A, 2, 100},
+            {B, 1, 200},
+            {A, 5, 300},
+            {A, 3, 400},
+            {C, 1, 500},
+            {A, 5, 600}, // duas vezes no mesmo lote
+            {-1, 1, 700}, // sem CPF: nunca é repetição
+            {B, 0, 800}, // lote menor que 1: idem
+            {B, 4, 900},
+    };
+
+    @Test
+    void marcarMantemTodasEListaOsRepetidos() {
+        DuplicidadeCpf duplicidade = new DuplicidadeCpf(DuplicidadeCpf.Politica.MARCAR);
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8), mantidas(duplicidade));
+        assertEquals(2, duplicidade.getCpfsRepetidos());
+        assertEquals(4, duplicidade.getLinhasRepetidas());
+        assertEquals(0, duplicidade.getLinhasDescartadas());
+        assertGrupos(duplicidade, -1, -1);
+    }
+
+    @Test
+    void primeiraContaSoAPrimeiraLinhaDeCadaCpf() {
+        DuplicidadeCpf duplicidade = new DuplicidadeCpf(DuplicidadeCpf.Politica.PRIMEIRA);
+        assertEquals(Arrays.asList(0, 1, 4, 6, 7), mantidas(duplicidade));
+        assertEquals(4, duplicidade.getLinhasDescartadas());
+        assertEquals(300 + 400 + 600 + 900, duplicidade.getValorDescartadoCentavos());
+        assertGrupos(duplicidade, 2, 1);
+        // O filtro do anexo repete a decisão
+        assertEquals(Arrays.asList(0, 1, 4, 6, 7), mantidas(duplicidade.novoFiltro()));
+    }
+
+    @Test
+    void ultimoLoteContaAPrimeiraLinhaDoMaiorLote() {
+        DuplicidadeCpf duplicidade = new DuplicidadeCpf(DuplicidadeCpf.Politica.ULTIMO_LOTE);
+        for (long[] l : LINHAS) {
+            duplicidade.aceitar(linha(l));
+        }
+        assertEquals(Arrays.asList(2, 4, 6, 7, 8), mantidas(duplicidade));
+        assertEquals(4, duplicidade.getLinhasDescartadas());
+        assertEquals(100 + 200 + 400 + 600, duplicidade.getValorDescartadoCentavos());
+        assertGrupos(duplicidade, 5, 4);
+        assertEquals(Arrays.asList(2, 4, 6, 7, 8), mantidas(duplicidade.novoFiltro()));
+    }
+
+    @Test
+    void parciaisSomadosIgualAUmaPassada() {
+        // Leitura paralela: cada pedaço com o seu parcial, somados na ordem do arquivo
+        for (int corte = 0; corte <= LINHAS.length; corte++) {
+            DuplicidadeCpf primeiro = new DuplicidadeCpf(DuplicidadeCpf.Politica.ULTIMO_LOTE);
+            DuplicidadeCpf segundo = primeiro.novoParcial();
+            for (int i = 0; i < LINHAS.length; i++) {
+                (i < corte ? primeiro : segundo).aceitar(linha(LINHAS[i]));
+            }
+            primeiro.somar(segundo);
+            assertEquals(2, primeiro.getCpfsRepetidos());
+            assertEquals(4, primeiro.getLinhasRepetidas());
+            assertEquals(Arrays.asList(2, 4, 6, 7, 8), mantidas(primeiro));
+            assertGrupos(primeiro, 5, 4);
+        }
+    }
+
+    @Test
+    void politicaPorNome() {
+        assertEquals(DuplicidadeCpf.Politica.ULTIMO_LOTE, DuplicidadeCpf.Politica.porNome("ultimo-lote"));
+        assertEquals(DuplicidadeCpf.Politica.PRIMEIRA, DuplicidadeCpf.Politica.porNome(" PRIMEIRA "));
+        assertThrows(IllegalArgumentException.class, () -> DuplicidadeCpf.Politica.porNome("ultima"));
+    }
+
+    @Test
+    void loteForaDoIntervaloDoConjunto() {
+        DuplicidadeCpf duplicidade = new DuplicidadeCpf(DuplicidadeCpf.Politica.PRIMEIRA);
+        assertThrows(IllegalArgumentException.class, () -> duplicidade.manter(linha(new long[]{A, 1 << 24, 0})));
+    }
+
+    /** Índices das linhas que manter deixa nos totais. */
+    private static List<Integer> mantidas(DuplicidadeCpf duplicidade) {
+        List<Integer> mantidas = new ArrayList<>();
+        for (int i = 0; i < LINHAS.length; i++) {
+            if (duplicidade.manter(linha(LINHAS[i]))) {
+                mantidas.add(i);
+            }
+        }
+        return mantidas;
+    }
+
+    /** A e B listados em ordem de CPF, com os lotes na ordem do arquivo. */
+    private static void assertGrupos(DuplicidadeCpf duplicidade, int contadoA, int contadoB) {
+        assertEquals(2, duplicidade.getGrupos());
+        assertEquals(A, duplicidade.getCpf(0));
+        assertEquals(4, duplicidade.getLinhas(0));
+        assertArrayEquals(new int[]{2, 5, 3, 5}, duplicidade.getLotes(0));
+        assertEquals("2ª, 5ª, 3ª, 5ª", duplicidade.getDescricaoLotes(0));
+        assertEquals(contadoA, duplicidade.getLoteContado(0));
+        assertEquals(B, duplicidade.getCpf(1));
+        assertEquals(2, duplicidade.getLinhas(1));
+        assertArrayEquals(new int[]{1, 4}, duplicidade.getLotes(1));
+        assertEquals(contadoB, duplicidade.getLoteContado(1));
+    }
+
+    private static LinhaLote linha(long[] campos) {
+        LinhaLote linha = new LinhaLote();
+        linha.cpf = campos[0];
+        linha.lote = (int) campos[1];
+        linha.valorCentavos = campos[2];
+        return linha;
+    }
+}
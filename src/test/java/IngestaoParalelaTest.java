@@ -0,0 +1,233 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * A mesma exportação lida por todos os caminhos do Main (--sequencial, em pedaços
+ * paralelos, pelo cache em colunas e como planilha .xlsx) tem de dar os mesmos totais.
+ */
+class IngestaoParalelaTest {
+    private static final String[] CABECALHO = {"status_cearaprev", "status_recadastro", "status_vinculo", "cpf", "nome",
+            "matricula", "nome", "valor", "data_bloqueio", "lote_suspensao"};
+    private static final String[] PROVA = {"PROVA_DE_VIDA_REALIZADA", "PROVA_DE_VIDA_NAO_REALIZADA", ""};
+    private static final String[] RECADASTRO = {"RECADASTRO_REALIZADO", "RECADASTRO_NAO_REALIZADO", ""};
+    private static final String[] VINCULO = {"ATIVO", "APOSENTADO", "PENSIONISTA", "AGUARDANDO_APOSENTADORIA"};
+    private static final String[] ORGAO = {"ASSEMBLÃ‰IA LEGISLATIVA", "ASSEMBLÉIA LEGISLATIVA", "SECRETARIA DA SAUDE",
+            "SECRETARIA; DA EDUCACAO", "TRIBUNAL & CONTAS"};
+
+    @TempDir
+    Path pasta;
+
+    private ForkJoinPool pool;
+
+    @BeforeEach
+    void criarPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterEach
+    void fecharPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void todosOsCaminhosDaoOsMesmosTotais() throws IOException {
+        List<String[][]> linhas = gerar(5_000);
+        Path csv = gravarCsv(linhas, "todos_os_lotes.csv");
+        Path xlsx = gravarXlsx(linhas, "todos_os_lotes.xlsx");
+
+        ColunasLote colunas = new ColunasLote();
+        Agregacao sequencial = agregacao(colunas);
+        ContagemLinhas contagem = DecodificadorCsv.lerArquivo(csv, sequencial);
+        String esperado = descrever(sequencial, contagem);
+
+        Agregacao janelaPequena = agregacao(null);
+        assertEquals(esperado, descrever(janelaPequena, DecodificadorCsv.lerArquivo(csv, janelaPequena, 4096)));
+
+        Agregacao paralela = agregacao(null);
+        assertEquals(esperado, descrever(paralela, IngestaoParalela.ler(csv, paralela, pool, 0)));
+
+        colunas.gravarCache(csv, contagem);
+        Agregacao doCache = agregacao(null);
+        ContagemLinhas gravada = new ContagemLinhas();
+        assertTrue(ColunasLote.lerCache(csv, doCache, gravada));
+        assertEquals(esperado, descrever(doCache, gravada));
+
+        Agregacao planilha = agregacao(null);
+        assertEquals(esperado, descrever(planilha, DecodificadorCsv.lerArquivo(xlsx, planilha)));
+        Agregacao planilhaPeloParalelo = agregacao(null);
+        assertEquals(esperado, descrever(planilhaPeloParalelo, IngestaoParalela.ler(xlsx, planilhaPeloParalelo, pool, 0)));
+    }
+
+    @Test
+    void quebraEntreAspasVoltaParaALeituraSequencial() throws IOException {
+        List<String[][]> linhas = gerar(2_000);
+        linhas.get(1_500)[0][4] = "MARIA\nDA SILVA";
+        Path csv = gravarCsv(linhas, "com_quebra.csv");
+
+        Agregacao sequencial = agregacao(null);
+        String esperado = descrever(sequencial, DecodificadorCsv.lerArquivo(csv, sequencial));
+        Agregacao paralela = agregacao(null);
+        assertEquals(esperado, descrever(paralela, IngestaoParalela.ler(csv, paralela, pool, 0)));
+    }
+
+    private static Agregacao agregacao(ColunasLote colunas) {
+        return new Agregacao(new AcumuladorLotes(Variante.values()), colunas, null, null,
+                new DuplicidadeCpf(DuplicidadeCpf.Politica.MARCAR));
+    }
+
+    /** Tudo o que o console imprime da agregação, numa linha por lote. */
+    private static String descrever(Agregacao agregacao, ContagemLinhas contagem) {
+        AcumuladorLotes a = agregacao.getAcumulador();
+        StringBuilder texto = new StringBuilder();
+        for (int lote : a.getLotes()) {
+            texto.append(lote).append(':').append(a.getTotalInativos(lote));
+            for (Variante v : Variante.values()) {
+                texto.append(' ').append(a.getLinhas(v, lote)).append('/').append(a.getDesbloqueados(v, lote))
+                        .append('/').append(a.getValorRetidoCentavos(v, lote));
+            }
+            texto.append('\n');
+        }
+        DuplicidadeCpf d = agregacao.getDuplicidade();
+        texto.append("repetidos ").append(d.getCpfsRepetidos()).append('/').append(d.getLinhasRepetidas()).append('\n');
+        texto.append("linhas ").append(contagem.getLinhas()).append(' ').append(contagem.getLoteVazio()).append(' ')
+                .append(contagem.getLoteInvalido()).append(' ').append(contagem.getLoteMenorQueUm()).append(' ')
+                .append(contagem.getValorInvalido());
+        return texto.toString();
+    }
+
+    /**
+     * Linhas aleatórias (com semente fixa); cada uma com os textos do CSV em [0] e, em [1],
+     * o número da célula da planilha quando a coluna é numérica nela.
+     */
+    private static List<String[][]> gerar(int n) {
+        Random r = new Random(42);
+        List<String[][]> linhas = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            String[] texto = new String[CABECALHO.length];
+            String[] numero = new String[CABECALHO.length];
+            texto[0] = PROVA[r.nextInt(PROVA.length)];
+            texto[1] = RECADASTRO[r.nextInt(RECADASTRO.length)];
+            texto[2] = VINCULO[r.nextInt(VINCULO.length)];
+            long cpf = 1_000_000L + r.nextInt(n);
+            texto[3] = Long.toString(cpf);
+            numero[3] = texto[3];
+            texto[4] = "BENEFICIARIO " + i;
+            texto[5] = Integer.toString(i);
+            texto[6] = ORGAO[r.nextInt(ORGAO.length)];
+            BigDecimal valor = BigDecimal.valueOf(r.nextInt(5_000_000), 2);
+            switch (r.nextInt(4)) {
+                case 0:
+                    texto[7] = valor.toPlainString();
+                    break;
+                case 1:
+                    texto[7] = String.format(new Locale("pt", "BR"), "%,.2f", valor);
+                    break;
+                case 2:
+                    texto[7] = valor.toPlainString().replace('.', ',');
+                    break;
+                default:
+                    texto[7] = r.nextInt(50) == 0 ? "abc" : valor.toPlainString();
+            }
+            if (!texto[7].equals("abc")) {
+                numero[7] = valor.stripTrailingZeros().toPlainString();
+            }
+            texto[8] = "18/08/2025 17:25";
+            int lote = r.nextInt(100);
+            texto[9] = lote == 0 ? "" : lote == 1 ? "x" : lote == 2 ? "0" : Integer.toString(1 + lote % 12);
+            if (lote >= 2) {
+                numero[9] = texto[9];
+            }
+            linhas.add(new String[][]{texto, numero});
+        }
+        // Células numéricas que o Centavos leria de outro jeito se viessem como texto
+        linhas.get(10)[0][7] = "1,23";
+        linhas.get(10)[1][7] = "1.234";
+        linhas.get(11)[0][7] = "1.234,50";
+        linhas.get(11)[1][7] = "1.2345E3";
+        linhas.get(12)[0][7] = "0,50";
+        linhas.get(12)[1][7] = "0.500";
+        return linhas;
+    }
+
+    private Path gravarCsv(List<String[][]> linhas, String nome) throws IOException {
+        StringBuilder texto = new StringBuilder("\uFEFF").append(String.join(";", CABECALHO)).append("\r\n");
+        for (String[][] linha : linhas) {
+            for (int c = 0; c < CABECALHO.length; c++) {
+                String campo = linha[0][c];
+                boolean aspas = campo.indexOf(';') >= 0 || campo.indexOf('\n') >= 0;
+                texto.append(c == 0 ? "" : ";").append(aspas ? '"' + campo + '"' : campo);
+            }
+            texto.append("\r\n");
+        }
+        Path arquivo = pasta.resolve(nome);
+        Files.write(arquivo, texto.toString().getBytes(StandardCharsets.UTF_8));
+        return arquivo;
+    }
+
+    /** Planilha mínima: uma aba com textos em linha (inlineStr) e células numéricas. */
+    private Path gravarXlsx(List<String[][]> linhas, String nome) throws IOException {
+        Path arquivo = pasta.resolve(nome);
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(arquivo))) {
+            escrever(zip, "[Content_Types].xml", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                    + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\"/>");
+            escrever(zip, "xl/workbook.xml", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                    + "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\""
+                    + " xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">"
+                    + "<sheets><sheet name=\"Lotes\" sheetId=\"1\" r:id=\"rId1\"/></sheets></workbook>");
+            escrever(zip, "xl/_rels/workbook.xml.rels", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                    + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                    + "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\""
+                    + " Target=\"worksheets/sheet1.xml\"/></Relationships>");
+            StringBuilder aba = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                    + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>");
+            aba.append("<row r=\"1\">");
+            for (int c = 0; c < CABECALHO.length; c++) {
+                celula(aba, c, 1, CABECALHO[c], null);
+            }
+            aba.append("</row>");
+            for (int i = 0; i < linhas.size(); i++) {
+                aba.append("<row r=\"").append(i + 2).append("\">");
+                for (int c = 0; c < CABECALHO.length; c++) {
+                    celula(aba, c, i + 2, linhas.get(i)[0][c], linhas.get(i)[1][c]);
+                }
+                aba.append("</row>");
+            }
+            escrever(zip, "xl/worksheets/sheet1.xml", aba.append("</sheetData></worksheet>").toString());
+        }
+        return arquivo;
+    }
+
+    private static void celula(StringBuilder aba, int coluna, int linha, String texto, String numero) {
+        String referencia = (char) ('A' + coluna) + Integer.toString(linha);
+        if (numero != null) {
+            aba.append("<c r=\"").append(referencia).append("\"><v>").append(numero).append("</v></c>");
+        } else if (!texto.isEmpty()) {
+            String escapado = texto.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+            aba.append("<c r=\"").append(referencia).append("\" t=\"inlineStr\"><is><t>").append(escapado)
+                    .append("</t></is></c>");
+        }
+    }
+
+    private static void escrever(ZipOutputStream zip, String nome, String conteudo) throws IOException {
+        zip.putNextEntry(new ZipEntry(nome));
+        zip.write(conteudo.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+}
@@ -0,0 +1,4 @@
+@echo off
+cd /d "%~dp0"
+rem Fica aberto regenerando os relatorios sempre que todos_os_lotes.csv ou totais_oficiais.csv mudar
+java -jar "target\cearaprev-report-jar-with-dependencies.jar" vigiar todos